@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.benchmarks;
+
+/**
+ * Text to measure and shape, covered by the {@link FontFixtures#SMALL} font.
+ */
+final class Corpus {
+
+  /** English prose with the "fi" and "fl" ligatures and kerned capitals. */
+  static final String LATIN = "The quick brown fox jumps over the lazy dog. Five boxing wizards "
+      + "jump quickly; the final flight of the jaunty falcon was affirmed by a fluffy offer. "
+      + "Typography is the art and technique of arranging type to make written language legible, "
+      + "readable and appealing when displayed. Kerning adjusts the space between pairs such as "
+      + "To, Va, Wa, Ye and Av so that the text reads evenly.";
+
+  /** The opening of the Quran and a sentence on calligraphy, unvocalized. */
+  static final String ARABIC = "\u0628\u0633\u0645 \u0627\u0644\u0644\u0647 \u0627\u0644"
+      + "\u0631\u062D\u0645\u0646 \u0627\u0644\u0631\u062D\u064A\u0645 \u0627\u0644\u062D"
+      + "\u0645\u062F \u0644\u0644\u0647 \u0631\u0628 \u0627\u0644\u0639\u0627\u0644\u0645"
+      + "\u064A\u0646 \u0627\u0644\u0631\u062D\u0645\u0646 \u0627\u0644\u0631\u062D\u064A"
+      + "\u0645 \u0645\u0627\u0644\u0643 \u064A\u0648\u0645 \u0627\u0644\u062F\u064A\u0646 "
+      + "\u0627\u064A\u0627\u0643 \u0646\u0639\u0628\u062F \u0648\u0627\u064A\u0627\u0643 "
+      + "\u0646\u0633\u062A\u0639\u064A\u0646 \u0627\u0647\u062F\u0646\u0627 \u0627\u0644"
+      + "\u0635\u0631\u0627\u0637 \u0627\u0644\u0645\u0633\u062A\u0642\u064A\u0645 \u0635"
+      + "\u0631\u0627\u0637 \u0627\u0644\u0630\u064A\u0646 \u0627\u0646\u0639\u0645\u062A "
+      + "\u0639\u0644\u064A\u0647\u0645 \u063A\u064A\u0631 \u0627\u0644\u0645\u063A\u0636"
+      + "\u0648\u0628 \u0639\u0644\u064A\u0647\u0645 \u0648\u0644\u0627 \u0627\u0644\u0636"
+      + "\u0627\u0644\u064A\u0646 \u0627\u0644\u062E\u0637 \u0627\u0644\u0639\u0631\u0628"
+      + "\u064A \u0641\u0646 \u062A\u0635\u0645\u064A\u0645 \u0627\u0644\u062D\u0631\u0648"
+      + "\u0641 \u0648\u0643\u062A\u0627\u0628\u062A\u0647\u0627 \u0628\u0637\u0631\u064A"
+      + "\u0642\u0629 \u0645\u062A\u0646\u0627\u0633\u0642\u0629";
+
+  /** Hindi text with conjuncts, which the "half" feature forms. */
+  static final String DEVANAGARI = "\u0928\u092E\u0938\u094D\u0924\u0947 \u0926\u0941\u0928"
+      + "\u093F\u092F\u093E\u0964 \u0939\u093F\u0928\u094D\u0926\u0940 \u092D\u093E\u0930"
+      + "\u0924 \u0915\u0940 \u0930\u093E\u091C\u092D\u093E\u0937\u093E \u0939\u0948 \u0914"
+      + "\u0930 \u0926\u0947\u0935\u0928\u093E\u0917\u0930\u0940 \u0932\u093F\u092A\u093F "
+      + "\u092E\u0947\u0902 \u0932\u093F\u0916\u0940 \u091C\u093E\u0924\u0940 \u0939\u0948"
+      + "\u0964 \u0938\u0902\u092F\u0941\u0915\u094D\u0924\u093E\u0915\u094D\u0937\u0930 "
+      + "\u091C\u0948\u0938\u0947 \u0915\u094D\u0937 \u0924\u094D\u0930 \u091C\u094D\u091E "
+      + "\u0936\u094D\u0930 \u0914\u0930 \u0926\u094D\u0935 \u0906\u0927\u0947 \u0905\u0915"
+      + "\u094D\u0937\u0930\u094B\u0902 \u0938\u0947 \u092C\u0928\u0924\u0947 \u0939\u0948"
+      + "\u0902\u0964 \u092A\u094D\u0930\u0924\u094D\u092F\u0947\u0915 \u0935\u094D\u092F"
+      + "\u0915\u094D\u0924\u093F \u0915\u094B \u0936\u093F\u0915\u094D\u0937\u093E \u0915"
+      + "\u093E \u0905\u0927\u093F\u0915\u093E\u0930 \u0939\u0948 \u0914\u0930 \u0938\u094D"
+      + "\u0935\u0924\u0928\u094D\u0924\u094D\u0930\u0924\u093E \u0938\u092C\u0915\u093E "
+      + "\u091C\u0928\u094D\u092E\u0938\u093F\u0926\u094D\u0927 \u0905\u0927\u093F\u0915"
+      + "\u093E\u0930 \u0939\u0948\u0964";
+
+  private Corpus() {
+  }
+
+  /**
+   * Returns the text of an OpenType script tag.
+   *
+   * @param script
+   *     "latn", "arab" or "deva"
+   * @return the text
+   */
+  static String forScript(String script) {
+    if ("arab".equals(script)) {
+      return ARABIC;
+    } else if ("deva".equals(script)) {
+      return DEVANAGARI;
+    } else if ("latn".equals(script)) {
+      return LATIN;
+    }
+    throw new IllegalArgumentException("Unknown script: " + script);
+  }
+
+}
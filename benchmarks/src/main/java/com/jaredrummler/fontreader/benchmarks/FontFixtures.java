@@ -0,0 +1,851 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates the TrueType fonts the benchmarks run on, so they need neither network access nor
+ * fonts installed on the machine. The glyphs have no outlines (a bounding box only), but the
+ * tables the parser decodes are complete: "cmap" formats 4 and 12, "hmtx", "loca"/"glyf",
+ * "kern", GDEF and GSUB/GPOS lookups for Latin, Arabic and Devanagari text.
+ */
+final class FontFixtures {
+
+  /** Latin, Arabic and Devanagari with GSUB and GPOS lookups, about 800 glyphs. */
+  static final String SMALL = "small";
+  /** {@link #SMALL} plus Greek, Cyrillic and 8000 private use glyphs. */
+  static final String LARGE = "large";
+  /** The CJK Unified Ideographs block, about 21000 glyphs and no layout tables. */
+  static final String CJK = "cjk";
+  /** A TrueType collection of {@link #SMALL} and {@link #CJK}. */
+  static final String TTC = "ttc";
+
+  private static final int UNITS_PER_EM = 2048;
+  private static final int VIRAMA = 0x094D;
+  private static final int NUKTA = 0x093C;
+  private static final int IGNORE_MARKS = 0x0008; // lookup flag
+
+  private FontFixtures() {
+  }
+
+  /**
+   * Writes a font to a temporary file that is deleted when the JVM exits.
+   *
+   * @param name
+   *     one of {@link #SMALL}, {@link #LARGE}, {@link #CJK} or {@link #TTC}
+   * @return the font file
+   * @throws IOException
+   *     if the file can not be written
+   */
+  static File createFile(String name) throws IOException {
+    byte[] data;
+    if (TTC.equals(name)) {
+      data = createCollection(createFont(SMALL), createFont(CJK));
+    } else {
+      data = createFont(name);
+    }
+    File file = File.createTempFile("benchmark-" + name + "-", TTC.equals(name) ? ".ttc" : ".ttf");
+    file.deleteOnExit();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Generates a font.
+   *
+   * @param name
+   *     one of {@link #SMALL}, {@link #LARGE} or {@link #CJK}
+   * @return the font file contents
+   */
+  static byte[] createFont(String name) throws IOException {
+    Builder builder = new Builder("Benchmark " + name);
+    if (CJK.equals(name)) {
+      builder.addRange(0x20, 0x7E);
+      builder.addRange(0x4E00, 0x9FFF);
+      return builder.build(false);
+    }
+    builder.addRange(0x20, 0x7E);
+    builder.addRange(0xA0, 0x24F);
+    builder.addRange(0x300, 0x36F);
+    builder.addRange(0x621, 0x652);
+    builder.addRange(0x900, 0x97F);
+    if (LARGE.equals(name)) {
+      builder.addRange(0x370, 0x3FF);
+      builder.addRange(0x400, 0x4FF);
+      builder.addRange(0xE000, 0xE000 + 7999);
+    }
+    return builder.build(true);
+  }
+
+  /**
+   * Combines fonts into a TrueType collection. The table offsets of each font are moved by the
+   * position of the font in the collection.
+   */
+  static byte[] createCollection(byte[]... fonts) throws IOException {
+    int headerSize = 12 + 4 * fonts.length;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0x74746366); // "ttcf"
+    out.writeInt(0x00010000);
+    out.writeInt(fonts.length);
+    int offset = headerSize;
+    for (byte[] font : fonts) {
+      out.writeInt(offset);
+      offset += font.length;
+    }
+    offset = headerSize;
+    for (byte[] font : fonts) {
+      byte[] copy = font.clone();
+      int numTables = readUShort(copy, 4);
+      for (int i = 0; i < numTables; i++) {
+        int record = 12 + 16 * i + 8;
+        writeInt(copy, record, readInt(copy, record) + offset);
+      }
+      out.write(copy);
+      offset += font.length;
+    }
+    return bytes.toByteArray();
+  }
+
+  private static int readUShort(byte[] data, int offset) {
+    return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+  }
+
+  private static int readInt(byte[] data, int offset) {
+    return (readUShort(data, offset) << 16) | readUShort(data, offset + 2);
+  }
+
+  private static void writeInt(byte[] data, int offset, int value) {
+    data[offset] = (byte) (value >>> 24);
+    data[offset + 1] = (byte) (value >>> 16);
+    data[offset + 2] = (byte) (value >>> 8);
+    data[offset + 3] = (byte) value;
+  }
+
+  private static boolean isArabicLetter(int codePoint) {
+    return codePoint >= 0x628 && codePoint <= 0x64A && (codePoint < 0x63B || codePoint > 0x640);
+  }
+
+  private static boolean isDevanagariConsonant(int codePoint) {
+    return codePoint >= 0x915 && codePoint <= 0x939;
+  }
+
+  private static boolean isLatinLetter(int codePoint) {
+    return (codePoint >= 'A' && codePoint <= 'Z') || (codePoint >= 'a' && codePoint <= 'z');
+  }
+
+  private static boolean isMark(int codePoint) {
+    return (codePoint >= 0x300 && codePoint <= 0x36F) || (codePoint >= 0x64B && codePoint <= 0x652)
+        || codePoint == NUKTA;
+  }
+
+  /**
+   * Assigns glyphs to code points and writes the tables.
+   */
+  private static final class Builder {
+
+    private final String familyName;
+    private final TreeMap<Integer, Integer> cmap = new TreeMap<>();
+    private final List<Integer> arabicForms = new ArrayList<>();
+    private final List<Integer> halfForms = new ArrayList<>();
+    private final List<Integer> ligatures = new ArrayList<>();
+    private int numGlyphs = 1; // .notdef
+
+    Builder(String familyName) {
+      this.familyName = familyName;
+    }
+
+    void addRange(int first, int last) {
+      for (int c = first; c <= last; c++) {
+        if (!cmap.containsKey(c)) {
+          cmap.put(c, numGlyphs++);
+        }
+      }
+    }
+
+    int glyph(int codePoint) {
+      return cmap.get(codePoint);
+    }
+
+    byte[] build(boolean layout) throws IOException {
+      Map<String, byte[]> tables = new TreeMap<>();
+      byte[] gsub = null;
+      byte[] gpos = null;
+      if (layout) {
+        // allocates the glyphs of the positional forms and ligatures
+        gsub = createGSUB();
+        gpos = createGPOS();
+      }
+      tables.put("OS/2", createOS2());
+      tables.put("cmap", createCmap());
+      tables.put("head", createHead());
+      tables.put("hhea", createHhea());
+      tables.put("hmtx", createHmtx());
+      tables.put("maxp", createMaxp());
+      tables.put("name", createName());
+      tables.put("post", createPost());
+      tables.put("glyf", createGlyf());
+      tables.put("loca", createLoca());
+      if (layout) {
+        tables.put("GDEF", createGDEF());
+        tables.put("GSUB", gsub);
+        tables.put("GPOS", gpos);
+        tables.put("kern", createKern());
+      }
+      return assemble(tables);
+    }
+
+    private byte[] assemble(Map<String, byte[]> tables) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      int numTables = tables.size();
+      int entrySelector = 31 - Integer.numberOfLeadingZeros(numTables);
+      out.writeInt(0x00010000);
+      out.writeShort(numTables);
+      out.writeShort(16 << entrySelector);
+      out.writeShort(entrySelector);
+      out.writeShort(16 * numTables - (16 << entrySelector));
+      int offset = 12 + 16 * numTables;
+      for (Map.Entry<String, byte[]> table : tables.entrySet()) {
+        out.writeBytes(table.getKey());
+        out.writeInt(0); // checksum, not verified by the parser
+        out.writeInt(offset);
+        out.writeInt(table.getValue().length);
+        offset += (table.getValue().length + 3) & ~3;
+      }
+      for (byte[] table : tables.values()) {
+        out.write(table);
+        out.write(new byte[((table.length + 3) & ~3) - table.length]);
+      }
+      return bytes.toByteArray();
+    }
+
+    private byte[] createHead() throws IOException {
+      Table t = new Table();
+      t.writeInt(0x00010000); // version
+      t.writeInt(0x00010000); // fontRevision
+      t.writeInt(0); // checkSumAdjustment
+      t.writeInt(0x5F0F3CF5); // magicNumber
+      t.writeShort(0x000B); // flags
+      t.writeShort(UNITS_PER_EM);
+      t.writeLong(0); // created
+      t.writeLong(0); // modified
+      t.writeShort(-200); // xMin
+      t.writeShort(-600); // yMin
+      t.writeShort(2200); // xMax
+      t.writeShort(2000); // yMax
+      t.writeShort(0); // macStyle
+      t.writeShort(8); // lowestRecPPEM
+      t.writeShort(2); // fontDirectionHint
+      t.writeShort(0); // indexToLocFormat, short offsets
+      t.writeShort(0); // glyphDataFormat
+      return t.toByteArray();
+    }
+
+    private byte[] createHhea() throws IOException {
+      Table t = new Table();
+      t.writeInt(0x00010000);
+      t.writeShort(1900); // ascender
+      t.writeShort(-500); // descender
+      t.writeShort(0); // lineGap
+      t.writeShort(2200); // advanceWidthMax
+      t.writeShort(-200); // minLeftSideBearing
+      t.writeShort(-200); // minRightSideBearing
+      t.writeShort(2200); // xMaxExtent
+      t.writeShort(1); // caretSlopeRise
+      t.writeShort(0); // caretSlopeRun
+      t.writeShort(0); // caretOffset
+      t.write(new byte[8]); // reserved
+      t.writeShort(0); // metricDataFormat
+      t.writeShort(numGlyphs); // numberOfHMetrics
+      return t.toByteArray();
+    }
+
+    private byte[] createMaxp() throws IOException {
+      Table t = new Table();
+      t.writeInt(0x00005000); // version 0.5
+      t.writeShort(numGlyphs);
+      return t.toByteArray();
+    }
+
+    private byte[] createOS2() throws IOException {
+      Table t = new Table();
+      t.writeShort(4); // version
+      t.writeShort(1100); // xAvgCharWidth
+      t.writeShort(400); // usWeightClass
+      t.writeShort(5); // usWidthClass
+      t.writeShort(0); // fsType, installable
+      t.write(new byte[10 * 2]); // subscript, superscript and strikeout metrics
+      t.writeShort(0); // sFamilyClass
+      t.write(new byte[10]); // panose
+      t.write(new byte[4 * 4]); // ulUnicodeRange
+      t.writeBytes("NONE"); // achVendID
+      t.writeShort(0x40); // fsSelection, regular
+      t.writeShort(Math.min(cmap.firstKey(), 0xFFFF));
+      t.writeShort(Math.min(cmap.lastKey(), 0xFFFF));
+      t.writeShort(1900); // sTypoAscender
+      t.writeShort(-500); // sTypoDescender
+      t.writeShort(0); // sTypoLineGap
+      t.writeShort(2000); // usWinAscent
+      t.writeShort(600); // usWinDescent
+      t.write(new byte[2 * 4]); // ulCodePageRange
+      t.writeShort(1100); // sxHeight
+      t.writeShort(1450); // sCapHeight
+      t.writeShort(0); // usDefaultChar
+      t.writeShort(0x20); // usBreakChar
+      t.writeShort(2); // usMaxContext
+      return t.toByteArray();
+    }
+
+    private byte[] createHmtx() throws IOException {
+      Table t = new Table();
+      for (int g = 0; g < numGlyphs; g++) {
+        t.writeShort(advance(g));
+        t.writeShort(lsb(g));
+      }
+      return t.toByteArray();
+    }
+
+    private int advance(int glyph) {
+      return 600 + (glyph * 37) % 1400;
+    }
+
+    private int lsb(int glyph) {
+      return (glyph * 13) % 120;
+    }
+
+    private byte[] createGlyf() throws IOException {
+      Table t = new Table();
+      for (int g = 0; g < numGlyphs; g++) {
+        t.writeShort(0); // numberOfContours, no outline follows
+        t.writeShort(lsb(g));
+        t.writeShort(-(g % 400));
+        t.writeShort(advance(g) - lsb(g));
+        t.writeShort(1000 + g % 900);
+        t.writeShort(0); // padding to an even offset
+      }
+      return t.toByteArray();
+    }
+
+    private byte[] createLoca() throws IOException {
+      Table t = new Table();
+      for (int g = 0; g <= numGlyphs; g++) {
+        t.writeShort(g * 12 / 2);
+      }
+      return t.toByteArray();
+    }
+
+    private byte[] createName() throws IOException {
+      String[] names = {"Generated", familyName, "Regular", familyName,
+          familyName.replace(' ', '-')};
+      int[] nameIds = {0, 1, 2, 4, 6};
+      ByteArrayOutputStream strings = new ByteArrayOutputStream();
+      Table t = new Table();
+      t.writeShort(0); // format
+      t.writeShort(names.length);
+      t.writeShort(6 + 12 * names.length);
+      for (int i = 0; i < names.length; i++) {
+        byte[] string = names[i].getBytes("UTF-16BE");
+        t.writeShort(3); // Windows
+        t.writeShort(1); // Unicode BMP
+        t.writeShort(0x409); // en-US
+        t.writeShort(nameIds[i]);
+        t.writeShort(string.length);
+        t.writeShort(strings.size());
+        strings.write(string);
+      }
+      t.write(strings.toByteArray());
+      return t.toByteArray();
+    }
+
+    private byte[] createPost() throws IOException {
+      Table t = new Table();
+      t.writeInt(0x00030000); // format 3, no glyph names
+      t.writeInt(0); // italicAngle
+      t.writeShort(-150); // underlinePosition
+      t.writeShort(100); // underlineThickness
+      t.writeInt(0); // isFixedPitch
+      t.write(new byte[16]); // memory usage
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a format 4 subtable for the BMP and a format 12 subtable for the whole cmap.
+     */
+    private byte[] createCmap() throws IOException {
+      List<int[]> groups = new ArrayList<>(); // start code point, end code point, first glyph
+      for (Map.Entry<Integer, Integer> e : cmap.entrySet()) {
+        int[] last = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+        if (last != null && last[1] + 1 == e.getKey()
+            && last[2] + (e.getKey() - last[0]) == e.getValue()) {
+          last[1] = e.getKey();
+        } else {
+          groups.add(new int[]{e.getKey(), e.getKey(), e.getValue()});
+        }
+      }
+      List<int[]> segments = new ArrayList<>();
+      for (int[] group : groups) {
+        if (group[0] <= 0xFFFF) {
+          segments.add(new int[]{group[0], Math.min(group[1], 0xFFFF), group[2]});
+        }
+      }
+      segments.add(new int[]{0xFFFF, 0xFFFF, 1}); // maps to 0 with the delta
+
+      Table format4 = new Table();
+      int segCount = segments.size();
+      int searchRange = 2 * Integer.highestOneBit(segCount);
+      format4.writeShort(4);
+      format4.writeShort(16 + 8 * segCount);
+      format4.writeShort(0); // language
+      format4.writeShort(2 * segCount);
+      format4.writeShort(searchRange);
+      format4.writeShort(Integer.numberOfTrailingZeros(searchRange / 2));
+      format4.writeShort(2 * segCount - searchRange);
+      for (int[] segment : segments) {
+        format4.writeShort(segment[1]);
+      }
+      format4.writeShort(0); // reservedPad
+      for (int[] segment : segments) {
+        format4.writeShort(segment[0]);
+      }
+      for (int[] segment : segments) {
+        format4.writeShort((segment[2] - segment[0]) & 0xFFFF); // idDelta
+      }
+      for (int i = 0; i < segCount; i++) {
+        format4.writeShort(0); // idRangeOffset
+      }
+
+      Table format12 = new Table();
+      format12.writeShort(12);
+      format12.writeShort(0);
+      format12.writeInt(16 + 12 * groups.size());
+      format12.writeInt(0); // language
+      format12.writeInt(groups.size());
+      for (int[] group : groups) {
+        format12.writeInt(group[0]);
+        format12.writeInt(group[1]);
+        format12.writeInt(group[2]);
+      }
+
+      Table t = new Table();
+      t.writeShort(0); // version
+      t.writeShort(2);
+      t.writeShort(3); // Windows Unicode BMP
+      t.writeShort(1);
+      t.writeInt(4 + 2 * 8);
+      t.writeShort(3); // Windows Unicode full repertoire
+      t.writeShort(10);
+      t.writeInt(4 + 2 * 8 + format4.size());
+      t.write(format4.toByteArray());
+      t.write(format12.toByteArray());
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a format 0 subtable kerning the Latin capitals against the lower case letters.
+     */
+    private byte[] createKern() throws IOException {
+      List<int[]> pairs = createLatinPairs();
+      Table t = new Table();
+      t.writeShort(0); // version
+      t.writeShort(1); // nTables
+      t.writeShort(0); // subtable version
+      t.writeShort(14 + 6 * pairs.size());
+      t.writeShort(0x0001); // horizontal, format 0
+      int searchRange = 6 * Integer.highestOneBit(pairs.size());
+      t.writeShort(pairs.size());
+      t.writeShort(searchRange);
+      t.writeShort(Integer.numberOfTrailingZeros(searchRange / 6));
+      t.writeShort(6 * pairs.size() - searchRange);
+      for (int[] pair : pairs) {
+        t.writeShort(pair[0]);
+        t.writeShort(pair[1]);
+        t.writeShort(pair[2]);
+      }
+      return t.toByteArray();
+    }
+
+    private List<int[]> createLatinPairs() {
+      List<int[]> pairs = new ArrayList<>();
+      for (int left = 'A'; left <= 'Z'; left++) {
+        for (int right = 'a'; right <= 'z'; right++) {
+          pairs.add(new int[]{glyph(left), glyph(right), -((left * 7 + right * 3) % 90)});
+        }
+      }
+      return pairs;
+    }
+
+    /**
+     * Writes a GDEF table classifying the ligatures and the combining marks. The "liga", "half"
+     * and "kern" lookups skip marks, so they only apply across marks if GDEF is read.
+     */
+    private byte[] createGDEF() throws IOException {
+      Map<Integer, Integer> glyphClasses = new TreeMap<>();
+      for (int ligature : ligatures) {
+        glyphClasses.put(ligature, 2);
+      }
+      for (Map.Entry<Integer, Integer> e : cmap.entrySet()) {
+        if (isMark(e.getKey())) {
+          glyphClasses.put(e.getValue(), 3);
+        }
+      }
+      Table t = new Table();
+      t.writeInt(0x00010000);
+      t.writeShort(12); // glyphClassDef, right after the header
+      t.writeShort(0); // attachList
+      t.writeShort(0); // ligCaretList
+      t.writeShort(0); // markAttachClassDef
+      writeClassDef(t, glyphClasses);
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a GSUB table with the Arabic positional forms (single substitutions), the Latin
+     * "fi" and "fl" ligatures and the Devanagari half forms (ligatures of a consonant and the
+     * virama).
+     */
+    private byte[] createGSUB() throws IOException {
+      Map<Integer, Integer> init = new TreeMap<>();
+      Map<Integer, Integer> medi = new TreeMap<>();
+      Map<Integer, Integer> fina = new TreeMap<>();
+      for (int c = 0x621; c <= 0x64A; c++) {
+        if (isArabicLetter(c)) {
+          arabicForms.add(glyph(c));
+          init.put(glyph(c), numGlyphs++);
+          medi.put(glyph(c), numGlyphs++);
+          fina.put(glyph(c), numGlyphs++);
+          arabicForms.addAll(Arrays.asList(numGlyphs - 3, numGlyphs - 2, numGlyphs - 1));
+        }
+      }
+      Map<Integer, List<int[]>> liga = new TreeMap<>(); // first glyph to {ligature, components}
+      ligatures.add(numGlyphs);
+      addLigature(liga, numGlyphs++, glyph('f'), glyph('i'));
+      ligatures.add(numGlyphs);
+      addLigature(liga, numGlyphs++, glyph('f'), glyph('l'));
+      Map<Integer, List<int[]>> half = new TreeMap<>();
+      for (int c = 0x915; c <= 0x939; c++) {
+        if (isDevanagariConsonant(c)) {
+          halfForms.add(numGlyphs);
+          addLigature(half, numGlyphs++, glyph(c), glyph(VIRAMA));
+        }
+      }
+      ligatures.addAll(halfForms);
+
+      List<byte[]> lookups = new ArrayList<>();
+      lookups.add(createLookup(1, 0, createSingleSubstitution(init)));
+      lookups.add(createLookup(1, 0, createSingleSubstitution(medi)));
+      lookups.add(createLookup(1, 0, createSingleSubstitution(fina)));
+      lookups.add(createLookup(4, IGNORE_MARKS, createLigatureSubstitution(liga)));
+      lookups.add(createLookup(4, IGNORE_MARKS, createLigatureSubstitution(half)));
+
+      Map<String, int[]> features = new LinkedHashMap<>(); // feature tag to lookup indexes
+      features.put("fina", new int[]{2});
+      features.put("half", new int[]{4});
+      features.put("init", new int[]{0});
+      features.put("liga", new int[]{3});
+      features.put("medi", new int[]{1});
+      Map<String, int[]> scripts = new LinkedHashMap<>(); // script tag to feature indexes
+      scripts.put("arab", new int[]{0, 2, 4});
+      scripts.put("deva", new int[]{1});
+      scripts.put("latn", new int[]{3});
+      return createLayoutTable(scripts, features, lookups);
+    }
+
+    /**
+     * Writes a GPOS table with a "kern" feature for all scripts, adjusting the advance of the
+     * Latin capitals before lower case letters, of the Arabic letters and their positional forms
+     * before each other and of the Devanagari half forms before consonants.
+     */
+    private byte[] createGPOS() throws IOException {
+      Map<Integer, List<int[]>> pairs = new TreeMap<>(); // first glyph to {second glyph, value}
+      for (int[] pair : createLatinPairs()) {
+        addPair(pairs, pair[0], pair[1], pair[2]);
+      }
+      for (int left : arabicForms) {
+        for (int i = left % 3; i < arabicForms.size(); i += 3) {
+          addPair(pairs, left, arabicForms.get(i), -((left + i) % 60));
+        }
+      }
+      for (int left : halfForms) {
+        for (int c = 0x915; c <= 0x939; c++) {
+          addPair(pairs, left, glyph(c), -((left + c) % 40));
+        }
+      }
+      for (List<int[]> set : pairs.values()) {
+        Collections.sort(set, new Comparator<int[]>() {
+          @Override public int compare(int[] a, int[] b) {
+            return a[0] - b[0];
+          }
+        });
+      }
+      List<byte[]> lookups = new ArrayList<>();
+      lookups.add(createLookup(2, IGNORE_MARKS, createPairPositioning(pairs)));
+      Map<String, int[]> features = new LinkedHashMap<>();
+      features.put("kern", new int[]{0});
+      Map<String, int[]> scripts = new LinkedHashMap<>();
+      scripts.put("arab", new int[]{0});
+      scripts.put("deva", new int[]{0});
+      scripts.put("latn", new int[]{0});
+      return createLayoutTable(scripts, features, lookups);
+    }
+
+    private void addLigature(Map<Integer, List<int[]>> ligatures, int ligature, int first,
+                             int second) {
+      List<int[]> list = ligatures.get(first);
+      if (list == null) {
+        list = new ArrayList<>();
+        ligatures.put(first, list);
+      }
+      list.add(new int[]{ligature, second});
+    }
+
+    private void addPair(Map<Integer, List<int[]>> pairs, int first, int second, int value) {
+      List<int[]> list = pairs.get(first);
+      if (list == null) {
+        list = new ArrayList<>();
+        pairs.put(first, list);
+      }
+      list.add(new int[]{second, value});
+    }
+
+    /**
+     * Writes the header, script list, feature list and lookup list of a GSUB or GPOS table. Each
+     * script has a default language system only.
+     */
+    private byte[] createLayoutTable(Map<String, int[]> scripts, Map<String, int[]> features,
+                                     List<byte[]> lookups) throws IOException {
+      Table scriptList = new Table();
+      scriptList.writeShort(scripts.size());
+      int offset = 2 + 6 * scripts.size();
+      for (Map.Entry<String, int[]> script : scripts.entrySet()) {
+        scriptList.writeBytes(script.getKey());
+        scriptList.writeShort(offset);
+        offset += 4 + 6 + 2 * script.getValue().length;
+      }
+      for (int[] featureIndexes : scripts.values()) {
+        scriptList.writeShort(4); // defaultLangSys, right after the script table
+        scriptList.writeShort(0); // langSysCount
+        scriptList.writeShort(0); // lookupOrder
+        scriptList.writeShort(0xFFFF); // no required feature
+        scriptList.writeShort(featureIndexes.length);
+        for (int index : featureIndexes) {
+          scriptList.writeShort(index);
+        }
+      }
+
+      Table featureList = new Table();
+      featureList.writeShort(features.size());
+      offset = 2 + 6 * features.size();
+      for (Map.Entry<String, int[]> feature : features.entrySet()) {
+        featureList.writeBytes(feature.getKey());
+        featureList.writeShort(offset);
+        offset += 4 + 2 * feature.getValue().length;
+      }
+      for (int[] lookupIndexes : features.values()) {
+        featureList.writeShort(0); // featureParams
+        featureList.writeShort(lookupIndexes.length);
+        for (int index : lookupIndexes) {
+          featureList.writeShort(index);
+        }
+      }
+
+      Table lookupList = new Table();
+      lookupList.writeShort(lookups.size());
+      offset = 2 + 2 * lookups.size();
+      for (byte[] lookup : lookups) {
+        lookupList.writeShort(offset);
+        offset += lookup.length;
+      }
+      for (byte[] lookup : lookups) {
+        lookupList.write(lookup);
+      }
+
+      Table t = new Table();
+      t.writeInt(0x00010000);
+      t.writeShort(10);
+      t.writeShort(10 + scriptList.size());
+      t.writeShort(10 + scriptList.size() + featureList.size());
+      t.write(scriptList.toByteArray());
+      t.write(featureList.toByteArray());
+      t.write(lookupList.toByteArray());
+      return t.toByteArray();
+    }
+
+    private byte[] createLookup(int type, int lookupFlag, byte[] subtable) throws IOException {
+      Table t = new Table();
+      t.writeShort(type);
+      t.writeShort(lookupFlag);
+      t.writeShort(1); // subTableCount
+      t.writeShort(8);
+      t.write(subtable);
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a format 2 single substitution with the coverage table at the end.
+     */
+    private byte[] createSingleSubstitution(Map<Integer, Integer> substitutes)
+        throws IOException {
+      Table t = new Table();
+      t.writeShort(2);
+      t.writeShort(6 + 2 * substitutes.size());
+      t.writeShort(substitutes.size());
+      for (int substitute : substitutes.values()) {
+        t.writeShort(substitute);
+      }
+      writeCoverage(t, substitutes.keySet());
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a format 1 ligature substitution of two component ligatures, followed by its
+     * ligature sets, ligatures and coverage table.
+     */
+    private byte[] createLigatureSubstitution(Map<Integer, List<int[]>> ligatures)
+        throws IOException {
+      Table sets = new Table();
+      int[] setOffsets = new int[ligatures.size()];
+      int headerSize = 6 + 2 * ligatures.size();
+      int i = 0;
+      for (List<int[]> set : ligatures.values()) {
+        setOffsets[i++] = headerSize + sets.size();
+        sets.writeShort(set.size());
+        int offset = 2 + 2 * set.size();
+        for (int j = 0; j < set.size(); j++) {
+          sets.writeShort(offset + 6 * j);
+        }
+        for (int[] ligature : set) {
+          sets.writeShort(ligature[0]);
+          sets.writeShort(2); // componentCount
+          sets.writeShort(ligature[1]);
+        }
+      }
+      Table t = new Table();
+      t.writeShort(1);
+      t.writeShort(headerSize + sets.size());
+      t.writeShort(ligatures.size());
+      for (int offset : setOffsets) {
+        t.writeShort(offset);
+      }
+      t.write(sets.toByteArray());
+      writeCoverage(t, ligatures.keySet());
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a format 1 pair adjustment of the x advance of the first glyph, followed by its
+     * pair sets and coverage table.
+     */
+    private byte[] createPairPositioning(Map<Integer, List<int[]>> pairs) throws IOException {
+      Table sets = new Table();
+      int[] setOffsets = new int[pairs.size()];
+      int headerSize = 10 + 2 * pairs.size();
+      int i = 0;
+      for (List<int[]> set : pairs.values()) {
+        setOffsets[i++] = headerSize + sets.size();
+        sets.writeShort(set.size());
+        for (int[] pair : set) {
+          sets.writeShort(pair[0]);
+          sets.writeShort(pair[1]);
+        }
+      }
+      Table t = new Table();
+      t.writeShort(1);
+      t.writeShort(headerSize + sets.size());
+      t.writeShort(0x0004); // valueFormat1, XAdvance
+      t.writeShort(0); // valueFormat2
+      t.writeShort(pairs.size());
+      for (int offset : setOffsets) {
+        t.writeShort(offset);
+      }
+      t.write(sets.toByteArray());
+      writeCoverage(t, pairs.keySet());
+      return t.toByteArray();
+    }
+
+    /**
+     * Writes a format 2 class definition, one range per run of consecutive glyphs of a class.
+     */
+    private void writeClassDef(Table t, Map<Integer, Integer> sortedClasses) throws IOException {
+      List<int[]> ranges = new ArrayList<>(); // start glyph, end glyph, class
+      for (Map.Entry<Integer, Integer> e : sortedClasses.entrySet()) {
+        int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+        if (last != null && last[1] + 1 == e.getKey() && last[2] == e.getValue()) {
+          last[1] = e.getKey();
+        } else {
+          ranges.add(new int[]{e.getKey(), e.getKey(), e.getValue()});
+        }
+      }
+      t.writeShort(2);
+      t.writeShort(ranges.size());
+      for (int[] range : ranges) {
+        t.writeShort(range[0]);
+        t.writeShort(range[1]);
+        t.writeShort(range[2]);
+      }
+    }
+
+    private void writeCoverage(Table t, Iterable<Integer> sortedGlyphs) throws IOException {
+      List<Integer> glyphs = new ArrayList<>();
+      for (Integer glyph : sortedGlyphs) {
+        glyphs.add(glyph);
+      }
+      t.writeShort(1);
+      t.writeShort(glyphs.size());
+      for (int glyph : glyphs) {
+        t.writeShort(glyph);
+      }
+    }
+
+  }
+
+  /**
+   * A big-endian table being written.
+   */
+  private static final class Table extends DataOutputStream {
+
+    Table() {
+      super(new ByteArrayOutputStream());
+    }
+
+    byte[] toByteArray() {
+      return ((ByteArrayOutputStream) out).toByteArray();
+    }
+
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.benchmarks;
+
+import com.jaredrummler.fontreader.fonts.Font;
+import com.jaredrummler.fontreader.truetype.TTFFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Latin corpus with {@link Font#getWordWidth(String)} and
+ * {@link Font#getKernValue(char, char)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasureBenchmark {
+
+  private Font font;
+  private String[] words;
+  private char[] text;
+
+  @Setup
+  public void setUp() throws IOException {
+    TTFFile ttf = TTFFile.open(FontFixtures.createFile(FontFixtures.SMALL));
+    font = new Font("benchmark", Font.DEFAULT_FONT, new OpenFontMetrics(ttf), 12000);
+    words = Corpus.LATIN.split(" ");
+    text = Corpus.LATIN.toCharArray();
+  }
+
+  @Benchmark
+  public int getWordWidth() {
+    int width = 0;
+    for (String word : words) {
+      width += font.getWordWidth(word);
+    }
+    return width;
+  }
+
+  @Benchmark
+  public int getKernValue() {
+    int kern = 0;
+    for (int i = 1; i < text.length; i++) {
+      kern += font.getKernValue(text[i - 1], text[i]);
+    }
+    return kern;
+  }
+
+}
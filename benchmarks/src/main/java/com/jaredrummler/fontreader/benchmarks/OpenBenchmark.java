@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.benchmarks;
+
+import com.jaredrummler.fontreader.truetype.ParseOptions;
+import com.jaredrummler.fontreader.truetype.TTFFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens fonts with {@link TTFFile#open(File, ParseOptions)}. A collection opens its second
+ * member, the CJK font.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenBenchmark {
+
+  @Param({FontFixtures.SMALL, FontFixtures.LARGE, FontFixtures.CJK, FontFixtures.TTC})
+  public String font;
+
+  private File file;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = FontFixtures.createFile(font);
+  }
+
+  @Benchmark
+  public TTFFile open() throws IOException {
+    return open(ParseOptions.DEFAULT);
+  }
+
+  @Benchmark
+  public TTFFile openAdvanced() throws IOException {
+    return open(ParseOptions.ALL);
+  }
+
+  private TTFFile open(ParseOptions options) throws IOException {
+    if (FontFixtures.TTC.equals(font)) {
+      return TTFFile.openCollection(file).open(1, options);
+    }
+    return TTFFile.open(file, options);
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.benchmarks;
+
+import android.graphics.Rect;
+
+import com.jaredrummler.fontreader.fonts.FontType;
+import com.jaredrummler.fontreader.fonts.Typeface;
+import com.jaredrummler.fontreader.truetype.OpenFont;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The metrics of an {@link OpenFont}, so a {@link com.jaredrummler.fontreader.fonts.Font} can
+ * measure text with it. Characters are mapped to glyph indexes and widths are in 1/1000 of the
+ * em, multiplied by the font size.
+ */
+final class OpenFontMetrics extends Typeface {
+
+  private final OpenFont font;
+  private final int[] widths;
+
+  OpenFontMetrics(OpenFont font) {
+    this.font = font;
+    this.widths = font.getWidths();
+  }
+
+  @Override public String getEncodingName() {
+    return font.getCharSetName();
+  }
+
+  @Override public char mapChar(char c) {
+    notifyMapOperation();
+    return (char) font.getGlyphIndex(c);
+  }
+
+  @Override public boolean hasChar(char c) {
+    return font.getGlyphIndex(c) != 0;
+  }
+
+  @Override public int mapCodePoint(int codePoint) {
+    notifyMapOperation();
+    return font.getGlyphIndex(codePoint);
+  }
+
+  @Override public boolean hasCodePoint(int codePoint) {
+    return font.getGlyphIndex(codePoint) != 0;
+  }
+
+  @Override public boolean isMultiByte() {
+    return true;
+  }
+
+  @Override public URI getFontURI() {
+    return null;
+  }
+
+  @Override public String getFontName() {
+    return font.getPostScriptName();
+  }
+
+  @Override public String getFullName() {
+    return font.getFullName();
+  }
+
+  @Override public Set<String> getFamilyNames() {
+    return font.getFamilyNames();
+  }
+
+  @Override public String getEmbedFontName() {
+    return font.getPostScriptName();
+  }
+
+  @Override public FontType getFontType() {
+    return FontType.TRUETYPE;
+  }
+
+  @Override public int getAscender(int size) {
+    return font.getLowerCaseAscent() * size;
+  }
+
+  @Override public int getCapHeight(int size) {
+    return font.getCapHeight() * size;
+  }
+
+  @Override public int getDescender(int size) {
+    return font.getLowerCaseDescent() * size;
+  }
+
+  @Override public int getXHeight(int size) {
+    return font.getXHeight() * size;
+  }
+
+  @Override public int getWidth(int i, int size) {
+    return widths[i] * size;
+  }
+
+  @Override public int[] getWidths() {
+    return widths.clone();
+  }
+
+  @Override public Rect getBoundingBox(int glyphIndex, int size) {
+    int[] bbox = font.getBBox(glyphIndex);
+    return new Rect(bbox[0] * size, bbox[1] * size, bbox[2] * size, bbox[3] * size);
+  }
+
+  @Override public boolean hasKerningInfo() {
+    return !font.getAnsiKerning().isEmpty();
+  }
+
+  @Override public Map<Integer, Map<Integer, Integer>> getKerningInfo() {
+    return font.getAnsiKerning();
+  }
+
+  @Override public int getUnderlinePosition(int size) {
+    return font.getUnderlinePosition() * size;
+  }
+
+  @Override public int getUnderlineThickness(int size) {
+    return font.getUnderlineThickness() * size;
+  }
+
+  @Override public int getStrikeoutPosition(int size) {
+    return font.getStrikeoutPosition() * size;
+  }
+
+  @Override public int getStrikeoutThickness(int size) {
+    return font.getStrikeoutThickness() * size;
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.benchmarks;
+
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.ShapingPlan;
+import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable;
+import com.jaredrummler.fontreader.truetype.ParseOptions;
+import com.jaredrummler.fontreader.truetype.TTFFile;
+import com.jaredrummler.fontreader.util.GlyphSequence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shapes a corpus with {@link GlyphSubstitutionTable#substitute(GlyphSequence, String, String)}
+ * and {@link GlyphPositioningTable#position(GlyphSequence, String, String, int, int[], int[][])},
+ * and with the {@link ShapingPlan} of the script. The script is an OpenType script tag: "latn",
+ * "arab" or "deva".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapingBenchmark {
+
+  private static final String LANGUAGE = "dflt";
+  private static final int FONT_SIZE = 12000;
+
+  @Param({"latn", "arab", "deva"})
+  public String script;
+
+  private GlyphSubstitutionTable gsub;
+  private GlyphPositioningTable gpos;
+  private ShapingPlan plan;
+  private int[] widths;
+  private int[] codePoints;
+  private int[] glyphs;
+  private GlyphSequence substituted;
+
+  @Setup
+  public void setUp() throws IOException {
+    TTFFile ttf = TTFFile.open(FontFixtures.createFile(FontFixtures.SMALL), ParseOptions.ALL);
+    gsub = ttf.getGSUB();
+    gpos = ttf.getGPOS();
+    plan = ttf.getShapingPlan(script, LANGUAGE);
+    widths = ttf.getWidths();
+    String text = Corpus.forScript(script);
+    codePoints = new int[text.codePointCount(0, text.length())];
+    glyphs = new int[codePoints.length];
+    for (int i = 0, offset = 0; i < codePoints.length; i++) {
+      codePoints[i] = text.codePointAt(offset);
+      glyphs[i] = ttf.getGlyphIndex(codePoints[i]);
+      offset += Character.charCount(codePoints[i]);
+    }
+    substituted = substitute();
+  }
+
+  @Benchmark
+  public GlyphSequence substitute() {
+    GlyphSequence gs = new GlyphSequence(IntBuffer.wrap(codePoints), IntBuffer.wrap(glyphs), null);
+    return gsub.substitute(gs, script, LANGUAGE);
+  }
+
+  @Benchmark
+  public int[][] position() {
+    int[][] adjustments = new int[substituted.getGlyphCount()][4];
+    gpos.position(substituted, script, LANGUAGE, FONT_SIZE, widths, adjustments);
+    return adjustments;
+  }
+
+  @Benchmark
+  public GlyphSequence substituteWithPlan() {
+    GlyphSequence gs = new GlyphSequence(IntBuffer.wrap(codePoints), IntBuffer.wrap(glyphs), null);
+    return plan.substitute(gs);
+  }
+
+  @Benchmark
+  public int[][] positionWithPlan() {
+    int[][] adjustments = new int[substituted.getGlyphCount()][4];
+    plan.position(substituted, FONT_SIZE, widths, adjustments);
+    return adjustments;
+  }
+
+}
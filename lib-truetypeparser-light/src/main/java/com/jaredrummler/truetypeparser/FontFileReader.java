@@ -23,15 +23,25 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads a TrueType font file into a byte array and provides file like functions for array access.
+ * When created from a {@link FileChannel} the file is instead read in small pages on demand, so
+ * only the parts of the file that are actually accessed are read.
  */
 public class FontFileReader {
 
+  private static final int PAGE_SHIFT = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT; // 4 KB
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
   private int fsize; // file size
   private int current; // current position in file
   private byte[] file;
+  private FileChannel channel; // source of pages when file is null
+  private byte[][] pages;
 
   /**
    * Constructor
@@ -62,10 +72,31 @@ public class FontFileReader {
     }
   }
 
+  /**
+   * Constructor. The file is read from the channel as needed, so the channel must remain open
+   * while the reader is in use. Positioned reads are used and the channel's position is not
+   * modified.
+   *
+   * @param channel
+   *     FileChannel to read from
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public FontFileReader(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Font file is too large, file size=" + size);
+    }
+    this.channel = channel;
+    this.fsize = (int) size;
+    this.pages = new byte[(fsize + PAGE_SIZE - 1) >> PAGE_SHIFT][];
+    this.current = 0;
+  }
+
   /**
    * Returns the full byte array representation of the file.
    *
-   * @return byte array.
+   * @return byte array, or null if the reader was created from a FileChannel.
    */
   public byte[] getAllBytes() {
     return file;
@@ -120,9 +151,50 @@ public class FontFileReader {
     if (current >= fsize) {
       throw new EOFException("Reached EOF, file size=" + fsize);
     }
+    if (file == null) {
+      byte b = page(current)[current & PAGE_MASK];
+      current++;
+      return b;
+    }
     return file[current++];
   }
 
+  /**
+   * Returns the page holding the given file position, reading it from the channel if needed.
+   */
+  private byte[] page(int pos) throws IOException {
+    int index = pos >> PAGE_SHIFT;
+    byte[] page = pages[index];
+    if (page == null) {
+      long start = (long) index << PAGE_SHIFT;
+      page = new byte[(int) Math.min(PAGE_SIZE, fsize - start)];
+      ByteBuffer dst = ByteBuffer.wrap(page);
+      while (dst.hasRemaining()) {
+        if (channel.read(dst, start + dst.position()) < 0) {
+          throw new EOFException("Reached EOF, file size=" + fsize);
+        }
+      }
+      pages[index] = page;
+    }
+    return page;
+  }
+
+  /**
+   * Copies len bytes from the current position and advances it.
+   */
+  private byte[] readBytes(int len) throws IOException {
+    byte[] tmp = new byte[len];
+    if (file == null) {
+      for (int i = 0; i < len; i++) {
+        tmp[i] = read();
+      }
+    } else {
+      System.arraycopy(file, current, tmp, 0, len);
+      current += len;
+    }
+    return tmp;
+  }
+
   /**
    * Read 1 signed byte.
    *
@@ -163,9 +235,7 @@ public class FontFileReader {
       throw new EOFException("Reached EOF, file size=" + fsize);
     }
 
-    byte[] tmp = new byte[len];
-    System.arraycopy(file, current, tmp, 0, len);
-    current += len;
+    byte[] tmp = readBytes(len);
     String encoding;
     if ((tmp.length > 0) && (tmp[0] == 0)) {
       encoding = "UTF-16BE";
@@ -191,9 +261,7 @@ public class FontFileReader {
       throw new EOFException("Reached EOF, file size=" + fsize);
     }
 
-    byte[] tmp = new byte[len];
-    System.arraycopy(file, current, tmp, 0, len);
-    current += len;
+    byte[] tmp = readBytes(len);
     String encoding;
     encoding = "UTF-16BE"; // Use this for all known encoding IDs for now
     return new String(tmp, encoding);
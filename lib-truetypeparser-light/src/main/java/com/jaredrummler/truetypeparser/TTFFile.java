@@ -20,9 +20,9 @@
 package com.jaredrummler.truetypeparser;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -35,7 +35,8 @@ import java.util.Set;
 public class TTFFile {
 
   /**
-   * Reads a TTF file
+   * Reads a TTF file. Only the table directory and the "name" and "OS/2" tables are read from
+   * disk, not the whole file.
    *
    * @param file
    *     The font file
@@ -44,7 +45,14 @@ public class TTFFile {
    *     if an IO error occurs
    */
   public static TTFFile open(File file) throws IOException {
-    return open(new FileInputStream(file));
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      TTFFile ttfFile = new TTFFile();
+      ttfFile.readFont(new FontFileReader(raf.getChannel()));
+      return ttfFile;
+    } finally {
+      raf.close();
+    }
   }
 
   /**
@@ -22,6 +22,7 @@ import com.jaredrummler.fontreader.fonts.GlyphSubtable;
 import com.jaredrummler.fontreader.truetype.GlyphTable;
 import com.jaredrummler.fontreader.complexscripts.scripts.ScriptProcessor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -125,6 +126,18 @@ public class GlyphDefinitionTable extends GlyphTable {
     }
   }
 
+  /** {@inheritDoc} */
+  protected List<GlyphSubtable> getSubtables() {
+    List<GlyphSubtable> subtables = new ArrayList<>(2);
+    if (gct != null) {
+      subtables.add(gct);
+    }
+    if (mat != null) {
+      subtables.add(mat);
+    }
+    return subtables;
+  }
+
   /**
    * Determine if glyph belongs to pre-defined glyph class.
    *
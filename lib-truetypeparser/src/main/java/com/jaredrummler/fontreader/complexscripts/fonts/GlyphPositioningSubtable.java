@@ -30,7 +30,13 @@ import com.jaredrummler.fontreader.util.ScriptContextTester;
  */
 public abstract class GlyphPositioningSubtable extends GlyphSubtable implements GlyphPositioning {
 
-  private static final GlyphPositioningState STATE = new GlyphPositioningState();
+  // positioning state reused by the calls of each thread
+  private static final ThreadLocal<GlyphPositioningState> STATE = new ThreadLocal<GlyphPositioningState>() {
+
+    @Override protected GlyphPositioningState initialValue() {
+      return new GlyphPositioningState();
+    }
+  };
 
   /**
    * Instantiate a <code>GlyphPositioningSubtable</code>.
@@ -142,9 +148,7 @@ public abstract class GlyphPositioningSubtable extends GlyphSubtable implements
   public static final boolean position(GlyphSequence gs, String script, String language, String feature, int fontSize,
                                        GlyphPositioningSubtable[] sta, int[] widths, int[][] adjustments,
                                        ScriptContextTester sct) {
-    synchronized (STATE) {
-      return position(STATE.reset(gs, script, language, feature, fontSize, widths, adjustments, sct), sta, -1);
-    }
+    return position(STATE.get().reset(gs, script, language, feature, fontSize, widths, adjustments, sct), sta, -1);
   }
 
 }
@@ -28,6 +28,8 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * <p>The <code>GlyphPositioningTable</code> class is a glyph table that implements
@@ -269,6 +271,59 @@ public class GlyphPositioningTable extends GlyphTable {
     }
   }
 
+  /**
+   * Collect the horizontal pair adjustments (the x advance of the first glyph) of the pair
+   * positioning lookups of a feature, such as "kern", without running the positioning of a glyph
+   * sequence. As in {@link #position}, the first subtable of a lookup that matches a pair
+   * applies; each lookup reports its pairs separately.
+   *
+   * @param script
+   *     a script identifier
+   * @param language
+   *     a language identifier
+   * @param feature
+   *     a feature identifier
+   * @param numGlyphs
+   *     the number of glyphs in the font
+   * @param collector
+   *     receives the pairs
+   */
+  public void collectPairAdjustments(String script, String language, String feature, int numGlyphs,
+                                     PairAdjustmentCollector collector) {
+    Map<LookupSpec, List<LookupTable>> lookups = matchLookups(script, language, feature);
+    Set<LookupTable> tables = new TreeSet<>(); // lookup order, each lookup once
+    for (List<LookupTable> lts : lookups.values()) {
+      tables.addAll(lts);
+    }
+    for (LookupTable lt : tables) {
+      GlyphSubtable[] sta = lt.getSubtables();
+      for (int i = 0; i < sta.length; i++) {
+        if (sta[i] instanceof PairSubtable) {
+          ((PairSubtable) sta[i]).collectPairs(sta, i, numGlyphs, collector);
+        }
+      }
+    }
+  }
+
+  /**
+   * Receives the pairs found by {@link #collectPairAdjustments}.
+   */
+  public interface PairAdjustmentCollector {
+
+    /**
+     * Called for each pair with a non-zero adjustment.
+     *
+     * @param glyph1
+     *     the first glyph of the pair
+     * @param glyph2
+     *     the second glyph of the pair
+     * @param xAdvance
+     *     the x advance adjustment of the first glyph as decoded from the value record, which the
+     *     table reader has already converted to 1/1000 of the em, the units of the "kern" table
+     */
+    void addPair(int glyph1, int glyph2, int xAdvance);
+  }
+
   private abstract static class SingleSubtable extends GlyphPositioningSubtable {
 
     SingleSubtable(String id, int sequence, int flags, int format, GlyphCoverageTable coverage, List entries) {
@@ -388,10 +443,8 @@ public class GlyphPositioningTable extends GlyphTable {
     /** {@inheritDoc} */
     public List getEntries() {
       if (values != null) {
-        List entries = new ArrayList(values.length);
-        for (int i = 0, n = values.length; i < n; i++) {
-          entries.add(values[i]);
-        }
+        List entries = new ArrayList(1);
+        entries.add(values);
         return entries;
       } else {
         return null;
@@ -519,6 +572,38 @@ public class GlyphPositioningTable extends GlyphTable {
      */
     public abstract PairValues getPairValues(int ci, int gi1, int gi2);
 
+    /**
+     * Report the pairs of this subtable that are not matched by an earlier subtable of the lookup.
+     *
+     * @param sta
+     *     the subtables of the lookup
+     * @param index
+     *     the index of this subtable in sta
+     * @param numGlyphs
+     *     the number of glyphs in the font
+     * @param collector
+     *     receives the pairs
+     */
+    abstract void collectPairs(GlyphSubtable[] sta, int index, int numGlyphs, PairAdjustmentCollector collector);
+
+    void collectPair(GlyphSubtable[] sta, int index, int gi1, int gi2, PairValues pv,
+                     PairAdjustmentCollector collector) {
+      Value v1 = pv.getValue1();
+      if ((v1 == null) || (v1.getXAdvance() == 0)) {
+        return;
+      }
+      for (int i = 0; i < index; i++) {
+        if (sta[i] instanceof PairSubtable) {
+          PairSubtable st = (PairSubtable) sta[i];
+          int ci = st.getCoverageIndex(gi1);
+          if ((ci >= 0) && (st.getPairValues(ci, gi1, gi2) != null)) {
+            return;
+          }
+        }
+      }
+      collector.addPair(gi1, gi2, v1.getXAdvance());
+    }
+
     static GlyphPositioningSubtable create(String id, int sequence, int flags, int format, GlyphCoverageTable coverage,
                                            List entries) {
       if (format == 1) {
@@ -572,6 +657,23 @@ public class GlyphPositioningTable extends GlyphTable {
       return null;
     }
 
+    /** {@inheritDoc} */
+    void collectPairs(GlyphSubtable[] sta, int index, int numGlyphs, PairAdjustmentCollector collector) {
+      if (pvm == null) {
+        return;
+      }
+      for (int gi1 = 0; gi1 < numGlyphs; gi1++) {
+        int ci = getCoverageIndex(gi1);
+        if ((ci >= 0) && (ci < pvm.length) && (pvm[ci] != null)) {
+          for (PairValues pv : pvm[ci]) {
+            if (pv != null) {
+              collectPair(sta, index, gi1, pv.getGlyph(), pv, collector);
+            }
+          }
+        }
+      }
+    }
+
     private void populate(List entries) {
       if (entries == null) {
         throw new AdvancedTypographicTableFormatException("illegal entries, must be non-null");
@@ -636,6 +738,50 @@ public class GlyphPositioningTable extends GlyphTable {
       return null;
     }
 
+    /** {@inheritDoc} */
+    void collectPairs(GlyphSubtable[] sta, int index, int numGlyphs, PairAdjustmentCollector collector) {
+      if (pvm == null) {
+        return;
+      }
+      // second glyphs by class
+      int[] counts = new int[nc2 + 1];
+      int[] classes = new int[numGlyphs];
+      for (int gi = 0; gi < numGlyphs; gi++) {
+        int c2 = cdt2.getClassIndex(gi, 0);
+        classes[gi] = ((c2 >= 0) && (c2 < nc2)) ? c2 : -1;
+        if (classes[gi] >= 0) {
+          counts[classes[gi] + 1]++;
+        }
+      }
+      for (int c = 0; c < nc2; c++) {
+        counts[c + 1] += counts[c];
+      }
+      int[] glyphs = new int[counts[nc2]];
+      int[] next = new int[nc2];
+      System.arraycopy(counts, 0, next, 0, nc2);
+      for (int gi = 0; gi < numGlyphs; gi++) {
+        if (classes[gi] >= 0) {
+          glyphs[next[classes[gi]]++] = gi;
+        }
+      }
+      for (int gi1 = 0; gi1 < numGlyphs; gi1++) {
+        if (getCoverageIndex(gi1) < 0) {
+          continue;
+        }
+        int c1 = cdt1.getClassIndex(gi1, 0);
+        if ((c1 >= 0) && (c1 < nc1) && (c1 < pvm.length) && (pvm[c1] != null)) {
+          PairValues[] pvt = pvm[c1];
+          for (int c2 = 0, n = Math.min(nc2, pvt.length); c2 < n; c2++) {
+            if (pvt[c2] != null) {
+              for (int j = counts[c2]; j < counts[c2 + 1]; j++) {
+                collectPair(sta, index, gi1, glyphs[j], pvt[c2], collector);
+              }
+            }
+          }
+        }
+      }
+    }
+
     private void populate(List entries) {
       if (entries == null) {
         throw new AdvancedTypographicTableFormatException("illegal entries, must be non-null");
@@ -18,15 +18,12 @@
 package com.jaredrummler.fontreader.complexscripts.fonts;
 
 import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
+import com.jaredrummler.fontreader.util.GlyphBuffer;
 import com.jaredrummler.fontreader.util.GlyphSequence;
 import com.jaredrummler.fontreader.fonts.GlyphSubtable;
 import com.jaredrummler.fontreader.util.GlyphTester;
 import com.jaredrummler.fontreader.util.ScriptContextTester;
 
-import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>The <code>GlyphProcessingState</code> implements a common, base state object used during glyph substitution
  * and positioning processing.</p>
@@ -60,11 +57,28 @@ public class GlyphProcessingState {
   /** glyph context tester or null */
   protected GlyphContextTester gct;
   /** ignore base glyph tester */
-  protected GlyphTester ignoreBase;
+  protected GlyphTester ignoreBase = new GlyphTester() {
+
+    public boolean test(int gi, int flags) {
+      return isIgnoredBase(gi, flags);
+    }
+  };
   /** ignore ligature glyph tester */
-  protected GlyphTester ignoreLigature;
+  protected GlyphTester ignoreLigature = new GlyphTester() {
+
+    public boolean test(int gi, int flags) {
+      return isIgnoredLigature(gi, flags);
+    }
+  };
   /** ignore mark glyph tester */
-  protected GlyphTester ignoreMark;
+  protected GlyphTester ignoreMark = new GlyphTester() {
+
+    public boolean test(int gi, int flags) {
+      return isIgnoredMark(gi, flags);
+    }
+  };
+  /** combined ignore testers, indexed by ignore flags, created on first use and kept across resets */
+  private GlyphTester[] combinedIgnoreTesters;
   /** default ignore glyph tester */
   protected GlyphTester ignoreDefault;
   /** current subtable */
@@ -99,24 +113,6 @@ public class GlyphProcessingState {
     this.indexLast = gs.getGlyphCount();
     this.sct = sct;
     this.gct = (sct != null) ? sct.getTester(feature) : null;
-    this.ignoreBase = new GlyphTester() {
-
-      public boolean test(int gi, int flags) {
-        return isIgnoredBase(gi, flags);
-      }
-    };
-    this.ignoreLigature = new GlyphTester() {
-
-      public boolean test(int gi, int flags) {
-        return isIgnoredLigature(gi, flags);
-      }
-    };
-    this.ignoreMark = new GlyphTester() {
-
-      public boolean test(int gi, int flags) {
-        return isIgnoredMark(gi, flags);
-      }
-    };
   }
 
   /**
@@ -160,24 +156,6 @@ public class GlyphProcessingState {
     this.classMatchSet = 0; // @SuppressFBWarnings("URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
     this.sct = sct;
     this.gct = (sct != null) ? sct.getTester(feature) : null;
-    this.ignoreBase = new GlyphTester() {
-
-      public boolean test(int gi, int flags) {
-        return isIgnoredBase(gi, flags);
-      }
-    };
-    this.ignoreLigature = new GlyphTester() {
-
-      public boolean test(int gi, int flags) {
-        return isIgnoredLigature(gi, flags);
-      }
-    };
-    this.ignoreMark = new GlyphTester() {
-
-      public boolean test(int gi, int flags) {
-        return isIgnoredMark(gi, flags);
-      }
-    };
     this.ignoreDefault = null;
     this.subtable = null;
     return this;
@@ -1074,24 +1052,14 @@ public class GlyphProcessingState {
       gsCount = nrg - gsOffset;
     }
     int ng = nig + gsCount - count;
-    IntBuffer gb = IntBuffer.allocate(ng);
-    List al = new ArrayList(ng);
-    for (int i = 0, n = position; i < n; i++) {
-      gb.put(igs.getGlyph(i));
-      al.add(igs.getAssociation(i));
-    }
-    for (int i = gsOffset, n = gsOffset + gsCount; i < n; i++) {
-      gb.put(gs.getGlyph(i));
-      al.add(gs.getAssociation(i));
-    }
-    for (int i = position + count, n = nig; i < n; i++) {
-      gb.put(igs.getGlyph(i));
-      al.add(igs.getAssociation(i));
-    }
-    gb.flip();
-    if (igs.compareGlyphs(gb) != 0) {
-      this.igs = new GlyphSequence(igs.getCharacters(), gb, al);
-      this.indexLast = gb.limit();
+    GlyphBuffer gb = new GlyphBuffer(ng);
+    gb.add(igs, 0, position);
+    gb.add(gs, gsOffset, gsOffset + gsCount);
+    gb.add(igs, position + count, nig);
+    GlyphSequence ngs = gb.toGlyphSequence(igs.getCharacters(), false);
+    if (igs.compareGlyphs(ngs.getGlyphs()) != 0) {
+      this.igs = ngs;
+      this.indexLast = ngs.getGlyphCount();
       return true;
     } else {
       return false;
@@ -1281,26 +1249,40 @@ public class GlyphProcessingState {
       if ((flags & (GlyphSubtable.LF_IGNORE_LIGATURE | GlyphSubtable.LF_IGNORE_MARK)) == 0) {
         return ignoreBase;
       } else {
-        return getCombinedIgnoreTester(flags);
+        return getCachedCombinedIgnoreTester(flags);
       }
     }
     if ((flags & GlyphSubtable.LF_IGNORE_LIGATURE) != 0) {
       if ((flags & (GlyphSubtable.LF_IGNORE_BASE | GlyphSubtable.LF_IGNORE_MARK)) == 0) {
         return ignoreLigature;
       } else {
-        return getCombinedIgnoreTester(flags);
+        return getCachedCombinedIgnoreTester(flags);
       }
     }
     if ((flags & GlyphSubtable.LF_IGNORE_MARK) != 0) {
       if ((flags & (GlyphSubtable.LF_IGNORE_BASE | GlyphSubtable.LF_IGNORE_LIGATURE)) == 0) {
         return ignoreMark;
       } else {
-        return getCombinedIgnoreTester(flags);
+        return getCachedCombinedIgnoreTester(flags);
       }
     }
     return null;
   }
 
+  private GlyphTester getCachedCombinedIgnoreTester(int flags) {
+    int k = (flags & (GlyphSubtable.LF_IGNORE_BASE | GlyphSubtable.LF_IGNORE_LIGATURE
+        | GlyphSubtable.LF_IGNORE_MARK)) >> 1;
+    if (combinedIgnoreTesters == null) {
+      combinedIgnoreTesters = new GlyphTester[8];
+    }
+    GlyphTester gt = combinedIgnoreTesters[k];
+    if (gt == null) {
+      gt = getCombinedIgnoreTester(flags);
+      combinedIgnoreTesters[k] = gt;
+    }
+    return gt;
+  }
+
   /**
    * Obtain an ignored glyph tester that corresponds to the specified multiple (combined) lookup flags.
    *
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.complexscripts.fonts;
+
+import com.jaredrummler.fontreader.complexscripts.scripts.ScriptProcessor;
+import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable;
+import com.jaredrummler.fontreader.truetype.GlyphTable;
+import com.jaredrummler.fontreader.util.GlyphSequence;
+import com.jaredrummler.fontreader.util.ScriptContextTester;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The lookups to apply when shaping text of one script and language with a font, resolved
+ * once. {@link GlyphSubstitutionTable#substitute(GlyphSequence, String, String)} and
+ * {@link GlyphPositioningTable#position(GlyphSequence, String, String, int, int[], int[][])}
+ * match the lookups of the script and language and order them by lookup list index on every
+ * call; a plan holds the ordered lookups, so shaping a string only runs them.</p>
+ *
+ * <p>A plan is immutable and may be shared by any number of threads. Fonts cache their plans,
+ * see {@link com.jaredrummler.fontreader.truetype.OpenFont#getShapingPlan(String, String)}.</p>
+ */
+public final class ShapingPlan {
+
+  private final String script;
+  private final String language;
+  private final ScriptProcessor processor;
+  // null if the tables have no lookups for the script and language, so shaping is skipped
+  private final GlyphTable.UseSpec[] substitutions;
+  private final GlyphTable.UseSpec[] positionings;
+  private final ScriptContextTester substitutionContextTester;
+  private final ScriptContextTester positioningContextTester;
+
+  private ShapingPlan(String script, String language, ScriptProcessor processor,
+                      GlyphTable.UseSpec[] substitutions, GlyphTable.UseSpec[] positionings) {
+    this.script = script;
+    this.language = language;
+    this.processor = processor;
+    this.substitutions = substitutions;
+    this.positionings = positionings;
+    this.substitutionContextTester = processor.getSubstitutionContextTester();
+    this.positioningContextTester = processor.getPositioningContextTester();
+  }
+
+  /**
+   * Resolves the lookups of a script and language.
+   *
+   * @param gsub
+   *     the glyph substitution table, or null
+   * @param gpos
+   *     the glyph positioning table, or null
+   * @param script
+   *     a script identifier
+   * @param language
+   *     a language identifier
+   * @param features
+   *     the features to apply, or null for the features the script processor applies by default
+   * @return the plan
+   */
+  public static ShapingPlan compile(GlyphSubstitutionTable gsub, GlyphPositioningTable gpos,
+                                    String script, String language, String[] features) {
+    ScriptProcessor sp = ScriptProcessor.getInstance(script);
+    return new ShapingPlan(script, language, sp,
+        assemble(gsub, script, language, features != null ? features : sp.getSubstitutionFeatures()),
+        assemble(gpos, script, language, features != null ? features : sp.getPositioningFeatures()));
+  }
+
+  private static GlyphTable.UseSpec[] assemble(GlyphTable table, String script, String language,
+                                               String[] features) {
+    if (table == null) {
+      return null;
+    }
+    Map<GlyphTable.LookupSpec, List<GlyphTable.LookupTable>> lookups =
+        table.matchLookups(script, language, "*");
+    if (lookups == null || lookups.isEmpty()) {
+      return null;
+    }
+    return table.assembleLookups(features != null ? features : new String[0], lookups);
+  }
+
+  /** @return the script identifier */
+  public String getScript() {
+    return script;
+  }
+
+  /** @return the language identifier */
+  public String getLanguage() {
+    return language;
+  }
+
+  /**
+   * Checks if the plan substitutes glyphs.
+   *
+   * @return true if the GSUB table has lookups for the script and language
+   */
+  public boolean performsSubstitution() {
+    return substitutions != null;
+  }
+
+  /**
+   * Checks if the plan positions glyphs.
+   *
+   * @return true if the GPOS table has lookups for the script and language
+   */
+  public boolean performsPositioning() {
+    return positionings != null;
+  }
+
+  /**
+   * Perform substitution processing with the lookups of this plan.
+   *
+   * @param gs
+   *     an input glyph sequence
+   * @return the substituted (output) glyph sequence
+   */
+  public GlyphSequence substitute(GlyphSequence gs) {
+    if (substitutions == null) {
+      return gs;
+    }
+    return processor.substitute(gs, script, language, substitutions, substitutionContextTester);
+  }
+
+  /**
+   * Perform positioning processing with the lookups of this plan.
+   *
+   * @param gs
+   *     an input glyph sequence
+   * @param fontSize
+   *     size in device units
+   * @param widths
+   *     array of default advancements for each glyph
+   * @param adjustments
+   *     accumulated adjustments array (sequence) of 4-tuples of placement [PX,PY] and advance
+   *     [AX,AY] adjustments, in that order, with one 4-tuple for each element of glyph sequence
+   * @return true if some adjustment is not zero; otherwise, false
+   */
+  public boolean position(GlyphSequence gs, int fontSize, int[] widths, int[][] adjustments) {
+    if (positionings == null) {
+      return false;
+    }
+    return processor.position(gs, script, language, fontSize, positionings, widths, adjustments,
+        positioningContextTester);
+  }
+
+}
@@ -19,7 +19,6 @@ package com.jaredrummler.fontreader.complexscripts.scripts;
 
 import com.jaredrummler.fontreader.complexscripts.bidi.BidiClass;
 import com.jaredrummler.fontreader.complexscripts.bidi.BidiConstants;
-import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
 import com.jaredrummler.fontreader.util.CharUtilities;
 import com.jaredrummler.fontreader.util.GlyphSequence;
 import com.jaredrummler.fontreader.util.ScriptContextTester;
@@ -149,14 +148,13 @@ public class ArabicScriptProcessor extends DefaultScriptProcessor {
 
   private static boolean inFinalContext(String script, String language, String feature, GlyphSequence gs, int index,
                                         int flags) {
-    CharAssociation a = gs.getAssociation(index);
     int[] ca = gs.getCharacterArray(false);
     int nc = gs.getCharacterCount();
     if (nc == 0) {
       return false;
     } else {
-      int s = a.getStart();
-      int e = a.getEnd();
+      int s = gs.getClusterStart(index);
+      int e = s + gs.getClusterLength(index);
       if (!hasFinalPrecedingContext(ca, nc, s, e)) {
         return false;
       } else if (!hasFinalThisContext(ca, nc, s, e)) {
@@ -169,14 +167,13 @@ public class ArabicScriptProcessor extends DefaultScriptProcessor {
 
   private static boolean inInitialContext(String script, String language, String feature, GlyphSequence gs, int index,
                                           int flags) {
-    CharAssociation a = gs.getAssociation(index);
     int[] ca = gs.getCharacterArray(false);
     int nc = gs.getCharacterCount();
     if (nc == 0) {
       return false;
     } else {
-      int s = a.getStart();
-      int e = a.getEnd();
+      int s = gs.getClusterStart(index);
+      int e = s + gs.getClusterLength(index);
       if (!hasInitialPrecedingContext(ca, nc, s, e)) {
         return false;
       } else if (!hasInitialThisContext(ca, nc, s, e)) {
@@ -187,23 +184,21 @@ public class ArabicScriptProcessor extends DefaultScriptProcessor {
 
   private static boolean inIsolateContext(String script, String language, String feature, GlyphSequence gs, int index,
                                           int flags) {
-    CharAssociation a = gs.getAssociation(index);
     int nc = gs.getCharacterCount();
     if (nc == 0) {
       return false;
-    } else return (a.getStart() == 0) && (a.getEnd() == nc);
+    } else return (gs.getClusterStart(index) == 0) && (gs.getClusterLength(index) == nc);
   }
 
   private static boolean inLigatureContext(String script, String language, String feature, GlyphSequence gs, int index,
                                            int flags) {
-    CharAssociation a = gs.getAssociation(index);
     int[] ca = gs.getCharacterArray(false);
     int nc = gs.getCharacterCount();
     if (nc == 0) {
       return false;
     } else {
-      int s = a.getStart();
-      int e = a.getEnd();
+      int s = gs.getClusterStart(index);
+      int e = s + gs.getClusterLength(index);
       if (!hasLigaturePrecedingContext(ca, nc, s, e)) {
         return false;
       } else return hasLigatureSucceedingContext(ca, nc, s, e);
@@ -212,14 +207,13 @@ public class ArabicScriptProcessor extends DefaultScriptProcessor {
 
   private static boolean inMedialContext(String script, String language, String feature, GlyphSequence gs, int index,
                                          int flags) {
-    CharAssociation a = gs.getAssociation(index);
     int[] ca = gs.getCharacterArray(false);
     int nc = gs.getCharacterCount();
     if (nc == 0) {
       return false;
     } else {
-      int s = a.getStart();
-      int e = a.getEnd();
+      int s = gs.getClusterStart(index);
+      int e = s + gs.getClusterLength(index);
       if (!hasMedialPrecedingContext(ca, nc, s, e)) {
         return false;
       } else if (!hasMedialThisContext(ca, nc, s, e)) {
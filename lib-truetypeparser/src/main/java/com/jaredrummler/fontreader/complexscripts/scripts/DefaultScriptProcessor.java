@@ -17,7 +17,7 @@
 
 package com.jaredrummler.fontreader.complexscripts.scripts;
 
-import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
+import com.jaredrummler.fontreader.util.GlyphBuffer;
 import com.jaredrummler.fontreader.util.GlyphSequence;
 import com.jaredrummler.fontreader.util.ScriptContextTester;
 import com.jaredrummler.fontreader.complexscripts.fonts.GlyphDefinitionTable;
@@ -90,49 +90,33 @@ public class DefaultScriptProcessor extends ScriptProcessor {
     }
     // only reorder if there is at least one mark and at least one non-mark glyph
     if ((nm > 0) && ((ng - nm) > 0)) {
-      CharAssociation[] aa = gs.getAssociations(0, -1);
-      int[] nga = new int[ng];
+      GlyphBuffer gb = new GlyphBuffer(ng);
       int[][] npa = (gpa != null) ? new int[ng][] : null;
-      CharAssociation[] naa = new CharAssociation[ng];
       int k = 0;
-      CharAssociation ba = null;
-      int bg = -1;
-      int[] bpa = null;
+      int bi = -1;
       for (int i = 0; i < ng; i++) {
-        int gid = ga[i];
         int[] pa = (gpa != null) ? gpa[i] : null;
-        CharAssociation ca = aa[i];
         if (isReorderedMark(gdef, ga, unscaledWidths, i)) {
-          nga[k] = gid;
-          naa[k] = ca;
+          gb.add(ga[i], gs, i);
           if (npa != null) {
             npa[k] = pa;
           }
           k++;
         } else {
-          if (bg != -1) {
-            nga[k] = bg;
-            naa[k] = ba;
+          if (bi != -1) {
+            gb.add(ga[bi], gs, bi);
             if (npa != null) {
-              npa[k] = bpa;
+              npa[k] = gpa[bi];
             }
             k++;
-            bg = -1;
-            ba = null;
-            bpa = null;
-          }
-          if (bg == -1) {
-            bg = gid;
-            ba = ca;
-            bpa = pa;
           }
+          bi = i;
         }
       }
-      if (bg != -1) {
-        nga[k] = bg;
-        naa[k] = ba;
+      if (bi != -1) {
+        gb.add(ga[bi], gs, bi);
         if (npa != null) {
-          npa[k] = bpa;
+          npa[k] = gpa[bi];
         }
         k++;
       }
@@ -140,7 +124,7 @@ public class DefaultScriptProcessor extends ScriptProcessor {
       if (npa != null) {
         System.arraycopy(npa, 0, gpa, 0, ng);
       }
-      return new GlyphSequence(gs, null, nga, null, null, naa, null);
+      return gb.toGlyphSequence(gs.getCharacters().duplicate(), gs.getPredications());
     } else {
       return gs;
     }
@@ -17,8 +17,8 @@
 
 package com.jaredrummler.fontreader.complexscripts.scripts;
 
-import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
 import com.jaredrummler.fontreader.complexscripts.util.CharScript;
+import com.jaredrummler.fontreader.util.GlyphBuffer;
 import com.jaredrummler.fontreader.util.GlyphSequence;
 import com.jaredrummler.fontreader.truetype.GlyphTable;
 import com.jaredrummler.fontreader.util.ScriptContextTester;
@@ -537,22 +537,18 @@ public class IndicScriptProcessor extends DefaultScriptProcessor {
     protected GlyphSequence[] segmentize(GlyphSequence gs, Segment[] sa) {
       int ng = gs.getGlyphCount();
       int[] ga = gs.getGlyphArray(false);
-      CharAssociation[] aa = gs.getAssociations(0, -1);
       Vector<GlyphSequence> nsv = new Vector<GlyphSequence>();
+      GlyphBuffer gb = new GlyphBuffer(ng);
       for (int i = 0, ns = sa.length; i < ns; i++) {
         Segment s = sa[i];
-        Vector<Integer> ngv = new Vector<Integer>(ng);
-        Vector<CharAssociation> nav = new Vector<CharAssociation>(ng);
+        gb.clear();
         for (int j = 0; j < ng; j++) {
-          CharAssociation ca = aa[j];
-          if (ca.contained(s.getOffset(), s.getCount())) {
-            ngv.add(ga[j]);
-            nav.add(ca);
+          if (gs.isClusterContained(j, s.getOffset(), s.getCount())) {
+            gb.add(ga[j], gs, j);
           }
         }
-        if (ngv.size() > 0) {
-          nsv.add(new GlyphSequence(gs, null, toIntArray(ngv), null, null, nav.toArray(new CharAssociation[nav.size()]),
-              null));
+        if (gb.size() > 0) {
+          nsv.add(gb.toGlyphSequence(gs.getCharacters().duplicate(), gs.getPredications()));
         }
       }
       if (nsv.size() > 0) {
@@ -591,15 +587,6 @@ public class IndicScriptProcessor extends DefaultScriptProcessor {
     protected int findEndOfSyllable(int[] ca, int s, int e) {
       return s;
     }
-
-    private static int[] toIntArray(Vector<Integer> iv) {
-      int ni = iv.size();
-      int[] ia = new int[iv.size()];
-      for (int i = 0, n = ni; i < n; i++) {
-        ia[i] = iv.get(i);
-      }
-      return ia;
-    }
   }
 
   /** Syllabic segment. */
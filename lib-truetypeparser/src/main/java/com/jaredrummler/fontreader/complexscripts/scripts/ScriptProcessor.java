@@ -26,8 +26,9 @@ import com.jaredrummler.fontreader.util.GlyphSequence;
 import com.jaredrummler.fontreader.util.ScriptContextTester;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>Abstract script processor base class for which an implementation of the substitution and positioning methods
@@ -41,7 +42,7 @@ public abstract class ScriptProcessor {
 
   private final Map<AssembledLookupsKey, GlyphTable.UseSpec[]> assembledLookups;
 
-  private static Map<String, ScriptProcessor> processors = new HashMap<String, ScriptProcessor>();
+  private static final ConcurrentMap<String, ScriptProcessor> processors = new ConcurrentHashMap<>();
 
   /**
    * Instantiate a script processor.
@@ -54,7 +55,7 @@ public abstract class ScriptProcessor {
       throw new IllegalArgumentException("script must be non-empty string");
     } else {
       this.script = script;
-      this.assembledLookups = new HashMap<>();
+      this.assembledLookups = new ConcurrentHashMap<>();
     }
   }
 
@@ -287,11 +288,14 @@ public abstract class ScriptProcessor {
    *     a script identifier
    * @return a script processor instance or null if none found
    */
-  public static synchronized ScriptProcessor getInstance(String script) {
-    ScriptProcessor sp = null;
-    assert processors != null;
-    if ((sp = processors.get(script)) == null) {
-      processors.put(script, sp = createProcessor(script));
+  public static ScriptProcessor getInstance(String script) {
+    ScriptProcessor sp = processors.get(script);
+    if (sp == null) {
+      ScriptProcessor created = createProcessor(script);
+      sp = processors.putIfAbsent(script, created);
+      if (sp == null) {
+        sp = created;
+      }
     }
     return sp;
   }
@@ -19,7 +19,6 @@ package com.jaredrummler.fontreader.complexscripts.scripts;
 
 // CSOFF: LineLengthCheck
 
-import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
 import com.jaredrummler.fontreader.util.GlyphSequence;
 
 /**
@@ -75,9 +74,8 @@ public class TamilScriptProcessor extends IndicScriptProcessor {
   }
 
   private static boolean containsPreBaseMatra(GlyphSequence gs, int k) {
-    CharAssociation a = gs.getAssociation(k);
     int[] ca = gs.getCharacterArray(false);
-    for (int i = a.getStart(), e = a.getEnd(); i < e; i++) {
+    for (int i = gs.getClusterStart(k), e = i + gs.getClusterLength(k); i < e; i++) {
       if (isPreM(ca[i])) {
         return true;
       }
@@ -86,9 +84,8 @@ public class TamilScriptProcessor extends IndicScriptProcessor {
   }
 
   private static boolean containsConsonant(GlyphSequence gs, int k) {
-    CharAssociation a = gs.getAssociation(k);
     int[] ca = gs.getCharacterArray(false);
-    for (int i = a.getStart(), e = a.getEnd(); i < e; i++) {
+    for (int i = gs.getClusterStart(k), e = i + gs.getClusterLength(k); i < e; i++) {
       if (isC(ca[i])) {
         return true;
       }
@@ -97,8 +94,7 @@ public class TamilScriptProcessor extends IndicScriptProcessor {
   }
 
   private static boolean containsHalfConsonant(GlyphSequence gs, int k) {
-    Boolean half = (Boolean) gs.getAssociation(k).getPredication("half");
-    return (half != null) ? half.booleanValue() : false;
+    return gs.hasPredication(k, "half");
   }
 
   @Override
@@ -147,14 +143,12 @@ public class TamilScriptProcessor extends IndicScriptProcessor {
   }
 
   private static boolean containsReph(GlyphSequence gs, int k) {
-    Boolean rphf = (Boolean) gs.getAssociation(k).getPredication("rphf");
-    return (rphf != null) ? rphf.booleanValue() : false;
+    return gs.hasPredication(k, "rphf");
   }
 
   private static boolean containsMatra(GlyphSequence gs, int k) {
-    CharAssociation a = gs.getAssociation(k);
     int[] ca = gs.getCharacterArray(false);
-    for (int i = a.getStart(), e = a.getEnd(); i < e; i++) {
+    for (int i = gs.getClusterStart(k), e = i + gs.getClusterLength(k); i < e; i++) {
       if (isM(ca[i])) {
         return true;
       }
@@ -163,9 +157,8 @@ public class TamilScriptProcessor extends IndicScriptProcessor {
   }
 
   private static boolean containsOtherMark(GlyphSequence gs, int k) {
-    CharAssociation a = gs.getAssociation(k);
     int[] ca = gs.getCharacterArray(false);
-    for (int i = a.getStart(), e = a.getEnd(); i < e; i++) {
+    for (int i = gs.getClusterStart(k), e = i + gs.getClusterLength(k); i < e; i++) {
       switch (typeOf(ca[i])) {
         case C_T:   // tone (e.g., udatta, anudatta)
         case C_A:   // accent (e.g., acute, grave)
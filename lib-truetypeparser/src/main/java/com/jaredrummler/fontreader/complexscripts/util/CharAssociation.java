@@ -25,7 +25,9 @@ import java.util.Map;
  * Unicode scalar values (in an IntBuffer). A <code>CharAssociation</code> is used to maintain a
  * backpointer from a glyph to one or more character intervals from which the glyph was derived.
  *
- * Each glyph in a glyph sequence is associated with a single <code>CharAssociation</code> instance.
+ * Each glyph in a glyph sequence is associated with a single <code>CharAssociation</code>, which the
+ * sequence stores packed unless it is disjoint or has predications other than those with a bit
+ * (see {@link #getPredicationFlag(String)}).
  *
  * A <code>CharAssociation</code> instance is additionally (and optionally) used to record
  * predication information about the glyph, such as whether the glyph was produced by the
@@ -45,6 +47,28 @@ public class CharAssociation implements Cloneable {
   // class state
   private static volatile Map<String, PredicationMerger> predicationMergers;
 
+  /**
+   * Predication keys that a glyph sequence can store as one bit per glyph instead of keeping an
+   * association object, in bit order. These are the substitution features of the Arabic and Indic
+   * script processors, whose predications are always <code>Boolean.TRUE</code>.
+   */
+  private static final String[] FLAGGED_PREDICATIONS = {
+      "abvf", "akhn", "blwf", "cjct", "half", "locl", "nukt", "pref", "pstf", "rkrf", "rphf", "vatu",
+      "abvs", "blws", "calt", "haln", "pres", "psts",
+      "ccmp", "fina", "init", "isol", "liga", "medi", "rlig"
+  };
+
+  /** The bit of each key of {@link #FLAGGED_PREDICATIONS}. */
+  private static final Map<String, Integer> PREDICATION_FLAGS;
+
+  static {
+    Map<String, Integer> flags = new HashMap<>();
+    for (int i = 0, n = FLAGGED_PREDICATIONS.length; i < n; i++) {
+      flags.put(FLAGGED_PREDICATIONS[i], 1 << i);
+    }
+    PREDICATION_FLAGS = flags;
+  }
+
   interface PredicationMerger {
 
     Object merge(String key, Object v1, Object v2);
@@ -186,6 +210,77 @@ public class CharAssociation implements Cloneable {
     }
   }
 
+  /**
+   * Obtain the bit used to store a predication in a packed association.
+   *
+   * @param key
+   *     predication key
+   * @return the bit of the key, or zero if the key has no bit
+   */
+  public static int getPredicationFlag(String key) {
+    Integer flag = PREDICATION_FLAGS.get(key);
+    return (flag != null) ? flag : 0;
+  }
+
+  /**
+   * Determine if this association can be stored packed, as its interval and predication bits. This
+   * is the case if it is not disjoint and each of its predications has a bit and is true.
+   *
+   * @return true if this association can be packed
+   */
+  public boolean isPackable() {
+    if (subIntervals != null) {
+      return false;
+    }
+    if (predications != null) {
+      for (Map.Entry<String, Object> e : predications.entrySet()) {
+        if ((getPredicationFlag(e.getKey()) == 0) || !Boolean.TRUE.equals(e.getValue())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Obtain the bits of those predications of this association that have a bit and are true.
+   *
+   * @return predication bits
+   */
+  public int getPredicationFlags() {
+    int flags = 0;
+    if (predications != null) {
+      for (Map.Entry<String, Object> e : predications.entrySet()) {
+        if (Boolean.TRUE.equals(e.getValue())) {
+          flags |= getPredicationFlag(e.getKey());
+        }
+      }
+    }
+    return flags;
+  }
+
+  /**
+   * Instantiate a non-disjoint association from its packed form.
+   *
+   * @param offset
+   *     start of association interval
+   * @param count
+   *     number of character codes in association
+   * @param flags
+   *     predication bits, each of which is set as a true predication
+   * @return a new association
+   */
+  public static CharAssociation unpack(int offset, int count, int flags) {
+    CharAssociation ca = new CharAssociation(offset, count);
+    for (int i = 0, n = FLAGGED_PREDICATIONS.length; (flags != 0) && (i < n); i++) {
+      if ((flags & (1 << i)) != 0) {
+        ca.setPredication(FLAGGED_PREDICATIONS[i], Boolean.TRUE);
+        flags &= ~(1 << i);
+      }
+    }
+    return ca;
+  }
+
   /**
    * Merge predication <KEY,VALUE>.
    *
@@ -291,6 +386,16 @@ public class CharAssociation implements Cloneable {
     }
   }
 
+  /**
+   * Determine if a predication merger is registered for any key. If none is, joining associations
+   * merges predications that are all true into true, so their bits can simply be combined.
+   *
+   * @return true if some predication merger is registered
+   */
+  public static boolean hasPredicationMergers() {
+    return predicationMergers != null;
+  }
+
   /**
    * Replicate association to form <code>repeat</code> new associations.
    *
@@ -390,8 +390,9 @@ public class Font implements Substitutable, Positionable {
   public int getCharWidth(int c) {
     if (c < 0x10000) {
       return getCharWidth((char) c);
+    } else if (metric instanceof Typeface && ((Typeface) metric).hasCodePoint(c)) {
+      return getWidth(((Typeface) metric).mapCodePoint(c));
     } else {
-      // TODO !BMP
       return -1;
     }
   }
@@ -20,13 +20,11 @@ package com.jaredrummler.fontreader.fonts;
 import com.jaredrummler.fontreader.complexscripts.fonts.GlyphProcessingState;
 import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
 import com.jaredrummler.fontreader.truetype.GlyphTable;
+import com.jaredrummler.fontreader.util.GlyphBuffer;
 import com.jaredrummler.fontreader.util.GlyphSequence;
+import com.jaredrummler.fontreader.util.GlyphTester;
 import com.jaredrummler.fontreader.util.ScriptContextTester;
 
-import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>The <code>GlyphSubstitutionState</code> implements an state object used during glyph substitution
  * processing.</p>
@@ -37,12 +35,12 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
 
   /** alternates index */
   private int[] alternatesIndex;
-  /** current output glyph sequence */
-  private IntBuffer ogb;
-  /** current output glyph to character associations */
-  private List oal;
+  /** current output glyphs and associations, reused across resets */
+  private GlyphBuffer ogb;
   /** character association predications */
   private boolean predications;
+  /** indices of input glyphs selected by selectInput, reused across calls */
+  private int[] selected;
 
   /**
    * Construct default (reset) glyph substitution state.
@@ -67,8 +65,7 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
   public GlyphSubstitutionState(GlyphSequence gs, String script, String language, String feature,
                                 ScriptContextTester sct) {
     super(gs, script, language, feature, sct);
-    this.ogb = IntBuffer.allocate(gs.getGlyphCount());
-    this.oal = new ArrayList(gs.getGlyphCount());
+    this.ogb = new GlyphBuffer(gs.getGlyphCount());
     this.predications = gs.getPredications();
   }
 
@@ -81,8 +78,7 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
    */
   public GlyphSubstitutionState(GlyphSubstitutionState ss) {
     super(ss);
-    this.ogb = IntBuffer.allocate(indexLast);
-    this.oal = new ArrayList(indexLast);
+    this.ogb = new GlyphBuffer(indexLast);
   }
 
   /**
@@ -103,8 +99,11 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
                                       ScriptContextTester sct) {
     super.reset(gs, script, language, feature, sct);
     this.alternatesIndex = null;
-    this.ogb = IntBuffer.allocate(gs.getGlyphCount());
-    this.oal = new ArrayList(gs.getGlyphCount());
+    if (ogb == null) {
+      ogb = new GlyphBuffer(gs.getGlyphCount());
+    } else {
+      ogb.clear();
+    }
     this.predications = gs.getPredications();
     return this;
   }
@@ -151,14 +150,54 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
    *     a predication value to add to association A if predications enabled
    */
   public void putGlyph(int glyph, CharAssociation a, Object predication) {
-    if (!ogb.hasRemaining()) {
-      ogb = growBuffer(ogb);
-    }
-    ogb.put(glyph);
     if (predications && (predication != null)) {
       a.setPredication(feature, predication);
     }
-    oal.add(a);
+    ogb.add(glyph, a);
+  }
+
+  /**
+   * Put (write) glyph into glyph output buffer, associated with the same characters
+   * as the glyph at the current position.
+   *
+   * @param glyph
+   *     to write
+   * @param predication
+   *     a predication value to add to the association if predications enabled
+   */
+  public void putGlyph(int glyph, Object predication) {
+    ogb.add(glyph, igs, index);
+    putPredication(predication);
+  }
+
+  /**
+   * Put (write) ligature glyph into glyph output buffer, associated with the characters of the
+   * <code>nga</code> glyphs it replaces, followed by the <code>ngi</code> ignored glyphs among
+   * them, starting at the current position. This has the same effect as
+   * <code>putGlyph(glyph, CharAssociation.join(getAssociations(0, nga)), predication)</code>
+   * followed by <code>putGlyphs(getIgnoredGlyphs(0, ngi), getIgnoredAssociations(0, ngi), null)</code>,
+   * but only creates association objects if the ligature's association can not be packed.
+   *
+   * @param glyph
+   *     ligature glyph to write
+   * @param nga
+   *     number of component glyphs
+   * @param ngi
+   *     number of ignored glyphs
+   * @param predication
+   *     a predication value to add to the association if predications enabled
+   */
+  public void putLigature(int glyph, int nga, int ngi, Object predication) {
+    if ((selectInput(nga, ignoreDefault, false) == nga) && ogb.addJoined(glyph, igs, selected, nga)) {
+      putPredication(predication);
+    } else {
+      putGlyph(glyph, CharAssociation.join(getAssociations(0, nga)), predication);
+    }
+    if (ngi > 0) {
+      if (!putInput(ngi, ignoreDefault, true)) {
+        putGlyphs(getIgnoredGlyphs(0, ngi), getIgnoredAssociations(0, ngi), null);
+      }
+    }
   }
 
   /**
@@ -184,14 +223,13 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
    * Obtain output glyph sequence.
    *
    * @return newly constructed glyph sequence comprised of original
-   * characters, output glyphs, and output associations
+   * characters, output glyphs, and output associations, or the input
+   * sequence if the output is the same as the input and the input does
+   * not record predications (the output never does)
    */
   public GlyphSequence getOutput() {
-    int position = ogb.position();
-    if (position > 0) {
-      ogb.limit(position);
-      ogb.rewind();
-      return new GlyphSequence(igs.getCharacters(), ogb, oal);
+    if ((ogb.size() > 0) && (igs.getPredications() || !ogb.sameAs(igs))) {
+      return ogb.toGlyphSequence(igs.getCharacters(), false);
     } else {
       return igs;
     }
@@ -252,7 +290,9 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
         }
       }
       // output glyphs and associations
-      putGlyphs(getGlyphs(0, nog, false, null, null, null), getAssociations(0, nog, false, null, null, null), null);
+      if (!putInput(nog, null, false)) {
+        putGlyphs(getGlyphs(0, nog, false, null, null, null), getAssociations(0, nog, false, null, null, null), null);
+      }
       // consume replaced input glyphs
       consume(nog);
       return true;
@@ -269,16 +309,58 @@ public class GlyphSubstitutionState extends GlyphProcessingState {
     super.applyDefault();
     int gi = getGlyph();
     if (gi != 65535) {
-      putGlyph(gi, getAssociation(), null);
+      putGlyph(gi, null);
+    }
+  }
+
+  private void putPredication(Object predication) {
+    if (predications && (predication != null)) {
+      ogb.setPredication(ogb.size() - 1, feature, predication);
+    }
+  }
+
+  /**
+   * Put (write) the <code>count</code> input glyphs that <code>selectInput</code> selects into
+   * glyph output buffer with their associations.
+   *
+   * @return false, writing nothing, if fewer than <code>count</code> glyphs are selected
+   */
+  private boolean putInput(int count, GlyphTester ignoreTester, boolean ignored) {
+    if (selectInput(count, ignoreTester, ignored) == count) {
+      for (int k = 0; k < count; k++) {
+        int i = selected[k];
+        ogb.add(igs.getGlyph(i), igs, i);
+      }
+      return true;
+    } else {
+      return false;
     }
   }
 
-  private static IntBuffer growBuffer(IntBuffer ib) {
-    int capacity = ib.capacity();
-    int capacityNew = capacity * 2;
-    IntBuffer ibNew = IntBuffer.allocate(capacityNew);
-    ib.rewind();
-    return ibNew.put(ib);
+  /**
+   * Select up to <code>count</code> input glyphs, starting at the current position, in the same way
+   * as <code>getGlyphs</code> and <code>getIgnoredGlyphs</code> do: deleted glyphs are skipped and
+   * the others are selected if the ignore tester's result is <code>ignored</code>, a null tester
+   * ignoring none. The indices of the selected glyphs are stored in <code>selected</code>.
+   *
+   * @return number of glyphs selected
+   */
+  private int selectInput(int count, GlyphTester ignoreTester, boolean ignored) {
+    if ((selected == null) || (selected.length < count)) {
+      selected = new int[Math.max(count, 8)];
+    }
+    int flags = getLookupFlags();
+    int k = 0;
+    for (int i = index, n = indexLast; (i < n) && (k < count); i++) {
+      int gi = igs.getGlyph(i);
+      if (gi != 65535) {
+        boolean test = (ignoreTester != null) && ignoreTester.test(gi, flags);
+        if (test == ignored) {
+          selected[k++] = i;
+        }
+      }
+    }
+    return k;
   }
 
 }
@@ -32,7 +32,13 @@ import com.jaredrummler.fontreader.util.ScriptContextTester;
  */
 public abstract class GlyphSubstitutionSubtable extends GlyphSubtable implements GlyphSubstitution {
 
-  private static final GlyphSubstitutionState STATE = new GlyphSubstitutionState();
+  // substitution state reused by the calls of each thread
+  private static final ThreadLocal<GlyphSubstitutionState> STATE = new ThreadLocal<GlyphSubstitutionState>() {
+
+    @Override protected GlyphSubstitutionState initialValue() {
+      return new GlyphSubstitutionState();
+    }
+  };
 
   /**
    * Instantiate a <code>GlyphSubstitutionSubtable</code>.
@@ -139,9 +145,7 @@ public abstract class GlyphSubstitutionSubtable extends GlyphSubtable implements
    */
   public static final GlyphSequence substitute(GlyphSequence gs, String script, String language, String feature,
                                                GlyphSubstitutionSubtable[] sta, ScriptContextTester sct) {
-    synchronized (STATE) {
-      return substitute(STATE.reset(gs, script, language, feature, sct), sta, -1);
-    }
+    return substitute(STATE.get().reset(gs, script, language, feature, sct), sta, -1);
   }
 
 }
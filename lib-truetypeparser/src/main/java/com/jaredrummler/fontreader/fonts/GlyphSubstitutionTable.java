@@ -282,7 +282,7 @@ public class GlyphSubstitutionTable extends GlyphTable {
         if ((go < 0) || (go > 65535)) {
           go = 65535;
         }
-        ss.putGlyph(go, ss.getAssociation(), Boolean.TRUE);
+        ss.putGlyph(go, Boolean.TRUE);
         ss.consume(1);
         return true;
       }
@@ -551,7 +551,7 @@ public class GlyphSubstitutionTable extends GlyphTable {
         if ((go < 0) || (go > 65535)) {
           go = 65535;
         }
-        ss.putGlyph(go, ss.getAssociation(), Boolean.TRUE);
+        ss.putGlyph(go, Boolean.TRUE);
         ss.consume(1);
         return true;
       }
@@ -660,7 +660,8 @@ public class GlyphSubstitutionTable extends GlyphTable {
           int nga = counts[0];
           int ngi;
           if (nga > 1) {
-            int[] iga = ss.getGlyphs(0, nga, reverse, ignores, null, counts);
+            // no ligature in the set looks past its longest component sequence
+            int[] iga = ss.getGlyphs(0, Math.min(nga, ls.getMaxComponents()), reverse, ignores, null, counts);
             Ligature l = findLigature(ls, iga);
             if (l != null) {
               int go = l.getLigature();
@@ -672,14 +673,9 @@ public class GlyphSubstitutionTable extends GlyphTable {
               ss.getGlyphs(0, nmg, reverse, ignores, null, counts);
               nga = counts[0];
               ngi = counts[1];
-              // fetch associations of matched component glyphs
-              CharAssociation[] laa = ss.getAssociations(0, nga);
-              // output ligature glyph and its association
-              ss.putGlyph(go, CharAssociation.join(laa), Boolean.TRUE);
-              // fetch and output ignored glyphs (if necessary)
-              if (ngi > 0) {
-                ss.putGlyphs(ss.getIgnoredGlyphs(0, ngi), ss.getIgnoredAssociations(0, ngi), null);
-              }
+              // output ligature glyph with the joined association of the matched component glyphs,
+              // followed by ignored glyphs (if any)
+              ss.putLigature(go, nga, ngi, Boolean.TRUE);
               ss.consume(nga + ngi);
             }
           }
@@ -97,6 +97,56 @@ public final class OTFAdvancedTypographicTableReader {
     }
   }
 
+  /**
+   * Read a single advanced typographic table. Separate readers of the same font, each with its
+   * own {@link FontFileReader}, may read different tables concurrently and be combined with
+   * {@link #add(OTFAdvancedTypographicTableReader)}.
+   *
+   * @param tableTag
+   *     the GDEF, GSUB or GPOS table name
+   * @throws AdvancedTypographicTableFormatException
+   *     if ATT table has invalid format
+   */
+  public void read(OFTableName tableTag) throws AdvancedTypographicTableFormatException {
+    try {
+      if (OFTableName.GDEF.equals(tableTag)) {
+        readGDEF();
+      } else if (OFTableName.GSUB.equals(tableTag)) {
+        readGSUB();
+      } else if (OFTableName.GPOS.equals(tableTag)) {
+        readGPOS();
+      } else {
+        throw new IllegalArgumentException("Not an advanced typographic table: " + tableTag);
+      }
+    } catch (AdvancedTypographicTableFormatException e) {
+      resetATStateAll();
+      throw e;
+    } catch (IOException e) {
+      resetATStateAll();
+      throw new AdvancedTypographicTableFormatException(e.getMessage(), e);
+    } finally {
+      resetATState();
+    }
+  }
+
+  /**
+   * Take over the tables read by another reader of the same font.
+   *
+   * @param reader
+   *     a reader that read some of the tables this reader did not read
+   */
+  public void add(OTFAdvancedTypographicTableReader reader) {
+    if (reader.gdef != null) {
+      gdef = reader.gdef;
+    }
+    if (reader.gsub != null) {
+      gsub = reader.gsub;
+    }
+    if (reader.gpos != null) {
+      gpos = reader.gpos;
+    }
+  }
+
   /**
    * Determine if advanced (typographic) table is present.
    *
@@ -532,10 +582,9 @@ public final class OTFAdvancedTypographicTableReader {
     // read glyph count
     int ng = in.readTTFUShort();
     int[] ga = new int[ng];
+    in.readUShorts(ga, ng);
     for (int i = 0, n = ng; i < n; i++) {
-      int g = in.readTTFUShort();
-      ga[i] = g;
-      entries.add(Integer.valueOf(g));
+      entries.add(Integer.valueOf(ga[i]));
     }
     // dump info if debugging
     return GlyphCoverageTable.createCoverageTable(entries);
@@ -549,15 +598,12 @@ public final class OTFAdvancedTypographicTableReader {
     in.skip(2);
     // read range record count
     int nr = in.readTTFUShort();
-    for (int i = 0, n = nr; i < n; i++) {
-      // read range start
-      int s = in.readTTFUShort();
-      // read range end
-      int e = in.readTTFUShort();
-      // read range coverage (mapping) index
-      int m = in.readTTFUShort();
+    // read range records (start, end, coverage (mapping) index)
+    int[] ra = new int[nr * 3];
+    in.readUShorts(ra, ra.length);
+    for (int i = 0, n = ra.length; i < n; i += 3) {
       // dump info if debugging
-      entries.add(new GlyphCoverageTable.MappingRange(s, e, m));
+      entries.add(new GlyphCoverageTable.MappingRange(ra[i], ra[i + 1], ra[i + 2]));
     }
     return GlyphCoverageTable.createCoverageTable(entries);
   }
@@ -591,10 +637,9 @@ public final class OTFAdvancedTypographicTableReader {
     int ng = in.readTTFUShort();
     // read glyph classes
     int[] ca = new int[ng];
+    in.readUShorts(ca, ng);
     for (int i = 0, n = ng; i < n; i++) {
-      int gc = in.readTTFUShort();
-      ca[i] = gc;
-      entries.add(Integer.valueOf(gc));
+      entries.add(Integer.valueOf(ca[i]));
     }
     // dump info if debugging
     return GlyphClassTable.createClassTable(entries);
@@ -607,15 +652,12 @@ public final class OTFAdvancedTypographicTableReader {
     in.skip(2);
     // read range record count
     int nr = in.readTTFUShort();
-    for (int i = 0, n = nr; i < n; i++) {
-      // read range start
-      int s = in.readTTFUShort();
-      // read range end
-      int e = in.readTTFUShort();
-      // read range glyph class (mapping) index
-      int m = in.readTTFUShort();
+    // read range records (start, end, glyph class (mapping) index)
+    int[] ra = new int[nr * 3];
+    in.readUShorts(ra, ra.length);
+    for (int i = 0, n = ra.length; i < n; i += 3) {
       // dump info if debugging
-      entries.add(new GlyphClassTable.MappingRange(s, e, m));
+      entries.add(new GlyphClassTable.MappingRange(ra[i], ra[i + 1], ra[i + 2]));
     }
     return GlyphClassTable.createClassTable(entries);
   }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.fonts;
+
+/**
+ * An immutable rectangle given by its origin and size, used for glyph bounding boxes. The origin
+ * is the lower left corner in font space, where y grows upwards.
+ */
+public final class Rectangle {
+
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+
+  /**
+   * Creates a rectangle.
+   *
+   * @param x
+   *     the x coordinate of the origin
+   * @param y
+   *     the y coordinate of the origin
+   * @param width
+   *     the width
+   * @param height
+   *     the height
+   */
+  public Rectangle(int x, int y, int width, int height) {
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Returns the x coordinate of the origin.
+   *
+   * @return the minimum x coordinate
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Returns the y coordinate of the origin.
+   *
+   * @return the minimum y coordinate
+   */
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Returns the width.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height.
+   *
+   * @return the height
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /** {@inheritDoc} */
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof Rectangle)) {
+      return false;
+    }
+    Rectangle r = (Rectangle) o;
+    return x == r.x && y == r.y && width == r.width && height == r.height;
+  }
+
+  /** {@inheritDoc} */
+  public int hashCode() {
+    return ((x * 31 + y) * 31 + width) * 31 + height;
+  }
+
+  /** {@inheritDoc} */
+  public String toString() {
+    return "Rectangle[x=" + x + ",y=" + y + ",width=" + width + ",height=" + height + "]";
+  }
+
+}
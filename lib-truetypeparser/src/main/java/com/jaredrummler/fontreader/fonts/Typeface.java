@@ -83,6 +83,30 @@ public abstract class Typeface implements FontMetrics {
    */
   public abstract boolean hasChar(char c);
 
+  /**
+   * Map a Unicode code point, which may be outside the Basic Multilingual Plane, to a glyph
+   * index in the font. The default implementation only supports the BMP.
+   *
+   * @param codePoint
+   *     code point to map
+   * @return the mapped glyph index
+   */
+  public int mapCodePoint(int codePoint) {
+    return codePoint < 0x10000 ? mapChar((char) codePoint) : NOT_FOUND;
+  }
+
+  /**
+   * Determines whether this font contains a glyph for a Unicode code point, which may be
+   * outside the Basic Multilingual Plane. The default implementation only supports the BMP.
+   *
+   * @param codePoint
+   *     code point to check
+   * @return True if the code point is supported, False otherwise
+   */
+  public boolean hasCodePoint(int codePoint) {
+    return codePoint < 0x10000 && hasChar((char) codePoint);
+  }
+
   /**
    * Determines whether the font is a multibyte font.
    *
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link FontFileReader} that never buffers the whole file. The file is read in small pages
+ * with positioned reads the first time a byte in the page is accessed, so decoding only the table
+ * directory, "name" and "OS/2" tables reads a few kilobytes regardless of the font's size.
+ *
+ * <p>Use together with {@link ParseOptions} to scan many fonts:</p>
+ *
+ * <pre>
+ * ChannelFontFileReader reader = new ChannelFontFileReader(file);
+ * try {
+ *   TTFFile ttfFile = TTFFile.open(reader, options);
+ *   ...
+ * } finally {
+ *   reader.close();
+ * }
+ * </pre>
+ *
+ * <p>The channel must stay open while tables are being decoded, which includes the lifetime of a
+ * font opened with lazy {@link ParseOptions}.</p>
+ */
+public class ChannelFontFileReader extends FontFileReader implements Closeable {
+
+  private static final int PAGE_SHIFT = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT; // 4 KB
+
+  private final FileChannel channel;
+  private final Closeable owner; // closed with the reader, may be null
+  private final ByteBuffer[] pages;
+  private long bytesRead;
+
+  /**
+   * Constructor
+   *
+   * @param file
+   *     The font file to read. The file is kept open until {@link #close()} is called.
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public ChannelFontFileReader(File file) throws IOException {
+    this(new RandomAccessFile(file, "r"));
+  }
+
+  private ChannelFontFileReader(RandomAccessFile raf) throws IOException {
+    this(raf.getChannel(), raf);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param channel
+   *     The channel to read from. Positioned reads are used, so the channel's position is not
+   *     modified. The channel is closed by {@link #close()}.
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public ChannelFontFileReader(FileChannel channel) throws IOException {
+    this(channel, channel);
+  }
+
+  private ChannelFontFileReader(FileChannel channel, Closeable owner) throws IOException {
+    super(fileSize(channel, owner));
+    this.channel = channel;
+    this.owner = owner;
+    this.pages = new ByteBuffer[(getFileSize() + PAGE_SIZE - 1) >> PAGE_SHIFT];
+  }
+
+  private static int fileSize(FileChannel channel, Closeable owner) throws IOException {
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      owner.close();
+      throw new IOException("Font file is too large, file size=" + size);
+    }
+    return (int) size;
+  }
+
+  @Override protected void loadWindow(int pos) throws IOException {
+    int index = pos >> PAGE_SHIFT;
+    ByteBuffer page = pages[index];
+    if (page == null) {
+      long start = (long) index << PAGE_SHIFT;
+      page = ByteBuffer.allocate((int) Math.min(PAGE_SIZE, getFileSize() - start));
+      while (page.hasRemaining()) {
+        if (channel.read(page, start + page.position()) < 0) {
+          throw new EOFException("Reached EOF, file size=" + getFileSize());
+        }
+      }
+      page.flip();
+      pages[index] = page;
+      bytesRead += page.limit();
+    }
+    setWindow(page, index << PAGE_SHIFT);
+  }
+
+  /**
+   * Returns the number of bytes read from the channel so far.
+   *
+   * @return the number of bytes read
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Closes the underlying channel.
+   *
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  @Override public void close() throws IOException {
+    owner.close();
+  }
+
+}
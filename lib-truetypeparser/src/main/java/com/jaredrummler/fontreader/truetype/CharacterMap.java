@@ -0,0 +1,547 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps Unicode code points, including the supplementary planes, to glyph indexes.
+ *
+ * <p>The segments of a "cmap" format 4 subtable are kept as read and evaluated when a code point
+ * is looked up, and the groups of a format 12 or 13 subtable are kept as ranges sorted by code
+ * point. Code points of the BMP are looked up in a two level page table whose pages are filled
+ * the first time they are used, others with a binary search over the ranges; neither creates
+ * objects. The reverse mapping from glyphs to code points is only built when it is asked for.</p>
+ *
+ * <p>Unicode variation sequences (format 14) are supported through
+ * {@link #glyphForCodePoint(int, int)}.</p>
+ */
+public final class CharacterMap {
+
+  private static final int[] EMPTY = new int[0];
+  private static final char[] EMPTY_PAGE = new char[256];
+
+  private final int numGlyphs;
+
+  // format 4 segments, sorted by end code point
+  private int segCount;
+  private int[] segStarts = EMPTY;
+  private int[] segEnds = EMPTY;
+  private int[] segDeltas = EMPTY;
+  private int[] segRangeOffsets = EMPTY;
+  private char[] glyphIds = new char[0];
+  private boolean symbol; // also map U+0020-U+00FF to the glyphs of U+F020-U+F0FF
+
+  // ranges sorted by start code point, glyph is the glyph of the first code point of the range
+  private int numRanges;
+  private int[] starts = EMPTY;
+  private int[] ends = EMPTY;
+  private int[] glyphs = EMPTY;
+  private boolean[] constant = new boolean[0]; // all code points of the range map to one glyph
+  private boolean sorted = true;
+
+  // BMP lookup, 256 pages of 256 glyphs, filled on first use
+  private final AtomicReferenceArray<char[]> bmpPages = new AtomicReferenceArray<char[]>(256);
+
+  // reverse mapping by glyph, -1 if unmapped, built on first use
+  private volatile int[] codePoints;
+
+  // variation sequences, sorted by selector
+  private int[] selectors = EMPTY;
+  private int[][] defaultStarts; // base code points that use the default glyph
+  private int[][] defaultEnds;
+  private int[][] nonDefaultCodePoints; // base code points that use another glyph
+  private int[][] nonDefaultGlyphs;
+
+  CharacterMap(int numGlyphs) {
+    this.numGlyphs = numGlyphs;
+  }
+
+  /**
+   * Writes the mapping for {@link FontSnapshot}, including the reverse mapping if it was
+   * created. Must be called after {@link #finish()}.
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(numGlyphs);
+    FontSnapshot.writeInts(out, segStarts);
+    FontSnapshot.writeInts(out, segEnds);
+    FontSnapshot.writeInts(out, segDeltas);
+    FontSnapshot.writeInts(out, segRangeOffsets);
+    FontSnapshot.writeChars(out, glyphIds);
+    out.writeBoolean(symbol);
+    FontSnapshot.writeInts(out, starts, numRanges);
+    FontSnapshot.writeInts(out, ends, numRanges);
+    FontSnapshot.writeInts(out, glyphs, numRanges);
+    for (int i = 0; i < numRanges; i++) {
+      out.writeBoolean(constant[i]);
+    }
+    FontSnapshot.writeInts(out, codePoints);
+    FontSnapshot.writeInts(out, selectors);
+    for (int s = 0; s < selectors.length; s++) {
+      FontSnapshot.writeInts(out, defaultStarts[s]);
+      FontSnapshot.writeInts(out, defaultEnds[s]);
+      FontSnapshot.writeInts(out, nonDefaultCodePoints[s]);
+      FontSnapshot.writeInts(out, nonDefaultGlyphs[s]);
+    }
+  }
+
+  /**
+   * Reads a mapping written by {@link #write(DataOutputStream)}.
+   */
+  static CharacterMap read(ByteBuffer in) {
+    CharacterMap map = new CharacterMap(in.getInt());
+    map.segStarts = FontSnapshot.readInts(in);
+    map.segEnds = FontSnapshot.readInts(in);
+    map.segDeltas = FontSnapshot.readInts(in);
+    map.segRangeOffsets = FontSnapshot.readInts(in);
+    map.segCount = map.segStarts.length;
+    FontSnapshot.check(map.segEnds.length == map.segCount && map.segDeltas.length == map.segCount
+        && map.segRangeOffsets.length == map.segCount, "cmap segments");
+    map.glyphIds = FontSnapshot.readChars(in);
+    map.symbol = in.get() != 0;
+    map.starts = FontSnapshot.readInts(in);
+    map.ends = FontSnapshot.readInts(in);
+    map.glyphs = FontSnapshot.readInts(in);
+    map.numRanges = map.starts.length;
+    FontSnapshot.check(map.ends.length == map.numRanges && map.glyphs.length == map.numRanges,
+        "cmap ranges");
+    map.constant = new boolean[map.numRanges];
+    for (int i = 0; i < map.numRanges; i++) {
+      map.constant[i] = in.get() != 0;
+    }
+    map.codePoints = FontSnapshot.readInts(in);
+    FontSnapshot.check(map.codePoints == null || map.codePoints.length == map.numGlyphs,
+        "reverse cmap");
+    map.selectors = FontSnapshot.readInts(in);
+    int n = map.selectors.length;
+    map.defaultStarts = new int[n][];
+    map.defaultEnds = new int[n][];
+    map.nonDefaultCodePoints = new int[n][];
+    map.nonDefaultGlyphs = new int[n][];
+    for (int s = 0; s < n; s++) {
+      map.defaultStarts[s] = FontSnapshot.readInts(in);
+      map.defaultEnds[s] = FontSnapshot.readInts(in);
+      map.nonDefaultCodePoints[s] = FontSnapshot.readInts(in);
+      map.nonDefaultGlyphs[s] = FontSnapshot.readInts(in);
+      FontSnapshot.check(map.defaultStarts[s] != null && map.defaultEnds[s] != null
+          && map.defaultStarts[s].length == map.defaultEnds[s].length
+          && map.nonDefaultCodePoints[s] != null && map.nonDefaultGlyphs[s] != null
+          && map.nonDefaultCodePoints[s].length == map.nonDefaultGlyphs[s].length,
+          "variation sequences");
+    }
+    return map;
+  }
+
+  /**
+   * Estimates the heap memory held by the mapping, including the pages and reverse mapping
+   * created so far.
+   */
+  long estimateSize() {
+    long size = 16L * segStarts.length + 2L * glyphIds.length + 13L * starts.length;
+    for (int i = 0; i < 256; i++) {
+      char[] page = bmpPages.get(i);
+      if (page != null && page != EMPTY_PAGE) {
+        size += 2L * page.length;
+      }
+    }
+    int[] reverse = codePoints;
+    if (reverse != null) {
+      size += 4L * reverse.length;
+    }
+    for (int s = 0; s < selectors.length; s++) {
+      size += 8L * (defaultStarts[s].length + nonDefaultCodePoints[s].length);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the glyph for a code point.
+   *
+   * @param codePoint
+   *     the Unicode code point
+   * @return the glyph index, or 0 (.notdef) if the code point is not mapped
+   */
+  public int glyphForCodePoint(int codePoint) {
+    if (codePoint >= 0 && codePoint <= 0xFFFF) {
+      int p = codePoint >> 8;
+      char[] page = bmpPages.get(p);
+      if (page == null) {
+        page = createPage(p);
+        bmpPages.set(p, page);
+      }
+      return page[codePoint & 0xFF];
+    }
+    int i = findRange(codePoint);
+    if (i < 0) {
+      return 0;
+    }
+    return constant[i] ? glyphs[i] : glyphs[i] + (codePoint - starts[i]);
+  }
+
+  /**
+   * Returns the glyph for a Unicode variation sequence, a base character followed by a variation
+   * selector such as U+FE0F.
+   *
+   * @param codePoint
+   *     the base code point
+   * @param selector
+   *     the variation selector
+   * @return the glyph index, or 0 if the font has no glyph for the sequence, in which case the
+   *     glyph of the base character is commonly used instead
+   */
+  public int glyphForCodePoint(int codePoint, int selector) {
+    int s = Arrays.binarySearch(selectors, selector);
+    if (s < 0) {
+      return 0;
+    }
+    int i = Arrays.binarySearch(nonDefaultCodePoints[s], codePoint);
+    if (i >= 0) {
+      return nonDefaultGlyphs[s][i];
+    }
+    i = findLastLessOrEqual(defaultStarts[s], defaultStarts[s].length, codePoint);
+    if (i >= 0 && codePoint <= defaultEnds[s][i]) {
+      return glyphForCodePoint(codePoint);
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the code point of a glyph. If several code points map to the glyph, the last one
+   * in the "cmap" is returned.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the code point, or -1 if no code point maps to the glyph
+   */
+  public int codePointForGlyph(int glyph) {
+    int[] reverse = codePoints;
+    if (reverse == null) {
+      reverse = createReverseMapping();
+    }
+    return glyph >= 0 && glyph < reverse.length ? reverse[glyph] : -1;
+  }
+
+  /**
+   * Checks if a code point is mapped to a glyph.
+   *
+   * @param codePoint
+   *     the Unicode code point
+   * @return true if the font has a glyph for the code point
+   */
+  public boolean hasCodePoint(int codePoint) {
+    return glyphForCodePoint(codePoint) != 0;
+  }
+
+  /**
+   * Checks if the font has glyphs for variation sequences (a "cmap" format 14 subtable).
+   *
+   * @return true if variation sequences are mapped
+   */
+  public boolean hasVariationSequences() {
+    return selectors.length > 0;
+  }
+
+  /**
+   * Sets the segments of a format 4 subtable.
+   *
+   * @param starts
+   *     the startCode of each segment
+   * @param ends
+   *     the endCode of each segment
+   * @param deltas
+   *     the idDelta of each segment
+   * @param rangeOffsets
+   *     the idRangeOffset of each segment
+   * @param glyphIds
+   *     the glyphIdArray
+   * @param symbol
+   *     true for a symbol font, which also maps U+0020-U+00FF to the glyphs of U+F020-U+F0FF
+   */
+  void setSegments(int[] starts, int[] ends, int[] deltas, int[] rangeOffsets, char[] glyphIds,
+                   boolean symbol) {
+    this.segCount = starts.length;
+    this.segStarts = starts;
+    this.segEnds = ends;
+    this.segDeltas = deltas;
+    this.segRangeOffsets = rangeOffsets;
+    this.glyphIds = glyphIds;
+    this.symbol = symbol;
+  }
+
+  int getSegmentCount() {
+    return segCount;
+  }
+
+  int getSegmentStart(int segment) {
+    return segStarts[segment];
+  }
+
+  int getSegmentEnd(int segment) {
+    return segEnds[segment];
+  }
+
+  /**
+   * Checks if a segment looks up its glyphs in the glyphIdArray. The last code point, U+FFFF,
+   * always uses the delta.
+   */
+  boolean usesGlyphIdArray(int segment, int codePoint) {
+    return segRangeOffsets[segment] != 0 && codePoint != 0xFFFF;
+  }
+
+  /**
+   * Returns the glyph of a code point inside a segment.
+   */
+  int getSegmentGlyph(int segment, int codePoint) {
+    if (usesGlyphIdArray(segment, codePoint)) {
+      int index = segRangeOffsets[segment] / 2 + (codePoint - segStarts[segment])
+          + segment - segCount;
+      int glyph = index >= 0 && index < glyphIds.length ? glyphIds[index] : 0;
+      return (glyph + segDeltas[segment]) & 0xffff;
+    }
+    return (codePoint + segDeltas[segment]) & 0xffff;
+  }
+
+  /**
+   * Returns the format 4 glyph of a code point, ignoring the symbol font mapping.
+   *
+   * @return the glyph index, or -1 if no segment contains the code point
+   */
+  int getSegmentGlyph(int codePoint) {
+    int i = findSegment(codePoint);
+    return i < 0 ? -1 : getSegmentGlyph(i, codePoint);
+  }
+
+  /**
+   * Checks if a code point of a symbol font also maps the code point 0xF000 below it.
+   */
+  boolean isSymbolMapping(int segment, int codePoint) {
+    return symbol && codePoint >= 0xF020 && codePoint <= 0xF0FF
+        && usesGlyphIdArray(segment, codePoint) && findSegment(codePoint - 0xF000) < 0;
+  }
+
+  /**
+   * Maps the code points start to end to consecutive glyphs or, if constant is true, all to the
+   * same glyph.
+   */
+  void addRange(int start, int end, int glyph, boolean constant) {
+    if (numRanges == starts.length) {
+      int size = Math.max(16, numRanges * 2);
+      starts = grow(starts, size);
+      ends = grow(ends, size);
+      glyphs = grow(glyphs, size);
+      boolean[] c = new boolean[size];
+      System.arraycopy(this.constant, 0, c, 0, numRanges);
+      this.constant = c;
+    }
+    if (numRanges > 0 && start <= starts[numRanges - 1]) {
+      sorted = false;
+    }
+    starts[numRanges] = start;
+    ends[numRanges] = end;
+    glyphs[numRanges] = glyph;
+    this.constant[numRanges] = constant;
+    numRanges++;
+  }
+
+  int getRangeCount() {
+    return numRanges;
+  }
+
+  int getRangeStart(int range) {
+    return starts[range];
+  }
+
+  int getRangeEnd(int range) {
+    return ends[range];
+  }
+
+  int getRangeGlyph(int range) {
+    return glyphs[range];
+  }
+
+  boolean isConstantRange(int range) {
+    return constant[range];
+  }
+
+  /**
+   * Sets the variation sequences of a selector. The arrays must be sorted by code point.
+   */
+  void addVariationSelector(int selector, int[] defaultStarts, int[] defaultEnds,
+                            int[] nonDefaultCodePoints, int[] nonDefaultGlyphs) {
+    int n = selectors.length;
+    int i = -(Arrays.binarySearch(selectors, selector) + 1);
+    if (i < 0) {
+      return; // duplicate selector
+    }
+    selectors = insert(selectors, i, selector);
+    this.defaultStarts = insert(this.defaultStarts, n, i, defaultStarts);
+    this.defaultEnds = insert(this.defaultEnds, n, i, defaultEnds);
+    this.nonDefaultCodePoints = insert(this.nonDefaultCodePoints, n, i, nonDefaultCodePoints);
+    this.nonDefaultGlyphs = insert(this.nonDefaultGlyphs, n, i, nonDefaultGlyphs);
+  }
+
+  /**
+   * Sorts the ranges once all mappings were added.
+   */
+  void finish() {
+    if (!sorted) {
+      long[] keys = new long[numRanges];
+      for (int i = 0; i < numRanges; i++) {
+        keys[i] = ((long) starts[i] << 32) | i;
+      }
+      Arrays.sort(keys);
+      int[] s = new int[numRanges];
+      int[] e = new int[numRanges];
+      int[] g = new int[numRanges];
+      boolean[] c = new boolean[numRanges];
+      for (int i = 0; i < numRanges; i++) {
+        int from = (int) keys[i];
+        s[i] = starts[from];
+        e[i] = ends[from];
+        g[i] = glyphs[from];
+        c[i] = constant[from];
+      }
+      starts = s;
+      ends = e;
+      glyphs = g;
+      constant = c;
+      sorted = true;
+    }
+  }
+
+  private char[] createPage(int p) {
+    char[] page = null;
+    for (int c = p << 8, i = 0; i < 256; c++, i++) {
+      int glyph;
+      if (segCount > 0) {
+        glyph = getSegmentGlyph(c);
+        if (glyph < 0 && symbol && c >= 0x20 && c <= 0xFF) {
+          int segment = findSegment(c + 0xF000);
+          glyph = segment >= 0 && usesGlyphIdArray(segment, c + 0xF000)
+              ? getSegmentGlyph(segment, c + 0xF000) : 0;
+        }
+      } else {
+        int range = findRange(c);
+        glyph = range < 0 ? 0 : constant[range] ? glyphs[range] : glyphs[range] + (c - starts[range]);
+      }
+      if (glyph > 0) {
+        if (page == null) {
+          page = new char[256];
+        }
+        page[i] = (char) glyph;
+      }
+    }
+    return page == null ? EMPTY_PAGE : page;
+  }
+
+  private synchronized int[] createReverseMapping() {
+    if (codePoints != null) {
+      return codePoints;
+    }
+    // keeps the last code point in the order of the cmap
+    int[] reverse = new int[numGlyphs];
+    Arrays.fill(reverse, -1);
+    for (int i = 0; i < segCount; i++) {
+      for (int c = segStarts[i]; c <= segEnds[i]; c++) {
+        int glyph = getSegmentGlyph(i, c);
+        if (glyph < numGlyphs) {
+          reverse[glyph] = c;
+          if (isSymbolMapping(i, c)) {
+            reverse[glyph] = c - 0xF000;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < numRanges; i++) {
+      if (constant[i]) {
+        if (glyphs[i] < numGlyphs) {
+          reverse[glyphs[i]] = ends[i];
+        }
+      } else {
+        for (int c = starts[i], g = glyphs[i]; c <= ends[i] && g < numGlyphs; c++, g++) {
+          reverse[g] = c;
+        }
+      }
+    }
+    codePoints = reverse;
+    return reverse;
+  }
+
+  private int findSegment(int codePoint) {
+    // first segment that ends at or after the code point
+    int low = 0;
+    int high = segCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (segEnds[mid] < codePoint) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low < segCount && segStarts[low] <= codePoint ? low : -1;
+  }
+
+  private int findRange(int codePoint) {
+    int i = findLastLessOrEqual(starts, numRanges, codePoint);
+    return i >= 0 && codePoint <= ends[i] ? i : -1;
+  }
+
+  private static int findLastLessOrEqual(int[] values, int length, int value) {
+    int low = 0;
+    int high = length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return high;
+  }
+
+  // Arrays.copyOf is not available before Android API level 9
+  private static int[] grow(int[] values, int size) {
+    int[] result = new int[size];
+    System.arraycopy(values, 0, result, 0, values.length);
+    return result;
+  }
+
+  private static int[] insert(int[] values, int index, int value) {
+    int[] result = new int[values.length + 1];
+    System.arraycopy(values, 0, result, 0, index);
+    result[index] = value;
+    System.arraycopy(values, index, result, index + 1, values.length - index);
+    return result;
+  }
+
+  private static int[][] insert(int[][] values, int length, int index, int[] value) {
+    int[][] result = new int[length + 1][];
+    if (values != null) {
+      System.arraycopy(values, 0, result, 0, index);
+      System.arraycopy(values, index, result, index + 1, length - index);
+    }
+    result[index] = value;
+    return result;
+  }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Shares decoded fonts between the callers of a process. Fonts are keyed by their path, last
+ * modification time and index in a TrueType collection, and the least recently used fonts are
+ * evicted when the estimated memory held by the cache exceeds its limit.
+ *
+ * <p>Concurrent requests for a font that is not cached yet wait for a single thread to decode
+ * it. The returned {@link FontHandle}s are immutable and may be used by any number of threads.</p>
+ *
+ * <pre>
+ * FontHandle font = FontCache.getInstance().get(file);
+ * </pre>
+ */
+public final class FontCache {
+
+  /** The size limit of the cache returned by {@link #getInstance()}. */
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private static final FontCache INSTANCE = new FontCache(DEFAULT_MAX_BYTES);
+
+  private final long maxBytes;
+  private final ParseOptions options;
+  // in access order, guarded by itself
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long retainedBytes;
+
+  /**
+   * Returns the cache shared by the process. It holds up to {@link #DEFAULT_MAX_BYTES} of fonts
+   * decoded with {@link ParseOptions#DEFAULT}.
+   *
+   * @return the shared cache
+   */
+  public static FontCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maxBytes
+   *     the estimated memory the cached fonts may hold
+   */
+  public FontCache(long maxBytes) {
+    this(maxBytes, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maxBytes
+   *     the estimated memory the cached fonts may hold
+   * @param options
+   *     the tables to decode
+   */
+  public FontCache(long maxBytes, ParseOptions options) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+    this.options = options;
+  }
+
+  /**
+   * Returns a font, decoding it if it is not cached or the file was modified since.
+   *
+   * @param file
+   *     the font file
+   * @return the font
+   * @throws IOException
+   *     if the font can not be read
+   */
+  public FontHandle get(File file) throws IOException {
+    return get(file, 0);
+  }
+
+  /**
+   * Returns a font of a TrueType collection, decoding it if it is not cached or the file was
+   * modified since.
+   *
+   * @param file
+   *     the font file
+   * @param index
+   *     the index of the font in the collection, 0 for a file holding a single font
+   * @return the font
+   * @throws IOException
+   *     if the font can not be read
+   */
+  public FontHandle get(final File file, final int index) throws IOException {
+    Key key = new Key(file.getAbsolutePath(), index);
+    long lastModified = file.lastModified();
+    Entry entry;
+    boolean load = false;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry == null || entry.lastModified != lastModified) {
+        if (entry != null) {
+          remove(key);
+        }
+        entry = new Entry(lastModified, new FutureTask<>(new Callable<FontHandle>() {
+
+          @Override public FontHandle call() throws IOException {
+            return load(file, index, options);
+          }
+        }));
+        entries.put(key, entry);
+        load = true;
+      }
+    }
+    if (load) {
+      entry.task.run();
+    }
+    FontHandle handle;
+    try {
+      handle = entry.task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while loading " + file);
+    } catch (ExecutionException e) {
+      synchronized (entries) {
+        if (entries.get(key) == entry) {
+          entries.remove(key);
+        }
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      IOException ioe = new IOException("Error reading font " + file);
+      ioe.initCause(cause); // IOException(String, Throwable) needs Android API level 9
+      throw ioe;
+    }
+    if (load) {
+      synchronized (entries) {
+        if (entries.get(key) == entry) {
+          entry.size = handle.getRetainedSize();
+          retainedBytes += entry.size;
+          evict(entry);
+        }
+      }
+    }
+    return handle;
+  }
+
+  /**
+   * Removes the fonts of a file from the cache.
+   *
+   * @param file
+   *     the font file
+   */
+  public void invalidate(File file) {
+    String path = file.getAbsolutePath();
+    synchronized (entries) {
+      Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<Key, Entry> e = it.next();
+        if (e.getKey().path.equals(path)) {
+          retainedBytes -= e.getValue().size;
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes all fonts from the cache.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+      retainedBytes = 0;
+    }
+  }
+
+  /**
+   * Returns the number of cached fonts, including fonts that are being decoded.
+   *
+   * @return the number of fonts
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Returns the estimated memory held by the cached fonts.
+   *
+   * @return the size in bytes
+   */
+  public long getRetainedBytes() {
+    synchronized (entries) {
+      return retainedBytes;
+    }
+  }
+
+  /**
+   * Returns the limit of {@link #getRetainedBytes()}.
+   *
+   * @return the size in bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Removes the least recently used fonts until the cache fits its limit. The font that was just
+   * added and fonts that are still being decoded are kept. Must hold the lock on entries.
+   */
+  private void evict(Entry added) {
+    Iterator<Entry> it = entries.values().iterator();
+    while (retainedBytes > maxBytes && it.hasNext()) {
+      Entry entry = it.next();
+      if (entry != added && entry.task.isDone()) {
+        retainedBytes -= entry.size;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Must hold the lock on entries.
+   */
+  private void remove(Key key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      retainedBytes -= entry.size;
+    }
+  }
+
+  /**
+   * Decodes a font of a TrueType file or collection.
+   */
+  static FontHandle load(File file, int index, ParseOptions options) throws IOException {
+    TTFCollection collection = TTFFile.openCollection(file);
+    if (index != 0 && !collection.isCollection()) {
+      throw new IOException("Not a TrueType collection: " + file);
+    }
+    return FontHandle.create(collection.open(index, options));
+  }
+
+  private static final class Key {
+
+    final String path;
+    final int index;
+
+    Key(String path, int index) {
+      this.path = path;
+      this.index = index;
+    }
+
+    @Override public int hashCode() {
+      return path.hashCode() * 31 + index;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return index == other.index && path.equals(other.path);
+    }
+
+  }
+
+  private static final class Entry {
+
+    final long lastModified;
+    final FutureTask<FontHandle> task;
+    long size; // set once the font is decoded
+
+    Entry(long lastModified, FutureTask<FontHandle> task) {
+      this.lastModified = lastModified;
+      this.task = task;
+    }
+
+  }
+
+}
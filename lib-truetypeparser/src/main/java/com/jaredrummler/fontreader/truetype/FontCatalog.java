@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import com.jaredrummler.fontreader.fonts.FontTriplet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the fonts found by a {@link FontScanner}, queried by {@link FontTriplet}. Names are
+ * compared ignoring case; each font can be found by its family names, full name and PostScript
+ * name.
+ *
+ * <p>A catalog can be saved with {@link #write(File)} and loaded with {@link #read(File)}, so
+ * {@link FontScanner#update(File, File...)} only parses the fonts that changed since the last
+ * scan.</p>
+ */
+public final class FontCatalog {
+
+  private static final int MAGIC = 0x46434154; // "FCAT"
+  private static final int VERSION = 1;
+
+  private final List<Entry> entries;
+  private final List<File> unreadableFiles;
+  private final long[] unreadableStamps; // lastModified and length of each unreadable file
+  private final Map<String, List<Entry>> entriesByName = new HashMap<>();
+
+  FontCatalog(List<Entry> entries, List<File> unreadableFiles, long[] unreadableStamps) {
+    this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    this.unreadableFiles = Collections.unmodifiableList(new ArrayList<>(unreadableFiles));
+    this.unreadableStamps = unreadableStamps;
+    for (Entry entry : this.entries) {
+      for (String name : entry.getNames()) {
+        String key = toKey(name);
+        List<Entry> list = entriesByName.get(key);
+        if (list == null) {
+          list = new ArrayList<>(4);
+          entriesByName.put(key, list);
+        }
+        if (list.isEmpty() || list.get(list.size() - 1) != entry) {
+          list.add(entry); // names differing in case only are listed once
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns all fonts of the catalog.
+   *
+   * @return the fonts, sorted by file and collection index
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the number of fonts in the catalog. A TrueType collection counts once per member.
+   *
+   * @return the number of fonts
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the font files that could not be read while scanning.
+   *
+   * @return the files
+   */
+  public List<File> getUnreadableFiles() {
+    return unreadableFiles;
+  }
+
+  /**
+   * Returns the fonts with a family name, full name or PostScript name.
+   *
+   * @param name
+   *     the name, compared ignoring case
+   * @return the fonts, empty if none has the name
+   */
+  public List<Entry> findByName(String name) {
+    List<Entry> list = entriesByName.get(toKey(name));
+    return list != null ? Collections.unmodifiableList(list) : Collections.<Entry>emptyList();
+  }
+
+  /**
+   * Returns the fonts matching a triplet exactly.
+   *
+   * @param triplet
+   *     the name, style and weight to look for
+   * @return the fonts, empty if none matches
+   */
+  public List<Entry> find(FontTriplet triplet) {
+    List<Entry> result = new ArrayList<>();
+    for (Entry entry : findByName(triplet.getName())) {
+      if (entry.getWeight() == triplet.getWeight() && entry.getStyle().equals(triplet.getStyle())) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the font that matches a triplet best. A font with the same style is preferred, then
+   * the font with the closest weight.
+   *
+   * @param triplet
+   *     the name, style and weight to look for
+   * @return the font, or null if no font has the triplet's name
+   */
+  public Entry findBest(FontTriplet triplet) {
+    Entry best = null;
+    int bestScore = Integer.MAX_VALUE;
+    for (Entry entry : findByName(triplet.getName())) {
+      int score = Math.abs(entry.getWeight() - triplet.getWeight());
+      if (!entry.getStyle().equals(triplet.getStyle())) {
+        score += 10000;
+      }
+      if (score < bestScore) {
+        best = entry;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the modification time of an unreadable file when it was scanned.
+   */
+  long getUnreadableLastModified(int i) {
+    return unreadableStamps[2 * i];
+  }
+
+  /**
+   * Returns the size of an unreadable file when it was scanned.
+   */
+  long getUnreadableLength(int i) {
+    return unreadableStamps[2 * i + 1];
+  }
+
+  /**
+   * Saves the catalog. The file is written next to the target and then renamed, so a reader
+   * never sees a partly written catalog.
+   *
+   * @param file
+   *     the catalog file
+   * @throws IOException
+   *     if the file can not be written
+   */
+  public void write(File file) throws IOException {
+    // strings are stored once and referenced by index
+    Map<String, Integer> strings = new HashMap<>();
+    List<String> table = new ArrayList<>();
+    for (Entry entry : entries) {
+      intern(entry.file.getPath(), strings, table);
+      intern(entry.postScriptName, strings, table);
+      intern(entry.fullName, strings, table);
+      intern(entry.subFamilyName, strings, table);
+      intern(entry.style, strings, table);
+      for (String name : entry.familyNames) {
+        intern(name, strings, table);
+      }
+    }
+    for (File unreadable : unreadableFiles) {
+      intern(unreadable.getPath(), strings, table);
+    }
+
+    File tmp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(tmp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(table.size());
+      for (String string : table) {
+        byte[] bytes = string.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      out.writeInt(entries.size());
+      for (Entry entry : entries) {
+        out.writeInt(strings.get(entry.file.getPath()));
+        out.writeInt(entry.index);
+        out.writeLong(entry.lastModified);
+        out.writeLong(entry.length);
+        out.writeInt(strings.get(entry.postScriptName));
+        out.writeInt(strings.get(entry.fullName));
+        out.writeInt(strings.get(entry.subFamilyName));
+        out.writeInt(strings.get(entry.style));
+        out.writeInt(entry.weight);
+        out.writeInt(entry.familyNames.size());
+        for (String name : entry.familyNames) {
+          out.writeInt(strings.get(name));
+        }
+      }
+      out.writeInt(unreadableFiles.size());
+      for (int i = 0; i < unreadableFiles.size(); i++) {
+        out.writeInt(strings.get(unreadableFiles.get(i).getPath()));
+        out.writeLong(getUnreadableLastModified(i));
+        out.writeLong(getUnreadableLength(i));
+      }
+    } finally {
+      out.close();
+    }
+    if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+      tmp.delete();
+      throw new IOException("Can not replace " + file);
+    }
+  }
+
+  /**
+   * Loads a catalog saved by {@link #write(File)}. The file is memory-mapped while it is read.
+   *
+   * @param file
+   *     the catalog file
+   * @return the catalog
+   * @throws IOException
+   *     if the file can not be read or was not written by this version
+   */
+  public static FontCatalog read(File file) throws IOException {
+    ByteBuffer in;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      raf.close();
+    }
+    try {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        throw new IOException("Not a font catalog of version " + VERSION + ": " + file);
+      }
+      String[] table = new String[in.getInt()];
+      for (int i = 0; i < table.length; i++) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        table[i] = new String(bytes, "UTF-8");
+      }
+      int count = in.getInt();
+      List<Entry> entries = new ArrayList<>(count);
+      File lastFile = null;
+      for (int i = 0; i < count; i++) {
+        String path = table[in.getInt()];
+        // the members of a collection share their File
+        File fontFile = lastFile != null && lastFile.getPath().equals(path) ? lastFile : new File(path);
+        int index = in.getInt();
+        long lastModified = in.getLong();
+        long length = in.getLong();
+        String postScriptName = table[in.getInt()];
+        String fullName = table[in.getInt()];
+        String subFamilyName = table[in.getInt()];
+        String style = table[in.getInt()];
+        int weight = in.getInt();
+        int familyCount = in.getInt();
+        List<String> familyNames = new ArrayList<>(familyCount);
+        for (int j = 0; j < familyCount; j++) {
+          familyNames.add(table[in.getInt()]);
+        }
+        entries.add(new Entry(fontFile, index, lastModified, length, postScriptName, fullName,
+            familyNames, subFamilyName, style, weight));
+        lastFile = fontFile;
+      }
+      int unreadableCount = in.getInt();
+      List<File> unreadable = new ArrayList<>(unreadableCount);
+      long[] stamps = new long[2 * unreadableCount];
+      for (int i = 0; i < unreadableCount; i++) {
+        unreadable.add(new File(table[in.getInt()]));
+        stamps[2 * i] = in.getLong();
+        stamps[2 * i + 1] = in.getLong();
+      }
+      return new FontCatalog(entries, unreadable, stamps);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+        | NegativeArraySizeException e) {
+      IOException ioe = new IOException("Corrupt font catalog: " + file);
+      ioe.initCause(e); // IOException(String, Throwable) needs Android API level 9
+      throw ioe;
+    }
+  }
+
+  private static void intern(String string, Map<String, Integer> strings, List<String> table) {
+    if (!strings.containsKey(string)) {
+      strings.put(string, table.size());
+      table.add(string);
+    }
+  }
+
+  private static String toKey(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * A font of the catalog: the names, style and weight of one font file or one member of a
+   * TrueType collection.
+   */
+  public static final class Entry {
+
+    private final File file;
+    private final int index;
+    private final long lastModified;
+    private final long length;
+    private final String postScriptName;
+    private final String fullName;
+    private final List<String> familyNames;
+    private final String subFamilyName;
+    private final String style;
+    private final int weight;
+
+    Entry(File file, int index, long lastModified, long length, String postScriptName,
+          String fullName, List<String> familyNames, String subFamilyName, String style,
+          int weight) {
+      this.file = file;
+      this.index = index;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.postScriptName = postScriptName;
+      this.fullName = fullName;
+      this.familyNames = Collections.unmodifiableList(new ArrayList<>(familyNames));
+      this.subFamilyName = subFamilyName;
+      this.style = style;
+      this.weight = weight;
+    }
+
+    /** @return the font file */
+    public File getFile() {
+      return file;
+    }
+
+    /** @return the index of the font in its TrueType collection, 0 for a single font file */
+    public int getIndex() {
+      return index;
+    }
+
+    /** @return the modification time of the file when it was scanned */
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    /** @return the size of the file when it was scanned */
+    public long getLength() {
+      return length;
+    }
+
+    /** @return the PostScript name */
+    public String getPostScriptName() {
+      return postScriptName;
+    }
+
+    /** @return the full name */
+    public String getFullName() {
+      return fullName;
+    }
+
+    /** @return the family names */
+    public List<String> getFamilyNames() {
+      return familyNames;
+    }
+
+    /** @return the sub family name */
+    public String getSubFamilyName() {
+      return subFamilyName;
+    }
+
+    /** @return the style, {@code Font.STYLE_NORMAL} or {@code Font.STYLE_ITALIC} */
+    public String getStyle() {
+      return style;
+    }
+
+    /** @return the weight class from the OS/2 table, or a weight guessed from the name */
+    public int getWeight() {
+      return weight;
+    }
+
+    /**
+     * Returns the triplets the font can be found with: one for each family name, the full name
+     * and the PostScript name.
+     *
+     * @return the triplets
+     */
+    public List<FontTriplet> getTriplets() {
+      List<FontTriplet> triplets = new ArrayList<>();
+      for (String name : getNames()) {
+        triplets.add(new FontTriplet(name, style, weight));
+      }
+      return triplets;
+    }
+
+    Set<String> getNames() {
+      Set<String> names = new LinkedHashSet<>(familyNames);
+      if (fullName.length() > 0) {
+        names.add(fullName);
+      }
+      if (postScriptName.length() > 0) {
+        names.add(postScriptName);
+      }
+      return names;
+    }
+
+    @Override public String toString() {
+      return fullName + " (" + file + (index > 0 ? "#" + index : "") + ")";
+    }
+
+  }
+
+}
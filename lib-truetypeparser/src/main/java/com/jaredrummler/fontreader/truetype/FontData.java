@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only contents of a font file with reads at absolute offsets. Unlike a
+ * {@link FontFileReader} there is no current position, so one instance can be read by any number
+ * of threads at the same time without locking.
+ */
+public final class FontData {
+
+  private final ByteBuffer data; // only accessed with absolute indexes
+
+  /**
+   * Constructor
+   *
+   * @param data
+   *     The font data, from the buffer's position to its limit. The buffer's position and limit
+   *     are not modified and the contents must not change afterwards.
+   */
+  public FontData(ByteBuffer data) {
+    this.data = data.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Constructor
+   *
+   * @param data
+   *     The font file. The array is not copied and must not be modified afterwards.
+   */
+  public FontData(byte[] data) {
+    this(ByteBuffer.wrap(data));
+  }
+
+  /**
+   * Returns the size of the font data.
+   *
+   * @return the size in bytes
+   */
+  public int size() {
+    return data.limit();
+  }
+
+  /**
+   * Read 1 signed byte.
+   *
+   * @param offset
+   *     The absolute position to read from
+   * @return One byte
+   * @throws IOException
+   *     If the offset is outside of the data
+   */
+  public byte readTTFByte(int offset) throws IOException {
+    check(offset, 1);
+    return data.get(offset);
+  }
+
+  /**
+   * Read 1 unsigned byte.
+   *
+   * @param offset
+   *     The absolute position to read from
+   * @return One unsigned byte
+   * @throws IOException
+   *     If the offset is outside of the data
+   */
+  public int readTTFUByte(int offset) throws IOException {
+    check(offset, 1);
+    return data.get(offset) & 0xff;
+  }
+
+  /**
+   * Read 2 bytes signed.
+   *
+   * @param offset
+   *     The absolute position to read from
+   * @return One signed short
+   * @throws IOException
+   *     If the offset is outside of the data
+   */
+  public short readTTFShort(int offset) throws IOException {
+    check(offset, 2);
+    return data.getShort(offset);
+  }
+
+  /**
+   * Read 2 bytes unsigned.
+   *
+   * @param offset
+   *     The absolute position to read from
+   * @return One unsigned short
+   * @throws IOException
+   *     If the offset is outside of the data
+   */
+  public int readTTFUShort(int offset) throws IOException {
+    check(offset, 2);
+    return data.getShort(offset) & 0xffff;
+  }
+
+  /**
+   * Read 4 bytes.
+   *
+   * @param offset
+   *     The absolute position to read from
+   * @return One signed integer
+   * @throws IOException
+   *     If the offset is outside of the data
+   */
+  public int readTTFLong(int offset) throws IOException {
+    check(offset, 4);
+    return data.getInt(offset);
+  }
+
+  /**
+   * Read 4 bytes.
+   *
+   * @param offset
+   *     The absolute position to read from
+   * @return One unsigned integer
+   * @throws IOException
+   *     If the offset is outside of the data
+   */
+  public long readTTFULong(int offset) throws IOException {
+    check(offset, 4);
+    return data.getInt(offset) & 0xffffffffL;
+  }
+
+  /**
+   * Return a copy of a range of the data.
+   *
+   * @param offset
+   *     The absolute offset to start reading from
+   * @param length
+   *     The number of bytes to read
+   * @return An array of bytes
+   * @throws IOException
+   *     If the range is outside of the data
+   */
+  public byte[] getBytes(int offset, int length) throws IOException {
+    check(offset, length);
+    byte[] ret = new byte[length];
+    ByteBuffer src = data.duplicate();
+    src.position(offset);
+    src.get(ret);
+    return ret;
+  }
+
+  /**
+   * Returns a range of the data without copying it.
+   *
+   * @param offset
+   *     The absolute offset of the range
+   * @param length
+   *     The length of the range
+   * @return a read-only buffer holding the range from position 0, owned by the caller
+   * @throws IOException
+   *     If the range is outside of the data
+   */
+  public ByteBuffer slice(int offset, int length) throws IOException {
+    check(offset, length);
+    ByteBuffer src = data.duplicate();
+    src.position(offset);
+    src.limit(offset + length);
+    return src.slice();
+  }
+
+  private void check(int offset, int length) throws IOException {
+    if (offset < 0 || length < 0 || offset > data.limit() - length) {
+      throw new EOFException("Reached EOF, file size=" + data.limit() + " offset=" + offset);
+    }
+  }
+
+}
@@ -19,8 +19,10 @@ package com.jaredrummler.fontreader.truetype;
 
 import com.jaredrummler.fontreader.io.IOUtils;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Reads a TrueType font file into a byte array and
@@ -30,7 +32,10 @@ public class FontFileReader {
 
   private final int fsize; // file size
   private int current;    // current position in file
-  private final byte[] file;
+  private ByteBuffer buffer; // window onto the file, only accessed with absolute indexes
+  private int windowStart; // file position of the first byte in buffer
+  private int windowEnd; // file position after the last byte in buffer
+  private final byte[] file; // backing array, null if the file is not held in one array
 
   /**
    * Constructor
@@ -44,6 +49,87 @@ public class FontFileReader {
     this.file = IOUtils.toByteArray(in);
     this.fsize = this.file.length;
     this.current = 0;
+    setWindow(ByteBuffer.wrap(file), 0);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param buffer
+   *     The font data, from the buffer's position to its limit. The buffer's position and limit
+   *     are not modified.
+   */
+  public FontFileReader(ByteBuffer buffer) {
+    ByteBuffer data = buffer.slice();
+    this.file = data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.limit()
+        ? data.array() : null;
+    this.fsize = data.limit();
+    this.current = 0;
+    setWindow(data, 0);
+  }
+
+  /**
+   * Constructor for readers that supply the file contents on demand through
+   * {@link #loadWindow(int)}.
+   *
+   * @param fileSize
+   *     The size of the file
+   */
+  protected FontFileReader(int fileSize) {
+    this.file = null;
+    this.fsize = fileSize;
+    this.current = 0;
+    setWindow(ByteBuffer.allocate(0), 0);
+  }
+
+  /**
+   * Called when a read is outside of the bytes currently held by the reader. Implementations
+   * must call {@link #setWindow(ByteBuffer, int)} with a buffer containing the byte at the given
+   * position. The default implementation holds the whole file and is never asked for more.
+   *
+   * @param pos
+   *     The file position to make readable, always within the file size
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  protected void loadWindow(int pos) throws IOException {
+    throw new EOFException("Reached EOF, file size=" + fsize + " offset=" + pos);
+  }
+
+  /**
+   * Sets the bytes used for reads until the next call to {@link #loadWindow(int)}.
+   *
+   * @param window
+   *     The file contents from index 0 to the buffer's limit
+   * @param start
+   *     The file position of the first byte in the window
+   */
+  protected final void setWindow(ByteBuffer window, int start) {
+    this.buffer = window;
+    this.windowStart = start;
+    this.windowEnd = start + window.limit();
+  }
+
+  /**
+   * Reads the byte at the given file position without changing the current position.
+   */
+  private byte readAt(int pos) throws IOException {
+    final int index = windowIndex(pos);
+    return buffer.get(index);
+  }
+
+  /**
+   * Returns the index into the current window of the given file position, loading the window
+   * holding it if necessary.
+   */
+  private int windowIndex(int pos) throws IOException {
+    if (pos < windowStart || pos >= windowEnd) {
+      if (pos >= fsize || pos < 0) {
+        throw new EOFException("Reached EOF, file size=" + fsize);
+      }
+      loadWindow(pos);
+    }
+    return pos - windowStart;
   }
 
   /**
@@ -100,12 +186,9 @@ public class FontFileReader {
    *     If EOF is reached
    */
   private byte read() throws IOException {
-    if (current >= fsize) {
-      throw new java.io.EOFException("Reached EOF, file size=" + fsize);
-    }
-
-    final byte ret = file[current++];
-    return ret;
+    final int index = windowIndex(current);
+    current++;
+    return buffer.get(index);
   }
 
   /**
@@ -161,6 +244,102 @@ public class FontFileReader {
     return ret;
   }
 
+  /**
+   * Reads unsigned 16-bit values. The range is checked once and the values are read from the
+   * reader's buffer without going through {@link #readTTFUShort()}.
+   *
+   * @param dst
+   *     The array to read into, from index 0
+   * @param count
+   *     The number of values to read
+   * @throws IOException
+   *     If EOF is reached
+   */
+  public final void readUShorts(int[] dst, int count) throws IOException {
+    int index = bulkIndex(dst.length, count, 2);
+    if (index < 0) {
+      for (int i = 0; i < count; i++) {
+        dst[i] = readTTFUShort();
+      }
+    } else {
+      for (int i = 0; i < count; i++, index += 2) {
+        dst[i] = buffer.getShort(index) & 0xFFFF;
+      }
+    }
+  }
+
+  /**
+   * Reads signed 16-bit values. The range is checked once and the values are read from the
+   * reader's buffer without going through {@link #readTTFShort()}.
+   *
+   * @param dst
+   *     The array to read into, from index 0
+   * @param count
+   *     The number of values to read
+   * @throws IOException
+   *     If EOF is reached
+   */
+  public final void readShorts(short[] dst, int count) throws IOException {
+    int index = bulkIndex(dst.length, count, 2);
+    if (index < 0) {
+      for (int i = 0; i < count; i++) {
+        dst[i] = readTTFShort();
+      }
+    } else {
+      for (int i = 0; i < count; i++, index += 2) {
+        dst[i] = buffer.getShort(index);
+      }
+    }
+  }
+
+  /**
+   * Reads unsigned 32-bit values. The range is checked once and the values are read from the
+   * reader's buffer without going through {@link #readTTFULong()}.
+   *
+   * @param dst
+   *     The array to read into, from index 0
+   * @param count
+   *     The number of values to read
+   * @throws IOException
+   *     If EOF is reached
+   */
+  public final void readULongs(long[] dst, int count) throws IOException {
+    int index = bulkIndex(dst.length, count, 4);
+    if (index < 0) {
+      for (int i = 0; i < count; i++) {
+        dst[i] = readTTFULong();
+      }
+    } else {
+      for (int i = 0; i < count; i++, index += 4) {
+        dst[i] = buffer.getInt(index) & 0xFFFFFFFFL;
+      }
+    }
+  }
+
+  /**
+   * Checks that count values of the given size can be read at the current position. If they
+   * are all in the current window the position is advanced past them and the window index of the
+   * first value is returned, otherwise -1 and the values must be read one at a time.
+   */
+  private int bulkIndex(int capacity, int count, int size) throws IOException {
+    if (count < 0 || count > capacity) {
+      throw new IndexOutOfBoundsException("count=" + count + " capacity=" + capacity);
+    }
+    long length = (long) count * size;
+    if (current + length > fsize) {
+      throw new EOFException("Reached EOF, file size=" + fsize + " offset=" + current);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    int index = windowIndex(current);
+    if (current + length > windowEnd) {
+      return -1;
+    }
+    current += (int) length;
+    return index;
+  }
+
   /**
    * Write a USHort at a given position.
    *
@@ -177,9 +356,14 @@ public class FontFileReader {
     }
     final byte b1 = (byte) ((val >> 8) & 0xff);
     final byte b2 = (byte) (val & 0xff);
+    if (buffer.isReadOnly()) {
+      throw new IOException("Font data is read-only");
+    }
     final int fileIndex = (int) pos;
-    file[fileIndex] = b1;
-    file[fileIndex + 1] = b2;
+    int index = windowIndex(fileIndex);
+    buffer.put(index, b1);
+    index = windowIndex(fileIndex + 1);
+    buffer.put(index, b2);
   }
 
   /**
@@ -257,7 +441,7 @@ public class FontFileReader {
    */
   public final String readTTFString() throws IOException {
     int i = current;
-    while (file[i++] != 0) {
+    while (readAt(i++) != 0) {
       if (i >= fsize) {
         throw new java.io.EOFException("Reached EOF, file size="
             + fsize);
@@ -265,7 +449,7 @@ public class FontFileReader {
     }
 
     byte[] tmp = new byte[i - current - 1];
-    System.arraycopy(file, current, tmp, 0, i - current - 1);
+    copy(current, tmp, 0, tmp.length);
     return new String(tmp, "ISO-8859-1");
   }
 
@@ -284,7 +468,7 @@ public class FontFileReader {
     }
 
     byte[] tmp = new byte[len];
-    System.arraycopy(file, current, tmp, 0, len);
+    copy(current, tmp, 0, len);
     current += len;
     final String encoding;
     if ((tmp.length > 0) && (tmp[0] == 0)) {
@@ -312,7 +496,7 @@ public class FontFileReader {
     }
 
     byte[] tmp = new byte[len];
-    System.arraycopy(file, current, tmp, 0, len);
+    copy(current, tmp, 0, len);
     current += len;
     final String encoding;
     encoding = "UTF-16BE"; //Use this for all known encoding IDs for now
@@ -337,17 +521,100 @@ public class FontFileReader {
     }
 
     byte[] ret = new byte[length];
-    System.arraycopy(file, offset, ret, 0, length);
+    copy(offset, ret, 0, length);
     return ret;
   }
 
   /**
-   * Returns the full byte array representation of the file.
+   * Returns a range of the file as a read-only buffer. The buffer is a view of the reader's
+   * storage when the reader holds the whole file in one buffer, as for a memory-mapped file or an
+   * array; readers that load the file on demand return a copy.
+   *
+   * @param offset
+   *     The absolute offset of the range
+   * @param length
+   *     The length of the range
+   * @return a read-only buffer holding the range from position 0
+   * @throws IOException
+   *     if the range is outside of the file
+   */
+  public ByteBuffer getBuffer(int offset, int length) throws IOException {
+    if (offset < 0 || length < 0 || offset > fsize - length) {
+      throw new EOFException("Reached EOF, file size=" + fsize + " offset=" + offset);
+    }
+    if (offset < windowStart || offset + length > windowEnd) {
+      return ByteBuffer.wrap(getBytes(offset, length)).asReadOnlyBuffer();
+    }
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset - windowStart);
+    view.limit(offset - windowStart + length);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the array holding the whole file, or null if the file is not held in one array.
+   */
+  byte[] getArray() {
+    return file;
+  }
+
+  /**
+   * Returns the full byte array representation of the file. If the reader is not backed by an
+   * array (e.g. a memory-mapped file) the contents are copied into a new array on each call.
    *
    * @return byte array.
    */
   public byte[] getAllBytes() {
-    return file;
+    if (file != null) {
+      return file;
+    }
+    byte[] ret = new byte[fsize];
+    try {
+      copy(0, ret, 0, fsize);
+    } catch (IOException e) {
+      throw new IllegalStateException("Error reading font file: " + e.getMessage(), e);
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the contents of the file for reads at absolute offsets. Readers holding the whole
+   * file in one buffer share it with the returned data; other readers copy the file.
+   *
+   * @return the font data
+   */
+  public FontData getFontData() {
+    if (holdsWholeFile()) {
+      return new FontData(buffer);
+    }
+    return new FontData(getAllBytes());
+  }
+
+  /**
+   * Checks if the whole file is held in one buffer rather than loaded on demand.
+   */
+  boolean holdsWholeFile() {
+    return windowStart == 0 && windowEnd == fsize;
+  }
+
+  /**
+   * Copies bytes from the backing storage without changing the current position.
+   */
+  private void copy(int offset, byte[] dst, int dstOffset, int length) throws IOException {
+    if (file != null) {
+      System.arraycopy(file, offset, dst, dstOffset, length);
+      return;
+    }
+    while (length > 0) {
+      int index = windowIndex(offset);
+      int n = Math.min(length, windowEnd - offset);
+      ByteBuffer src = buffer.duplicate();
+      src.position(index);
+      src.get(dst, dstOffset, n);
+      offset += n;
+      dstOffset += n;
+      length -= n;
+    }
   }
 
 }
@@ -0,0 +1,694 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphDefinitionTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.ShapingPlan;
+import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of a fully decoded font. All selected tables are decoded when the handle
+ * is created and nothing is read from the font file afterwards except through {@link FontData},
+ * so one handle can be shared by any number of threads without locking.
+ *
+ * <pre>
+ * FontHandle font = FontHandle.open(file);
+ * int glyph = font.getGlyphIndex(codePoint);
+ * int width = font.getWidth(glyph);
+ * </pre>
+ *
+ * <p>Metrics are in PDF units (1/1000 em) like the getters of {@link OpenFont}. A handle loaded
+ * by {@link FontSnapshot#read(File)} creates GDEF, GSUB and GPOS from the decoded subtables in the
+ * snapshot the first time one of them is asked for. Its font data holds the tables of the font
+ * only, so for a member of a collection it is not the collection file.</p>
+ */
+public final class FontHandle {
+
+  private static final int ADVANCED_TABLE_WEIGHT = 8;
+
+  private final FontData data;
+  private final Map<OFTableName, OFDirTabEntry> dirTabs;
+  private final int unitsPerEm;
+
+  private final String postScriptName;
+  private final String fullName;
+  private final Set<String> familyNames;
+  private final String subFamilyName;
+  private final String copyrightNotice;
+
+  private final int capHeight;
+  private final int xHeight;
+  private final int ascender;
+  private final int descender;
+  private final int flags;
+  private final int weightClass;
+  private final String italicAngle;
+  private final int[] fontBBox;
+  private final int underlinePosition;
+  private final int underlineThickness;
+  private final int strikeoutPosition;
+  private final int strikeoutThickness;
+  private final boolean embeddable;
+  private final boolean cff;
+
+  private final int[] widths;
+  private final GlyphMetrics glyphMetrics;
+  private final CharacterMap characterMap;
+  private final KerningTable kerning;
+
+  private final Object advancedLock = new Object();
+  private volatile boolean advancedLoaded;
+  private ByteBuffer advancedData; // the decoded subtables of a loaded handle, until created
+  private GlyphDefinitionTable gdef;
+  private GlyphSubstitutionTable gsub;
+  private GlyphPositioningTable gpos;
+  private final ConcurrentMap<String, ShapingPlan> shapingPlans = new ConcurrentHashMap<>();
+
+  private final long retainedSize;
+
+  /**
+   * Opens a TrueType file with the tables of {@link ParseOptions#DEFAULT}.
+   *
+   * @param file
+   *     The font file
+   * @return the font handle
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static FontHandle open(File file) throws IOException {
+    return open(file, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Opens a TrueType file. The file is memory-mapped and shared by the handle rather than copied
+   * onto the heap.
+   *
+   * @param file
+   *     The font file
+   * @param options
+   *     The tables to decode. The lazy option is ignored; every selected table is decoded.
+   * @return the font handle
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static FontHandle open(File file, ParseOptions options) throws IOException {
+    return create(TTFFile.open(new MappedFontFileReader(file), options));
+  }
+
+  /**
+   * Creates a snapshot of a font. The font's tables that were selected when it was opened are
+   * decoded first. The font itself is left unchanged and may still be used by its own thread.
+   *
+   * @param font
+   *     The font to copy
+   * @return the font handle
+   */
+  public static FontHandle create(OpenFont font) {
+    return new FontHandle(font);
+  }
+
+  private FontHandle(OpenFont font) {
+    data = font.fontFile.getFontData();
+    dirTabs = Collections.unmodifiableMap(new HashMap<>(font.dirTabs));
+    unitsPerEm = font.getUnitsPerEm();
+
+    postScriptName = font.getPostScriptName();
+    fullName = font.getFullName();
+    familyNames = Collections.unmodifiableSet(new LinkedHashSet<>(font.getFamilyNames()));
+    subFamilyName = font.getSubFamilyName();
+    copyrightNotice = font.getCopyrightNotice();
+
+    capHeight = font.getCapHeight();
+    xHeight = font.getXHeight();
+    ascender = font.getLowerCaseAscent();
+    descender = font.getLowerCaseDescent();
+    flags = font.getFlags();
+    weightClass = font.getWeightClass();
+    italicAngle = font.getItalicAngle();
+    fontBBox = font.getFontBBox();
+    underlinePosition = font.getUnderlinePosition();
+    underlineThickness = font.getUnderlineThickness();
+    strikeoutPosition = font.getStrikeoutPosition();
+    strikeoutThickness = font.getStrikeoutThickness();
+    embeddable = font.isEmbeddable();
+    cff = font.isCFF();
+
+    widths = font.getWidths();
+    glyphMetrics = font.getGlyphMetrics();
+    characterMap = font.getCharacterMap();
+    characterMap.codePointForGlyph(0); // creates the reverse mapping up front
+    KerningTable kerningTable = font.getKerningTable();
+    kerning = kerningTable != null ? kerningTable : KerningTable.EMPTY;
+
+    gdef = font.getGDEF();
+    gsub = font.getGSUB();
+    gpos = font.getGPOS();
+    advancedLoaded = true;
+
+    retainedSize = estimateRetainedSize(gdef != null || gsub != null || gpos != null);
+  }
+
+  /**
+   * Reads a handle written by {@link #write(DataOutputStream)}. The font data is a slice of the
+   * snapshot rather than a copy.
+   */
+  FontHandle(ByteBuffer in) throws IOException {
+    postScriptName = FontSnapshot.readString(in);
+    fullName = FontSnapshot.readString(in);
+    Set<String> names = new LinkedHashSet<>();
+    for (int i = in.getInt(); i > 0; i--) {
+      names.add(FontSnapshot.readString(in));
+    }
+    familyNames = Collections.unmodifiableSet(names);
+    subFamilyName = FontSnapshot.readString(in);
+    copyrightNotice = FontSnapshot.readString(in);
+    italicAngle = FontSnapshot.readString(in);
+
+    unitsPerEm = in.getInt();
+    capHeight = in.getInt();
+    xHeight = in.getInt();
+    ascender = in.getInt();
+    descender = in.getInt();
+    flags = in.getInt();
+    weightClass = in.getInt();
+    fontBBox = FontSnapshot.readInts(in);
+    underlinePosition = in.getInt();
+    underlineThickness = in.getInt();
+    strikeoutPosition = in.getInt();
+    strikeoutThickness = in.getInt();
+    embeddable = in.get() != 0;
+    cff = in.get() != 0;
+
+    widths = FontSnapshot.readInts(in);
+    Map<OFTableName, OFDirTabEntry> tabs = new HashMap<>();
+    for (int i = in.getInt(); i > 0; i--) {
+      OFTableName name = OFTableName.getValue(FontSnapshot.readString(in));
+      tabs.put(name, new OFDirTabEntry(in.getLong(), in.getLong()));
+    }
+    dirTabs = Collections.unmodifiableMap(tabs);
+    glyphMetrics = GlyphMetrics.read(in);
+    characterMap = CharacterMap.read(in);
+    kerning = KerningTable.read(in);
+    int advancedLength = in.getInt();
+    boolean advanced = advancedLength >= 0;
+    if (advanced) {
+      advancedData = in.slice();
+      advancedData.limit(advancedLength);
+      in.position(in.position() + advancedLength);
+    }
+    advancedLoaded = !advanced;
+
+    int length = in.getInt();
+    ByteBuffer font = in.slice();
+    font.limit(length);
+    in.position(in.position() + length);
+    data = new FontData(font);
+
+    retainedSize = estimateRetainedSize(advanced);
+  }
+
+  /**
+   * Writes the handle for {@link FontSnapshot}. GDEF, GSUB and GPOS are written as their decoded
+   * subtables by {@link GlyphTableSnapshot}. The font data is written as a font file holding the
+   * tables in the table directory, so a member of a collection is stored without the other
+   * members.
+   */
+  void write(DataOutputStream out) throws IOException {
+    FontSnapshot.writeString(out, postScriptName);
+    FontSnapshot.writeString(out, fullName);
+    out.writeInt(familyNames.size());
+    for (String name : familyNames) {
+      FontSnapshot.writeString(out, name);
+    }
+    FontSnapshot.writeString(out, subFamilyName);
+    FontSnapshot.writeString(out, copyrightNotice);
+    FontSnapshot.writeString(out, italicAngle);
+
+    out.writeInt(unitsPerEm);
+    out.writeInt(capHeight);
+    out.writeInt(xHeight);
+    out.writeInt(ascender);
+    out.writeInt(descender);
+    out.writeInt(flags);
+    out.writeInt(weightClass);
+    FontSnapshot.writeInts(out, fontBBox);
+    out.writeInt(underlinePosition);
+    out.writeInt(underlineThickness);
+    out.writeInt(strikeoutPosition);
+    out.writeInt(strikeoutThickness);
+    out.writeBoolean(embeddable);
+    out.writeBoolean(cff);
+
+    FontSnapshot.writeInts(out, widths);
+    // the tables are laid out in tag order after the table directory of the written font
+    Map<String, OFDirTabEntry> tables = new TreeMap<>();
+    for (Entry<OFTableName, OFDirTabEntry> entry : dirTabs.entrySet()) {
+      if (!OFTableName.TABLE_DIRECTORY.equals(entry.getKey())) {
+        tables.put(entry.getKey().getName(), entry.getValue());
+      }
+    }
+    int offset = 12 + 16 * tables.size();
+    out.writeInt(tables.size() + 1);
+    FontSnapshot.writeString(out, OFTableName.TABLE_DIRECTORY.getName());
+    out.writeLong(0);
+    out.writeLong(offset);
+    for (Entry<String, OFDirTabEntry> entry : tables.entrySet()) {
+      int length = (int) entry.getValue().getLength();
+      FontSnapshot.writeString(out, entry.getKey());
+      out.writeLong(offset);
+      out.writeLong(length);
+      offset += (length + 3) & ~3;
+    }
+    glyphMetrics.write(out);
+    characterMap.write(out);
+    kerning.write(out);
+    writeAdvancedTables(out);
+
+    out.writeInt(offset);
+    writeTables(out, tables);
+  }
+
+  /**
+   * Writes the length of the decoded GDEF, GSUB and GPOS tables followed by them, or -1 if the
+   * font has none of them.
+   */
+  private void writeAdvancedTables(DataOutputStream out) throws IOException {
+    ensureAdvancedTables();
+    if (gdef == null && gsub == null && gpos == null) {
+      out.writeInt(-1);
+    } else {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+      DataOutputStream tables = new DataOutputStream(bytes);
+      GlyphTableSnapshot.writeGDEF(tables, gdef);
+      GlyphTableSnapshot.writeTable(tables, gsub);
+      GlyphTableSnapshot.writeTable(tables, gpos);
+      tables.flush();
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    }
+  }
+
+  /**
+   * Writes a font file holding the given tables, in the order of the map.
+   */
+  private void writeTables(DataOutputStream out, Map<String, OFDirTabEntry> tables)
+      throws IOException {
+    int numTables = tables.size();
+    int entrySelector = 0;
+    while ((2 << entrySelector) <= numTables) {
+      entrySelector++;
+    }
+    int searchRange = 16 << entrySelector;
+    out.writeInt(cff ? 0x4F54544F : 0x00010000); // "OTTO" for CFF outlines
+    out.writeShort(numTables);
+    out.writeShort(searchRange);
+    out.writeShort(entrySelector);
+    out.writeShort(16 * numTables - searchRange);
+
+    byte[][] contents = new byte[numTables][];
+    int offset = 12 + 16 * numTables;
+    int i = 0;
+    for (Entry<String, OFDirTabEntry> entry : tables.entrySet()) {
+      OFDirTabEntry dirTab = entry.getValue();
+      byte[] table = data.getBytes((int) dirTab.getOffset(), (int) dirTab.getLength());
+      out.write(entry.getKey().getBytes("ISO-8859-1"));
+      out.writeInt(getChecksum(table));
+      out.writeInt(offset);
+      out.writeInt(table.length);
+      offset += (table.length + 3) & ~3;
+      contents[i++] = table;
+    }
+    for (byte[] table : contents) {
+      out.write(table);
+      for (int pad = -table.length & 3; pad > 0; pad--) {
+        out.writeByte(0);
+      }
+    }
+  }
+
+  /**
+   * Returns the checksum of a table, the sum of its big-endian 32-bit words padded with zeros.
+   */
+  private static int getChecksum(byte[] table) {
+    int sum = 0;
+    for (int i = 0; i < table.length; i += 4) {
+      int word = 0;
+      for (int j = i; j < i + 4; j++) {
+        word = (word << 8) | (j < table.length ? table[j] & 0xFF : 0);
+      }
+      sum += word;
+    }
+    return sum;
+  }
+
+  private long estimateRetainedSize(boolean advanced) {
+    long size = data.size() + glyphMetrics.estimateSize() + characterMap.estimateSize()
+        + 8L * kerning.getSlotCount() + 4L * widths.length;
+    if (advanced) {
+      // the decoded lookups take several times the size of their tables
+      size += ADVANCED_TABLE_WEIGHT * (getTableLength(OFTableName.GDEF)
+          + getTableLength(OFTableName.GSUB) + getTableLength(OFTableName.GPOS));
+    }
+    return size;
+  }
+
+  private void ensureAdvancedTables() {
+    if (advancedLoaded) {
+      return;
+    }
+    synchronized (advancedLock) {
+      if (advancedLoaded) {
+        return;
+      }
+      ByteBuffer in = advancedData;
+      try {
+        gdef = GlyphTableSnapshot.readGDEF(in);
+        gsub = GlyphTableSnapshot.readGSUB(in, gdef);
+        gpos = GlyphTableSnapshot.readGPOS(in, gdef);
+      } catch (IOException | RuntimeException e) {
+        throw new IllegalStateException("Can not read the advanced tables of " + fullName, e);
+      }
+      advancedData = null;
+      advancedLoaded = true;
+    }
+  }
+
+  private long getTableLength(OFTableName name) {
+    OFDirTabEntry dirTab = dirTabs.get(name);
+    return dirTab != null ? dirTab.getLength() : 0;
+  }
+
+  /**
+   * Estimates the memory held by the handle: the font file and the decoded tables.
+   */
+  long getRetainedSize() {
+    return retainedSize;
+  }
+
+  /**
+   * Returns the contents of the font file.
+   *
+   * @return the font data
+   */
+  public FontData getFontData() {
+    return data;
+  }
+
+  /**
+   * Checks if the font has a table.
+   *
+   * @param name
+   *     the table tag
+   * @return true if the table directory has an entry for the table
+   */
+  public boolean hasTable(OFTableName name) {
+    return dirTabs.containsKey(name);
+  }
+
+  /**
+   * Returns the contents of a table without copying them.
+   *
+   * @param name
+   *     the table tag
+   * @return a read-only buffer holding the table from position 0, or null if the font has no
+   *     such table
+   * @throws IOException
+   *     if the table directory points outside of the file
+   */
+  public ByteBuffer getTable(OFTableName name) throws IOException {
+    OFDirTabEntry dirTab = dirTabs.get(name);
+    if (dirTab == null) {
+      return null;
+    }
+    return data.slice((int) dirTab.getOffset(), (int) dirTab.getLength());
+  }
+
+  /** @return the unitsPerEm field of the "head" table */
+  public int getUnitsPerEm() {
+    return unitsPerEm;
+  }
+
+  /** @return the PostScript name */
+  public String getPostScriptName() {
+    return postScriptName;
+  }
+
+  /** @return the full name */
+  public String getFullName() {
+    return fullName;
+  }
+
+  /** @return the family names, not modifiable */
+  public Set<String> getFamilyNames() {
+    return familyNames;
+  }
+
+  /** @return the sub family name */
+  public String getSubFamilyName() {
+    return subFamilyName;
+  }
+
+  /** @return the copyright notice */
+  public String getCopyrightNotice() {
+    return copyrightNotice;
+  }
+
+  /** @return the cap height */
+  public int getCapHeight() {
+    return capHeight;
+  }
+
+  /** @return the x height */
+  public int getXHeight() {
+    return xHeight;
+  }
+
+  /** @return the lower case ascent */
+  public int getLowerCaseAscent() {
+    return ascender;
+  }
+
+  /** @return the lower case descent */
+  public int getLowerCaseDescent() {
+    return descender;
+  }
+
+  /** @return the font descriptor flags */
+  public int getFlags() {
+    return flags;
+  }
+
+  /** @return the weight class, 0 if the font has no OS/2 table */
+  public int getWeightClass() {
+    return weightClass;
+  }
+
+  /** @return the italic angle */
+  public String getItalicAngle() {
+    return italicAngle;
+  }
+
+  /** @return a new array holding the font bounding box (xMin, yMin, xMax, yMax) */
+  public int[] getFontBBox() {
+    return fontBBox.clone();
+  }
+
+  /** @return the underline position */
+  public int getUnderlinePosition() {
+    return underlinePosition;
+  }
+
+  /** @return the underline thickness */
+  public int getUnderlineThickness() {
+    return underlineThickness;
+  }
+
+  /** @return the strikeout position */
+  public int getStrikeoutPosition() {
+    return strikeoutPosition;
+  }
+
+  /** @return the strikeout thickness */
+  public int getStrikeoutThickness() {
+    return strikeoutThickness;
+  }
+
+  /** @return true if the font may be embedded */
+  public boolean isEmbeddable() {
+    return embeddable;
+  }
+
+  /** @return true if the font has CFF outlines */
+  public boolean isCFF() {
+    return cff;
+  }
+
+  /** @return the number of glyphs */
+  public int getNumGlyphs() {
+    return widths.length;
+  }
+
+  /**
+   * Returns the advance width of a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the width, or 0 if the glyph does not exist
+   */
+  public int getWidth(int glyph) {
+    return glyph >= 0 && glyph < widths.length ? widths[glyph] : 0;
+  }
+
+  /** @return a new array holding the advance width of every glyph */
+  public int[] getWidths() {
+    return widths.clone();
+  }
+
+  /**
+   * Returns the bounding box of a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return a new array holding xMin, yMin, xMax, yMax
+   */
+  public int[] getBBox(int glyph) {
+    int[] bbox = new int[4];
+    for (int i = 0; i < 4; i++) {
+      bbox[i] = OpenFont.convertTTFUnit2PDFUnit(glyphMetrics.getBBox(glyph, i), unitsPerEm);
+    }
+    return bbox;
+  }
+
+  /**
+   * Returns the per glyph data (widths, bounding boxes, names and code points) in font units.
+   *
+   * @return the glyph data
+   */
+  public GlyphMetrics getGlyphMetrics() {
+    return glyphMetrics;
+  }
+
+  /** @return the character to glyph mapping */
+  public CharacterMap getCharacterMap() {
+    return characterMap;
+  }
+
+  /**
+   * Map a unicode code point to the corresponding glyph index
+   *
+   * @param codePoint
+   *     unicode code point
+   * @return glyph index, or 0 (.notdef) if the code point is not mapped
+   */
+  public int getGlyphIndex(int codePoint) {
+    return characterMap.glyphForCodePoint(codePoint);
+  }
+
+  /**
+   * Map a glyph index to the corresponding unicode code point.
+   *
+   * @param glyph
+   *     glyph index
+   * @return unicode code point, or -1 if no code point maps to the glyph
+   */
+  public int getCodePoint(int glyph) {
+    return characterMap.codePointForGlyph(glyph);
+  }
+
+  /**
+   * Returns the kerning between two glyphs.
+   *
+   * @param leftGlyph
+   *     the first glyph index
+   * @param rightGlyph
+   *     the second glyph index
+   * @return the kerning, 0 if the pair is not kerned
+   */
+  public int getKern(int leftGlyph, int rightGlyph) {
+    return kerning.getKern(leftGlyph, rightGlyph);
+  }
+
+  /** @return the kerning of glyph pairs, empty if kerning was not selected */
+  public KerningTable getKerningTable() {
+    return kerning;
+  }
+
+  /** @return the GDEF table or null */
+  public GlyphDefinitionTable getGDEF() {
+    ensureAdvancedTables();
+    return gdef;
+  }
+
+  /** @return the GSUB table or null */
+  public GlyphSubstitutionTable getGSUB() {
+    ensureAdvancedTables();
+    return gsub;
+  }
+
+  /** @return the GPOS table or null */
+  public GlyphPositioningTable getGPOS() {
+    ensureAdvancedTables();
+    return gpos;
+  }
+
+  /**
+   * Returns the shaping plan of a script and language, applying the features the script
+   * processor applies by default.
+   *
+   * @see OpenFont#getShapingPlan(String, String)
+   */
+  public ShapingPlan getShapingPlan(String script, String language) {
+    return getShapingPlan(script, language, null);
+  }
+
+  /**
+   * Returns the shaping plan of a script, language and set of features.
+   *
+   * @see OpenFont#getShapingPlan(String, String, String[])
+   */
+  public ShapingPlan getShapingPlan(String script, String language, String[] features) {
+    String key = OpenFont.getShapingPlanKey(script, language, features);
+    ShapingPlan plan = shapingPlans.get(key);
+    if (plan == null) {
+      ensureAdvancedTables();
+      ShapingPlan compiled = ShapingPlan.compile(gsub, gpos, script, language, features);
+      plan = shapingPlans.putIfAbsent(key, compiled);
+      if (plan == null) {
+        plan = compiled;
+      }
+    }
+    return plan;
+  }
+
+}
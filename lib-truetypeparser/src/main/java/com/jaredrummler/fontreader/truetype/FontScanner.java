@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import com.jaredrummler.fontreader.fonts.FontUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the fonts in directories and reads their names, style and weight into a
+ * {@link FontCatalog}. Only the table directory, "name" and "OS/2" tables of each file are read,
+ * through a {@link ChannelFontFileReader}, and the files are parsed in parallel.
+ *
+ * <pre>
+ * FontCatalog catalog = new FontScanner().scan(new File("/usr/share/fonts"));
+ * FontCatalog.Entry entry = catalog.findBest(new FontTriplet("DejaVu Sans", "normal", 700));
+ * </pre>
+ */
+public final class FontScanner {
+
+  private static final ParseOptions OPTIONS = new ParseOptions.Builder()
+      .clearTables()
+      .names(true)
+      .os2(true)
+      .build();
+
+  private static final String[] EXTENSIONS = {".ttf", ".otf", ".ttc"};
+
+  private final ExecutorService executor;
+  private final int parallelism;
+
+  /**
+   * Creates a scanner using one thread per available processor.
+   */
+  public FontScanner() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a scanner that parses fonts on a pool of the given size for each scan.
+   *
+   * @param parallelism
+   *     the number of threads
+   */
+  public FontScanner(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.executor = null;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Creates a scanner that parses fonts on the given executor, for example a
+   * {@link java.util.concurrent.ForkJoinPool}. The executor is not shut down by the scanner.
+   *
+   * @param executor
+   *     the executor to run the parse tasks on
+   */
+  public FontScanner(ExecutorService executor) {
+    if (executor == null) {
+      throw new NullPointerException("executor");
+    }
+    this.executor = executor;
+    this.parallelism = 0;
+  }
+
+  /**
+   * Scans directories and their subdirectories for TrueType and OpenType fonts (.ttf, .otf and
+   * .ttc files). Files that can not be parsed are listed by
+   * {@link FontCatalog#getUnreadableFiles()}.
+   *
+   * @param directories
+   *     the directories to scan
+   * @return the catalog of the fonts found
+   * @throws IOException
+   *     if the scan was interrupted
+   */
+  public FontCatalog scan(File... directories) throws IOException {
+    return scan(collectFonts(directories));
+  }
+
+  /**
+   * Scans directories like {@link #scan(File...)}, but takes the entries of the files that have
+   * the same size and modification time as in a previous catalog from that catalog instead of
+   * parsing them again.
+   *
+   * @param previous
+   *     the catalog of an earlier scan
+   * @param directories
+   *     the directories to scan
+   * @return the catalog of the fonts found
+   * @throws IOException
+   *     if the scan was interrupted
+   */
+  public FontCatalog rescan(FontCatalog previous, File... directories) throws IOException {
+    return rescan(previous, directories, new boolean[1]);
+  }
+
+  /**
+   * Scans directories, reusing the catalog saved in a file by an earlier call. The catalog file
+   * is rewritten when fonts were added, changed or removed. A missing or unreadable catalog file
+   * leads to a full scan.
+   *
+   * @param catalogFile
+   *     the file the catalog is saved in
+   * @param directories
+   *     the directories to scan
+   * @return the catalog of the fonts found
+   * @throws IOException
+   *     if the catalog file can not be written or the scan was interrupted
+   */
+  public FontCatalog update(File catalogFile, File... directories) throws IOException {
+    FontCatalog previous = null;
+    if (catalogFile.isFile()) {
+      try {
+        previous = FontCatalog.read(catalogFile);
+      } catch (IOException e) {
+        // an old or damaged catalog is replaced by a full scan
+      }
+    }
+    FontCatalog catalog;
+    boolean[] modified = {true};
+    if (previous != null) {
+      catalog = rescan(previous, directories, modified);
+    } else {
+      catalog = scan(directories);
+    }
+    if (modified[0]) {
+      catalog.write(catalogFile);
+    }
+    return catalog;
+  }
+
+  private FontCatalog rescan(FontCatalog previous, File[] directories, boolean[] modified)
+      throws IOException {
+    Map<String, List<FontCatalog.Entry>> known = new HashMap<>();
+    for (FontCatalog.Entry entry : previous.getEntries()) {
+      String path = entry.getFile().getAbsolutePath();
+      List<FontCatalog.Entry> list = known.get(path);
+      if (list == null) {
+        list = new ArrayList<>(1);
+        known.put(path, list);
+      }
+      list.add(entry);
+    }
+    Map<String, Integer> knownUnreadable = new HashMap<>();
+    List<File> previousUnreadable = previous.getUnreadableFiles();
+    for (int i = 0; i < previousUnreadable.size(); i++) {
+      knownUnreadable.put(previousUnreadable.get(i).getAbsolutePath(), i);
+    }
+
+    List<File> files = collectFonts(directories);
+    List<File> changed = new ArrayList<>();
+    List<FontCatalog.Entry> entries = new ArrayList<>(previous.size());
+    List<File> unreadable = new ArrayList<>();
+    long[] stamps = new long[2 * previousUnreadable.size()];
+    for (File file : files) {
+      String path = file.getAbsolutePath();
+      long lastModified = file.lastModified();
+      long length = file.length();
+      List<FontCatalog.Entry> list = known.get(path);
+      Integer u = knownUnreadable.get(path);
+      if (list != null && list.get(0).getLastModified() == lastModified
+          && list.get(0).getLength() == length) {
+        entries.addAll(list);
+      } else if (u != null && previous.getUnreadableLastModified(u) == lastModified
+          && previous.getUnreadableLength(u) == length) {
+        stamps[2 * unreadable.size()] = lastModified;
+        stamps[2 * unreadable.size() + 1] = length;
+        unreadable.add(file);
+      } else {
+        changed.add(file);
+      }
+    }
+    // something changed if a file was added or modified or if one of the old ones is gone
+    modified[0] = !changed.isEmpty() || entries.size() != previous.size()
+        || unreadable.size() != previousUnreadable.size();
+    return parse(changed, entries, unreadable, copyOf(stamps, 2 * unreadable.size()));
+  }
+
+  /**
+   * Reads the given font files into a catalog.
+   *
+   * @param files
+   *     the font files
+   * @return the catalog of the fonts
+   * @throws IOException
+   *     if the scan was interrupted
+   */
+  public FontCatalog scan(List<File> files) throws IOException {
+    return parse(files, new ArrayList<FontCatalog.Entry>(files.size()), new ArrayList<File>(),
+        new long[0]);
+  }
+
+  /**
+   * Parses font files and adds them to the entries and unreadable files of a catalog.
+   */
+  private FontCatalog parse(List<File> files, List<FontCatalog.Entry> entries,
+                            List<File> unreadable, long[] unreadableStamps) throws IOException {
+    List<Callable<List<FontCatalog.Entry>>> tasks = new ArrayList<>(files.size());
+    for (final File file : files) {
+      tasks.add(new Callable<List<FontCatalog.Entry>>() {
+
+        @Override public List<FontCatalog.Entry> call() throws IOException {
+          return readFile(file);
+        }
+      });
+    }
+    long[] stamps = new long[2 * files.size()];
+    for (int i = 0; i < files.size(); i++) {
+      stamps[2 * i] = files.get(i).lastModified();
+      stamps[2 * i + 1] = files.get(i).length();
+    }
+    int stampCount = unreadableStamps.length;
+    unreadableStamps = copyOf(unreadableStamps, stampCount + stamps.length);
+    ExecutorService pool = null;
+    try {
+      if (!tasks.isEmpty()) {
+        pool = executor != null ? executor : Executors.newFixedThreadPool(parallelism);
+        List<Future<List<FontCatalog.Entry>>> results = pool.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+          try {
+            entries.addAll(results.get(i).get());
+          } catch (ExecutionException e) {
+            unreadable.add(files.get(i));
+            unreadableStamps[stampCount++] = stamps[2 * i];
+            unreadableStamps[stampCount++] = stamps[2 * i + 1];
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Font scan interrupted");
+    } finally {
+      if (pool != null && executor == null) {
+        pool.shutdown();
+      }
+    }
+    Collections.sort(entries, new Comparator<FontCatalog.Entry>() {
+
+      @Override public int compare(FontCatalog.Entry e1, FontCatalog.Entry e2) {
+        int c = e1.getFile().getPath().compareTo(e2.getFile().getPath());
+        return c != 0 ? c : e1.getIndex() - e2.getIndex();
+      }
+    });
+    return new FontCatalog(entries, unreadable, copyOf(unreadableStamps, stampCount));
+  }
+
+  /**
+   * Reads the names, style and weight of the fonts in a file, one entry per member of a TrueType
+   * collection.
+   *
+   * @param file
+   *     the font file
+   * @return the entries of the fonts
+   * @throws IOException
+   *     if the file can not be parsed
+   */
+  static List<FontCatalog.Entry> readFile(File file) throws IOException {
+    long lastModified = file.lastModified();
+    long length = file.length();
+    List<FontCatalog.Entry> entries = new ArrayList<>(1);
+    ChannelFontFileReader reader = new ChannelFontFileReader(file);
+    try {
+      TTFCollection collection = TTFFile.openCollection(reader);
+      for (int i = 0; i < collection.size(); i++) {
+        entries.add(createEntry(file, i, lastModified, length, collection.open(i, OPTIONS)));
+      }
+    } finally {
+      reader.close();
+    }
+    return entries;
+  }
+
+  private static FontCatalog.Entry createEntry(File file, int index, long lastModified,
+                                               long length, OpenFont font) {
+    String fullName = font.getFullName();
+    String searchName = (font.getSubFamilyName() + " " + fullName).toLowerCase(Locale.ENGLISH);
+    int weight = font.getWeightClass();
+    if (weight == 0) {
+      weight = FontUtil.guessWeight(searchName);
+    }
+    return new FontCatalog.Entry(file, index, lastModified, length, font.getPostScriptName(),
+        fullName, new ArrayList<>(font.getFamilyNames()), font.getSubFamilyName(),
+        FontUtil.guessStyle(searchName), weight);
+  }
+
+  private static List<File> collectFonts(File[] directories) throws IOException {
+    List<File> files = new ArrayList<>();
+    Set<String> visited = new HashSet<>();
+    for (File directory : directories) {
+      collectFonts(directory, files, visited);
+    }
+    return files;
+  }
+
+  private static void collectFonts(File directory, List<File> files, Set<String> visited)
+      throws IOException {
+    if (!visited.add(directory.getCanonicalPath())) {
+      return; // linked more than once
+    }
+    File[] children = directory.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (child.isDirectory()) {
+        collectFonts(child, files, visited);
+      } else if (isFontFile(child.getName())) {
+        files.add(child);
+      }
+    }
+  }
+
+  private static boolean isFontFile(String name) {
+    String lower = name.toLowerCase(Locale.ENGLISH);
+    for (String extension : EXTENSIONS) {
+      if (lower.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Arrays.copyOf is not available before Android API level 9
+  private static long[] copyOf(long[] values, int length) {
+    long[] result = new long[length];
+    System.arraycopy(values, 0, result, 0, Math.min(length, values.length));
+    return result;
+  }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves a decoded font to a file and loads it again without parsing the font. A snapshot holds
+ * the primitive arrays behind a {@link FontHandle} (metrics, glyph data, character map and
+ * kerning) followed by the tables of the font, written as a font file of their own, and is
+ * memory-mapped when it is loaded: the arrays are copied out in bulk and the font data is used
+ * in place. A member of a collection is stored with its own tables only. The snapshot ends with
+ * a CRC-32 of its contents, which is verified before anything else is read.
+ *
+ * <p>GDEF, GSUB and GPOS are stored as their decoded lookups, coverage tables and class tables,
+ * so a loaded handle creates them without reading the tables of the font again. They are created
+ * the first time the handle is asked for one of them.</p>
+ *
+ * <pre>
+ * FontSnapshot.write(FontHandle.open(fontFile, ParseOptions.ALL), snapshotFile);
+ * ...
+ * FontHandle font = FontSnapshot.read(snapshotFile);
+ * </pre>
+ */
+public final class FontSnapshot {
+
+  private static final int MAGIC = 0x46534E50; // "FSNP"
+  /** The format version, incremented whenever the layout of a snapshot changes. */
+  public static final int VERSION = 4;
+
+  private FontSnapshot() {
+  }
+
+  /**
+   * Writes a snapshot of a font. The file is written next to the target and then renamed.
+   *
+   * @param font
+   *     the font
+   * @param file
+   *     the snapshot file
+   * @throws IOException
+   *     if the file can not be written
+   */
+  public static void write(FontHandle font, File file) throws IOException {
+    File tmp = new File(file.getPath() + ".tmp");
+    CRC32 crc = new CRC32();
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(tmp), 64 * 1024));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      DataOutputStream content = new DataOutputStream(new CheckedOutputStream(out, crc));
+      font.write(content);
+      content.flush();
+      out.writeInt((int) crc.getValue());
+    } finally {
+      out.close();
+    }
+    if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+      tmp.delete();
+      throw new IOException("Can not replace " + file);
+    }
+  }
+
+  /**
+   * Loads a snapshot written by {@link #write(FontHandle, File)}. The file is memory-mapped and
+   * the font data of the handle refers to the mapping.
+   *
+   * @param file
+   *     the snapshot file
+   * @return the font
+   * @throws IOException
+   *     if the file can not be read, was written by another version or is corrupt
+   */
+  public static FontHandle read(File file) throws IOException {
+    ByteBuffer in;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      raf.close();
+    }
+    try {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        throw new IOException("Not a font snapshot of version " + VERSION + ": " + file);
+      }
+      int end = in.limit() - 4;
+      check(end >= in.position() && getChecksum(in, end) == in.getInt(end), "checksum");
+      in.limit(end);
+      return new FontHandle(in);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+        | NegativeArraySizeException e) {
+      IOException ioe = new IOException("Corrupt font snapshot: " + file);
+      ioe.initCause(e); // IOException(String, Throwable) needs Android API level 9
+      throw ioe;
+    }
+  }
+
+  /**
+   * Returns the CRC-32 of the bytes from the position of a buffer to the given end, leaving the
+   * position unchanged.
+   */
+  private static int getChecksum(ByteBuffer in, int end) {
+    CRC32 crc = new CRC32();
+    ByteBuffer bytes = in.duplicate();
+    byte[] chunk = new byte[8192];
+    while (bytes.position() < end) {
+      int length = Math.min(chunk.length, end - bytes.position());
+      bytes.get(chunk, 0, length);
+      crc.update(chunk, 0, length);
+    }
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Checks a condition on the data read from a snapshot.
+   *
+   * @throws IllegalArgumentException
+   *     if the condition is false, reported as a corrupt snapshot by {@link #read(File)}
+   */
+  static void check(boolean valid, String what) {
+    if (!valid) {
+      throw new IllegalArgumentException("Invalid " + what);
+    }
+  }
+
+  // arrays are stored as their length, -1 for null, followed by the elements
+
+  static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+    if (values == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(length);
+    for (int i = 0; i < length; i++) {
+      out.writeInt(values[i]);
+    }
+  }
+
+  static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    writeInts(out, values, values != null ? values.length : 0);
+  }
+
+  static int[] readInts(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    int[] values = new int[length];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + 4 * length);
+    return values;
+  }
+
+  static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+    out.writeInt(values.length);
+    for (short value : values) {
+      out.writeShort(value);
+    }
+  }
+
+  static short[] readShorts(ByteBuffer in) {
+    short[] values = new short[in.getInt()];
+    in.asShortBuffer().get(values);
+    in.position(in.position() + 2 * values.length);
+    return values;
+  }
+
+  static void writeChars(DataOutputStream out, char[] values) throws IOException {
+    out.writeInt(values.length);
+    for (char value : values) {
+      out.writeChar(value);
+    }
+  }
+
+  static char[] readChars(ByteBuffer in) {
+    char[] values = new char[in.getInt()];
+    in.asCharBuffer().get(values);
+    in.position(in.position() + 2 * values.length);
+    return values;
+  }
+
+  static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+    if (values == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(values.length);
+    out.write(values);
+  }
+
+  static byte[] readBytes(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] values = new byte[length];
+    in.get(values);
+    return values;
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    writeBytes(out, value.getBytes("UTF-8"));
+  }
+
+  static String readString(ByteBuffer in) throws IOException {
+    return new String(readBytes(in), "UTF-8");
+  }
+
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Per glyph data of a font stored in primitive arrays indexed by glyph index: advance widths and
+ * left side bearings from "hmtx", glyph offsets and bounding boxes from "loca"/"glyf", names from
+ * "post" and the Unicode code points mapped to each glyph by the "cmap".
+ *
+ * <p>Glyph names are kept as the raw Pascal strings of the "post" table and only converted to a
+ * String when asked for.</p>
+ */
+public final class GlyphMetrics {
+
+  private static final int[] EMPTY = new int[0];
+
+  private final int numGlyphs;
+  private final int[] advances;
+  private final short[] lsbs;
+  private final int[] offsets;
+  private final short[] bboxes; // xMin, yMin, xMax, yMax per glyph
+  private final BitSet decodedBBoxes; // glyphs whose bounding box was read from "glyf"
+
+  // glyph names
+  private int postFormat; // 0 (no names), 1 or 2
+  private int[] postIndexes; // format 2 name index per glyph
+  private byte[] nameData; // format 2 Pascal strings
+  private int[] nameOffsets; // start of each Pascal string in nameData
+
+  // Unicode code points, appended per glyph while the cmap is read and then compacted so the
+  // code points of glyph g are unicodes[unicodeStarts[g]] to unicodes[unicodeStarts[g + 1] - 1]
+  private int[] unicodeCounts;
+  private int[] pairGlyphs;
+  private int[] pairUnicodes;
+  private int numPairs;
+  private int[] unicodeStarts;
+  private int[] unicodes = EMPTY;
+
+  GlyphMetrics(int numGlyphs) {
+    this(numGlyphs, new int[numGlyphs], new short[numGlyphs], new int[numGlyphs],
+        new short[numGlyphs * 4]);
+    this.unicodeCounts = new int[numGlyphs];
+  }
+
+  private GlyphMetrics(int numGlyphs, int[] advances, short[] lsbs, int[] offsets,
+                       short[] bboxes) {
+    this.numGlyphs = numGlyphs;
+    this.advances = advances;
+    this.lsbs = lsbs;
+    this.offsets = offsets;
+    this.bboxes = bboxes;
+    this.decodedBBoxes = new BitSet(numGlyphs);
+  }
+
+  /**
+   * Writes the glyph data for {@link FontSnapshot}. The code points must have been compacted.
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(numGlyphs);
+    FontSnapshot.writeInts(out, advances);
+    FontSnapshot.writeShorts(out, lsbs);
+    FontSnapshot.writeInts(out, offsets);
+    FontSnapshot.writeShorts(out, bboxes);
+    out.writeInt(postFormat);
+    FontSnapshot.writeInts(out, postIndexes);
+    FontSnapshot.writeBytes(out, nameData);
+    FontSnapshot.writeInts(out, nameOffsets);
+    FontSnapshot.writeInts(out, unicodeStarts);
+    FontSnapshot.writeInts(out, unicodes);
+  }
+
+  /**
+   * Reads glyph data written by {@link #write(DataOutputStream)}. All bounding boxes count as
+   * decoded.
+   */
+  static GlyphMetrics read(ByteBuffer in) {
+    int numGlyphs = in.getInt();
+    GlyphMetrics metrics = new GlyphMetrics(numGlyphs, FontSnapshot.readInts(in),
+        FontSnapshot.readShorts(in), FontSnapshot.readInts(in), FontSnapshot.readShorts(in));
+    FontSnapshot.check(metrics.advances.length == numGlyphs && metrics.lsbs.length == numGlyphs
+        && metrics.offsets.length == numGlyphs && metrics.bboxes.length == 4 * numGlyphs,
+        "glyph metrics");
+    metrics.decodedBBoxes.set(0, numGlyphs);
+    metrics.postFormat = in.getInt();
+    metrics.postIndexes = FontSnapshot.readInts(in);
+    metrics.nameData = FontSnapshot.readBytes(in);
+    metrics.nameOffsets = FontSnapshot.readInts(in);
+    metrics.unicodeStarts = FontSnapshot.readInts(in);
+    metrics.unicodes = FontSnapshot.readInts(in);
+    int[] starts = metrics.unicodeStarts;
+    FontSnapshot.check(starts == null || (starts.length == numGlyphs + 1 && starts[0] == 0
+        && starts[numGlyphs] == metrics.unicodes.length), "glyph code points");
+    if (metrics.unicodeStarts == null) {
+      metrics.unicodeCounts = new int[numGlyphs]; // the cmap was not read
+    }
+    return metrics;
+  }
+
+  /**
+   * Returns the number of glyphs.
+   *
+   * @return the number of glyphs
+   */
+  public int getNumGlyphs() {
+    return numGlyphs;
+  }
+
+  /**
+   * Returns the advance width of a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the advance width in font units
+   */
+  public int getAdvance(int glyph) {
+    return advances[glyph];
+  }
+
+  /**
+   * Returns the left side bearing of a glyph, as an unsigned value as read by earlier versions.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the left side bearing in font units
+   */
+  public int getLsb(int glyph) {
+    return lsbs[glyph] & 0xffff;
+  }
+
+  /**
+   * Returns the offset of a glyph in the "glyf" table.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the offset, relative to the start of the "glyf" table
+   */
+  public int getOffset(int glyph) {
+    return offsets[glyph];
+  }
+
+  /**
+   * Returns one coordinate of a glyph's bounding box.
+   *
+   * @param glyph
+   *     the glyph index
+   * @param index
+   *     0 for xMin, 1 for yMin, 2 for xMax and 3 for yMax
+   * @return the coordinate in font units
+   */
+  public int getBBox(int glyph, int index) {
+    return bboxes[glyph * 4 + index];
+  }
+
+  /**
+   * Returns the bounding box of a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return a new array holding xMin, yMin, xMax, yMax in font units
+   */
+  public int[] getBBox(int glyph) {
+    int i = glyph * 4;
+    return new int[]{bboxes[i], bboxes[i + 1], bboxes[i + 2], bboxes[i + 3]};
+  }
+
+  /**
+   * Returns the "post" table name index of a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the name index, or 0 if the "post" table has no name indexes
+   */
+  public int getPostIndex(int glyph) {
+    return postIndexes != null && glyph < postIndexes.length ? postIndexes[glyph] : 0;
+  }
+
+  /**
+   * Returns the PostScript name of a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the glyph name, or an empty string if the glyph has no name
+   */
+  public String getName(int glyph) {
+    if (postFormat == 1) {
+      return glyph < OpenFont.MAC_GLYPH_ORDERING.length ? OpenFont.MAC_GLYPH_ORDERING[glyph] : "";
+    } else if (postFormat == 2 && glyph < postIndexes.length) {
+      int index = postIndexes[glyph];
+      if (index < OpenFont.MAC_GLYPH_ORDERING.length) {
+        return OpenFont.MAC_GLYPH_ORDERING[index];
+      } else if (!isReserved(index)) {
+        int offset = nameOffsets[index - OpenFont.MAC_GLYPH_ORDERING.length];
+        int length = nameData[offset] & 0xff;
+        try {
+          String encoding = length > 0 && nameData[offset + 1] == 0 ? "UTF-16BE" : "ISO-8859-1";
+          return new String(nameData, offset + 1, length, encoding);
+        } catch (UnsupportedEncodingException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return "";
+  }
+
+  /**
+   * Checks a glyph's name without creating a String for it.
+   *
+   * @param glyph
+   *     the glyph index
+   * @param name
+   *     a name consisting of ISO-8859-1 characters
+   * @return true if the glyph has the given name
+   */
+  public boolean hasName(int glyph, String name) {
+    if (postFormat == 2 && glyph < postIndexes.length) {
+      int index = postIndexes[glyph];
+      if (index >= OpenFont.MAC_GLYPH_ORDERING.length && !isReserved(index)) {
+        int offset = nameOffsets[index - OpenFont.MAC_GLYPH_ORDERING.length];
+        int length = nameData[offset] & 0xff;
+        if (length != name.length()) {
+          return false;
+        }
+        for (int i = 0; i < length; i++) {
+          if ((nameData[offset + 1 + i] & 0xff) != name.charAt(i)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+    return name.equals(getName(glyph));
+  }
+
+  /**
+   * Returns the number of Unicode code points mapped to a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @return the number of code points
+   */
+  public int getUnicodeCount(int glyph) {
+    if (unicodeStarts == null) {
+      return unicodeCounts[glyph];
+    }
+    return unicodeStarts[glyph + 1] - unicodeStarts[glyph];
+  }
+
+  /**
+   * Returns a Unicode code point mapped to a glyph.
+   *
+   * @param glyph
+   *     the glyph index
+   * @param index
+   *     the index of the mapping, less than {@link #getUnicodeCount(int)}
+   * @return the code point
+   */
+  public int getUnicode(int glyph, int index) {
+    return unicodes[unicodeStarts[glyph] + index];
+  }
+
+  /**
+   * Estimates the heap memory held by the glyph data.
+   */
+  long estimateSize() {
+    long size = 18L * numGlyphs + 4L * unicodes.length;
+    if (unicodeStarts != null) {
+      size += 4L * unicodeStarts.length;
+    }
+    if (postIndexes != null) {
+      size += 4L * (postIndexes.length + nameOffsets.length) + nameData.length;
+    }
+    return size;
+  }
+
+  void setMetrics(int glyph, int advance, int lsb) {
+    advances[glyph] = advance;
+    lsbs[glyph] = (short) lsb;
+  }
+
+  void setOffset(int glyph, long offset) {
+    offsets[glyph] = (int) offset;
+  }
+
+  void setBBox(int glyph, int xMin, int yMin, int xMax, int yMax) {
+    int i = glyph * 4;
+    bboxes[i] = (short) xMin;
+    bboxes[i + 1] = (short) yMin;
+    bboxes[i + 2] = (short) xMax;
+    bboxes[i + 3] = (short) yMax;
+    decodedBBoxes.set(glyph);
+  }
+
+  /**
+   * Checks if the bounding box of a glyph was set by {@link #setBBox(int, int, int, int, int)}.
+   */
+  boolean hasBBox(int glyph) {
+    return decodedBBoxes.get(glyph);
+  }
+
+  /**
+   * Uses the standard Macintosh glyph names ("post" format 1).
+   */
+  void setStandardNames() {
+    postFormat = 1;
+  }
+
+  /**
+   * Sets the "post" format 2 glyph names.
+   *
+   * @param indexes
+   *     the name index of the first indexes.length glyphs
+   * @param data
+   *     the Pascal strings of the names with an index above the standard names
+   * @param dataOffsets
+   *     the offset of each Pascal string in data
+   */
+  void setNames(int[] indexes, byte[] data, int[] dataOffsets) {
+    postFormat = 2;
+    postIndexes = indexes;
+    nameData = data;
+    nameOffsets = dataOffsets;
+  }
+
+  /**
+   * Maps a Unicode code point to a glyph. Must be followed by {@link #compactUnicodes()} once all
+   * mappings were added.
+   */
+  void addUnicode(int glyph, int unicode) {
+    unicodeCounts[glyph]++;
+    if (pairGlyphs == null) {
+      pairGlyphs = new int[Math.max(16, numGlyphs)];
+      pairUnicodes = new int[pairGlyphs.length];
+    } else if (numPairs == pairGlyphs.length) {
+      pairGlyphs = grow(pairGlyphs, numPairs * 2);
+      pairUnicodes = grow(pairUnicodes, numPairs * 2);
+    }
+    pairGlyphs[numPairs] = glyph;
+    pairUnicodes[numPairs] = unicode;
+    numPairs++;
+  }
+
+  /**
+   * Groups the mappings added by {@link #addUnicode(int, int)} by glyph, keeping the order in
+   * which they were added.
+   */
+  void compactUnicodes() {
+    int[] starts = new int[numGlyphs + 1];
+    for (int g = 0; g < numGlyphs; g++) {
+      starts[g + 1] = starts[g] + unicodeCounts[g];
+    }
+    int[] values = new int[numPairs];
+    int[] next = unicodeCounts; // reused as the insert position of each glyph
+    System.arraycopy(starts, 0, next, 0, numGlyphs);
+    for (int i = 0; i < numPairs; i++) {
+      values[next[pairGlyphs[i]]++] = pairUnicodes[i];
+    }
+    unicodeStarts = starts;
+    unicodes = values;
+    unicodeCounts = null;
+    pairGlyphs = null;
+    pairUnicodes = null;
+    numPairs = 0;
+  }
+
+  // Arrays.copyOf is not available before Android API level 9
+  private static int[] grow(int[] values, int size) {
+    int[] result = new int[size];
+    System.arraycopy(values, 0, result, 0, values.length);
+    return result;
+  }
+
+  private static boolean isReserved(int index) {
+    return index >= 32768 && index <= 65535;
+  }
+
+}
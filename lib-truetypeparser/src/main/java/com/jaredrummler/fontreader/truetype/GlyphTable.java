@@ -32,7 +32,6 @@ import com.jaredrummler.fontreader.util.ScriptContextTester;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -40,6 +39,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Base class for all advanced typographic glyph tables.</p>
@@ -91,7 +91,7 @@ public class GlyphTable {
       this.gdef = gdef;
       this.lookups = lookups;
       this.lookupTables = new LinkedHashMap<>();
-      this.matchedLookups = new HashMap<>();
+      this.matchedLookups = new ConcurrentHashMap<>();
     }
   }
 
@@ -140,6 +140,30 @@ public class GlyphTable {
     return lookupTables.get(lid);
   }
 
+  /**
+   * Obtain the lookup identifiers of each lookup specification, as given when the table was
+   * created.
+   *
+   * @return map from lookup specs to lists of lookup identifiers
+   */
+  protected Map<LookupSpec, List<String>> getLookupIdentifiers() {
+    return lookups;
+  }
+
+  /**
+   * Obtain the subtables that were added, grouped by lookup table in the order the lookup tables
+   * were added.
+   *
+   * @return (possibly empty) list of subtables
+   */
+  protected List<GlyphSubtable> getSubtables() {
+    List<GlyphSubtable> subtables = new ArrayList<>();
+    for (LookupTable lt : lookupTables.values()) {
+      subtables.addAll(lt.subtables);
+    }
+    return subtables;
+  }
+
   /**
    * Add a subtable.
    *
@@ -0,0 +1,752 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphClassTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphCoverageTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphDefinitionTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphMappingTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphMappingTable.MappingRange;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable.Anchor;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable.DeviceTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable.MarkAnchor;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable.PairValues;
+import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable.Value;
+import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable;
+import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable.Ligature;
+import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable.LigatureSet;
+import com.jaredrummler.fontreader.fonts.GlyphSubtable;
+import com.jaredrummler.fontreader.truetype.GlyphTable.ChainedClassSequenceRule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.ChainedCoverageSequenceRule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.ChainedGlyphSequenceRule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.ClassSequenceRule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.CoverageSequenceRule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.GlyphSequenceRule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.HomogeneousRuleSet;
+import com.jaredrummler.fontreader.truetype.GlyphTable.LookupSpec;
+import com.jaredrummler.fontreader.truetype.GlyphTable.Rule;
+import com.jaredrummler.fontreader.truetype.GlyphTable.RuleLookup;
+import com.jaredrummler.fontreader.truetype.GlyphTable.RuleSet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Writes the decoded GDEF, GSUB and GPOS tables of a font for {@link FontSnapshot} and creates
+ * them again without reading the tables of the font. A subtable is stored as the arguments of
+ * the <code>createSubtable</code> method of its table: its lookup, flags, format, coverage and
+ * the entries returned by {@link GlyphSubtable#getEntries()}, which hold the rules, class tables,
+ * values and anchors of the subtable.
+ */
+final class GlyphTableSnapshot {
+
+  // the types of the subtable entries
+  private static final int NULL = 0;
+  private static final int INTEGER = 1;
+  private static final int INTS = 2;
+  private static final int INTS_ARRAY = 3;
+  private static final int COVERAGE = 4;
+  private static final int CLASSES = 5;
+  private static final int LIGATURE_SET = 6;
+  private static final int RULE_SETS = 7;
+  private static final int VALUE = 8;
+  private static final int VALUES = 9;
+  private static final int PAIR_VALUES = 10;
+  private static final int ANCHORS = 11;
+  private static final int MARK_ANCHORS = 12;
+  private static final int ANCHOR_MATRIX = 13;
+  private static final int ANCHOR_MATRICES = 14;
+
+  // the types of the rules
+  private static final int GLYPH_RULE = 1;
+  private static final int CLASS_RULE = 2;
+  private static final int COVERAGE_RULE = 3;
+  private static final int CHAINED_GLYPH_RULE = 4;
+  private static final int CHAINED_CLASS_RULE = 5;
+  private static final int CHAINED_COVERAGE_RULE = 6;
+
+  private GlyphTableSnapshot() {
+  }
+
+  /**
+   * Writes the glyph definition table, which may be null.
+   */
+  static void writeGDEF(DataOutputStream out, GlyphDefinitionTable gdef) throws IOException {
+    out.writeBoolean(gdef != null);
+    if (gdef != null) {
+      // GlyphDefinitionTable keeps its subtables itself and overrides getSubtables
+      writeSubtables(out, ((GlyphTable) gdef).getSubtables());
+    }
+  }
+
+  /**
+   * Writes a glyph substitution or positioning table, which may be null.
+   */
+  static void writeTable(DataOutputStream out, GlyphTable table) throws IOException {
+    out.writeBoolean(table != null);
+    if (table != null) {
+      Map<LookupSpec, List<String>> lookups = table.getLookupIdentifiers();
+      out.writeInt(lookups.size());
+      for (Entry<LookupSpec, List<String>> entry : lookups.entrySet()) {
+        LookupSpec spec = entry.getKey();
+        FontSnapshot.writeString(out, spec.getScript());
+        FontSnapshot.writeString(out, spec.getLanguage());
+        FontSnapshot.writeString(out, spec.getFeature());
+        out.writeInt(entry.getValue().size());
+        for (String id : entry.getValue()) {
+          FontSnapshot.writeString(out, id);
+        }
+      }
+      writeSubtables(out, table.getSubtables());
+    }
+  }
+
+  /**
+   * Reads a table written by {@link #writeGDEF(DataOutputStream, GlyphDefinitionTable)}.
+   */
+  static GlyphDefinitionTable readGDEF(ByteBuffer in) throws IOException {
+    GlyphDefinitionTable gdef = null;
+    if (in.get() != 0) {
+      List<GlyphSubtable> subtables = new ArrayList<>();
+      for (int i = in.getInt(); i > 0; i--) {
+        int type = in.getInt();
+        String id = FontSnapshot.readString(in);
+        int sequence = in.getInt();
+        int flags = in.getInt();
+        int format = in.getInt();
+        GlyphMappingTable mapping = (GlyphMappingTable) readEntry(in);
+        subtables.add(GlyphDefinitionTable.createSubtable(type, id, sequence, flags, format, mapping,
+            readEntries(in)));
+      }
+      gdef = new GlyphDefinitionTable(subtables);
+    }
+    return gdef;
+  }
+
+  /**
+   * Reads a table written by {@link #writeTable(DataOutputStream, GlyphTable)}.
+   */
+  static GlyphSubstitutionTable readGSUB(ByteBuffer in, GlyphDefinitionTable gdef)
+      throws IOException {
+    GlyphSubstitutionTable gsub = null;
+    if (in.get() != 0) {
+      Map<LookupSpec, List<String>> lookups = readLookups(in);
+      List<GlyphSubtable> subtables = new ArrayList<>();
+      for (int i = in.getInt(); i > 0; i--) {
+        int type = in.getInt();
+        String id = FontSnapshot.readString(in);
+        int sequence = in.getInt();
+        int flags = in.getInt();
+        int format = in.getInt();
+        GlyphCoverageTable coverage = (GlyphCoverageTable) readEntry(in);
+        subtables.add(GlyphSubstitutionTable.createSubtable(type, id, sequence, flags, format,
+            coverage, readEntries(in)));
+      }
+      gsub = new GlyphSubstitutionTable(gdef, lookups, subtables);
+    }
+    return gsub;
+  }
+
+  /**
+   * Reads a table written by {@link #writeTable(DataOutputStream, GlyphTable)}.
+   */
+  static GlyphPositioningTable readGPOS(ByteBuffer in, GlyphDefinitionTable gdef)
+      throws IOException {
+    GlyphPositioningTable gpos = null;
+    if (in.get() != 0) {
+      Map<LookupSpec, List<String>> lookups = readLookups(in);
+      List<GlyphSubtable> subtables = new ArrayList<>();
+      for (int i = in.getInt(); i > 0; i--) {
+        int type = in.getInt();
+        String id = FontSnapshot.readString(in);
+        int sequence = in.getInt();
+        int flags = in.getInt();
+        int format = in.getInt();
+        GlyphCoverageTable coverage = (GlyphCoverageTable) readEntry(in);
+        subtables.add(GlyphPositioningTable.createSubtable(type, id, sequence, flags, format,
+            coverage, readEntries(in)));
+      }
+      gpos = new GlyphPositioningTable(gdef, lookups, subtables);
+    }
+    return gpos;
+  }
+
+  private static Map<LookupSpec, List<String>> readLookups(ByteBuffer in) throws IOException {
+    Map<LookupSpec, List<String>> lookups = new LinkedHashMap<>();
+    for (int i = in.getInt(); i > 0; i--) {
+      LookupSpec spec = new LookupSpec(FontSnapshot.readString(in), FontSnapshot.readString(in),
+          FontSnapshot.readString(in));
+      int n = in.getInt();
+      List<String> ids = new ArrayList<>(n);
+      for (int j = 0; j < n; j++) {
+        ids.add(FontSnapshot.readString(in));
+      }
+      lookups.put(spec, ids);
+    }
+    return lookups;
+  }
+
+  private static void writeSubtables(DataOutputStream out, List<GlyphSubtable> subtables)
+      throws IOException {
+    out.writeInt(subtables.size());
+    for (GlyphSubtable subtable : subtables) {
+      out.writeInt(subtable.getType());
+      FontSnapshot.writeString(out, subtable.getLookupId());
+      out.writeInt(subtable.getSequence());
+      out.writeInt(subtable.getFlags());
+      out.writeInt(subtable.getFormat());
+      Object mapping = subtable.getCoverage();
+      writeEntry(out, mapping != null ? mapping : subtable.getClasses());
+      List entries = subtable.getEntries();
+      if (entries == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(entries.size());
+        for (Object entry : entries) {
+          writeEntry(out, entry);
+        }
+      }
+    }
+  }
+
+  private static List<Object> readEntries(ByteBuffer in) throws IOException {
+    List<Object> entries = null;
+    int n = in.getInt();
+    if (n >= 0) {
+      entries = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        entries.add(readEntry(in));
+      }
+    }
+    return entries;
+  }
+
+  private static void writeEntry(DataOutputStream out, Object entry) throws IOException {
+    if (entry == null) {
+      out.writeByte(NULL);
+    } else if (entry instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) entry);
+    } else if (entry instanceof int[]) {
+      out.writeByte(INTS);
+      FontSnapshot.writeInts(out, (int[]) entry);
+    } else if (entry instanceof int[][]) {
+      int[][] values = (int[][]) entry;
+      out.writeByte(INTS_ARRAY);
+      out.writeInt(values.length);
+      for (int[] value : values) {
+        FontSnapshot.writeInts(out, value);
+      }
+    } else if (entry instanceof GlyphCoverageTable) {
+      out.writeByte(COVERAGE);
+      writeMapping(out, (GlyphMappingTable) entry);
+    } else if (entry instanceof GlyphClassTable) {
+      out.writeByte(CLASSES);
+      writeMapping(out, (GlyphMappingTable) entry);
+    } else if (entry instanceof LigatureSet) {
+      Ligature[] ligatures = ((LigatureSet) entry).getLigatures();
+      out.writeByte(LIGATURE_SET);
+      out.writeInt(ligatures.length);
+      for (Ligature ligature : ligatures) {
+        out.writeInt(ligature.getLigature());
+        FontSnapshot.writeInts(out, ligature.getComponents());
+      }
+    } else if (entry instanceof RuleSet[]) {
+      RuleSet[] ruleSets = (RuleSet[]) entry;
+      out.writeByte(RULE_SETS);
+      out.writeInt(ruleSets.length);
+      for (RuleSet ruleSet : ruleSets) {
+        writeRuleSet(out, ruleSet);
+      }
+    } else if (entry instanceof Value) {
+      out.writeByte(VALUE);
+      writeValue(out, (Value) entry);
+    } else if (entry instanceof Value[]) {
+      Value[] values = (Value[]) entry;
+      out.writeByte(VALUES);
+      out.writeInt(values.length);
+      for (Value value : values) {
+        writeValue(out, value);
+      }
+    } else if (entry instanceof PairValues[][]) {
+      PairValues[][] matrix = (PairValues[][]) entry;
+      out.writeByte(PAIR_VALUES);
+      out.writeInt(matrix.length);
+      for (PairValues[] row : matrix) {
+        writePairValues(out, row);
+      }
+    } else if (entry instanceof MarkAnchor[]) {
+      MarkAnchor[] anchors = (MarkAnchor[]) entry;
+      out.writeByte(MARK_ANCHORS);
+      out.writeInt(anchors.length);
+      for (MarkAnchor anchor : anchors) {
+        out.writeInt(anchor != null ? anchor.getMarkClass() : -1);
+        writeAnchor(out, anchor);
+      }
+    } else if (entry instanceof Anchor[]) {
+      out.writeByte(ANCHORS);
+      writeAnchors(out, (Anchor[]) entry);
+    } else if (entry instanceof Anchor[][]) {
+      out.writeByte(ANCHOR_MATRIX);
+      writeAnchorMatrix(out, (Anchor[][]) entry);
+    } else if (entry instanceof Anchor[][][]) {
+      Anchor[][][] matrices = (Anchor[][][]) entry;
+      out.writeByte(ANCHOR_MATRICES);
+      out.writeInt(matrices.length);
+      for (Anchor[][] matrix : matrices) {
+        writeAnchorMatrix(out, matrix);
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported subtable entry: " + entry.getClass());
+    }
+  }
+
+  private static Object readEntry(ByteBuffer in) throws IOException {
+    int type = in.get();
+    switch (type) {
+      case NULL:
+        return null;
+      case INTEGER:
+        return in.getInt();
+      case INTS:
+        return FontSnapshot.readInts(in);
+      case INTS_ARRAY: {
+        int[][] values = new int[in.getInt()][];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = FontSnapshot.readInts(in);
+        }
+        return values;
+      }
+      case COVERAGE:
+        return GlyphCoverageTable.createCoverageTable(readMapping(in));
+      case CLASSES:
+        return GlyphClassTable.createClassTable(readMapping(in));
+      case LIGATURE_SET: {
+        Ligature[] ligatures = new Ligature[in.getInt()];
+        for (int i = 0; i < ligatures.length; i++) {
+          ligatures[i] = new Ligature(in.getInt(), FontSnapshot.readInts(in));
+        }
+        return new LigatureSet(ligatures);
+      }
+      case RULE_SETS: {
+        RuleSet[] ruleSets = new RuleSet[in.getInt()];
+        for (int i = 0; i < ruleSets.length; i++) {
+          ruleSets[i] = readRuleSet(in);
+        }
+        return ruleSets;
+      }
+      case VALUE:
+        return readValue(in);
+      case VALUES: {
+        Value[] values = new Value[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = readValue(in);
+        }
+        return values;
+      }
+      case PAIR_VALUES: {
+        PairValues[][] matrix = new PairValues[in.getInt()][];
+        for (int i = 0; i < matrix.length; i++) {
+          matrix[i] = readPairValues(in);
+        }
+        return matrix;
+      }
+      case MARK_ANCHORS: {
+        MarkAnchor[] anchors = new MarkAnchor[in.getInt()];
+        for (int i = 0; i < anchors.length; i++) {
+          int markClass = in.getInt();
+          Anchor anchor = readAnchor(in);
+          anchors[i] = anchor != null ? new MarkAnchor(markClass, anchor) : null;
+        }
+        return anchors;
+      }
+      case ANCHORS:
+        return readAnchors(in);
+      case ANCHOR_MATRIX:
+        return readAnchorMatrix(in);
+      case ANCHOR_MATRICES: {
+        Anchor[][][] matrices = new Anchor[in.getInt()][][];
+        for (int i = 0; i < matrices.length; i++) {
+          matrices[i] = readAnchorMatrix(in);
+        }
+        return matrices;
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported subtable entry type: " + type);
+    }
+  }
+
+  // coverage and class tables are stored as the glyphs or ranges of their entries
+
+  private static void writeMapping(DataOutputStream out, GlyphMappingTable mapping)
+      throws IOException {
+    List entries = mapping.getEntries();
+    int type = mapping.getType();
+    if (type == GlyphMappingTable.GLYPH_MAPPING_TYPE_RANGE) {
+      out.writeByte(type);
+      out.writeInt(entries.size());
+      for (Object entry : entries) {
+        MappingRange range = (MappingRange) entry;
+        out.writeInt(range.getStart());
+        out.writeInt(range.getEnd());
+        out.writeInt(range.getIndex());
+      }
+    } else if (type == GlyphMappingTable.GLYPH_MAPPING_TYPE_MAPPED
+        || type == GlyphMappingTable.GLYPH_MAPPING_TYPE_EMPTY) {
+      out.writeByte(GlyphMappingTable.GLYPH_MAPPING_TYPE_MAPPED);
+      out.writeInt(entries.size());
+      for (Object entry : entries) {
+        out.writeInt((Integer) entry);
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported mapping table type: " + type);
+    }
+  }
+
+  private static List<Object> readMapping(ByteBuffer in) {
+    int type = in.get();
+    int n = in.getInt();
+    List<Object> entries = new ArrayList<>(n);
+    if (type == GlyphMappingTable.GLYPH_MAPPING_TYPE_RANGE) {
+      for (int i = 0; i < n; i++) {
+        entries.add(new MappingRange(in.getInt(), in.getInt(), in.getInt()));
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        entries.add(in.getInt());
+      }
+    }
+    return entries;
+  }
+
+  private static void writeRuleSet(DataOutputStream out, RuleSet ruleSet) throws IOException {
+    if (ruleSet == null) {
+      out.writeInt(-1);
+      return;
+    }
+    Rule[] rules = ruleSet.getRules();
+    out.writeInt(rules.length);
+    for (Rule rule : rules) {
+      if (rule == null) {
+        out.writeByte(NULL);
+        continue;
+      }
+      int type;
+      if (rule instanceof ChainedGlyphSequenceRule) {
+        type = CHAINED_GLYPH_RULE;
+      } else if (rule instanceof ChainedClassSequenceRule) {
+        type = CHAINED_CLASS_RULE;
+      } else if (rule instanceof ChainedCoverageSequenceRule) {
+        type = CHAINED_COVERAGE_RULE;
+      } else if (rule instanceof GlyphSequenceRule) {
+        type = GLYPH_RULE;
+      } else if (rule instanceof ClassSequenceRule) {
+        type = CLASS_RULE;
+      } else if (rule instanceof CoverageSequenceRule) {
+        type = COVERAGE_RULE;
+      } else {
+        throw new IllegalArgumentException("Unsupported rule: " + rule.getClass());
+      }
+      out.writeByte(type);
+      RuleLookup[] lookups = rule.getLookups();
+      out.writeInt(lookups.length);
+      for (RuleLookup lookup : lookups) {
+        out.writeInt(lookup.getSequenceIndex());
+        out.writeInt(lookup.getLookupIndex());
+      }
+      out.writeInt(rule.getInputSequenceLength());
+      switch (type) {
+        case GLYPH_RULE:
+          FontSnapshot.writeInts(out, ((GlyphSequenceRule) rule).getGlyphs());
+          break;
+        case CLASS_RULE:
+          FontSnapshot.writeInts(out, ((ClassSequenceRule) rule).getClasses());
+          break;
+        case COVERAGE_RULE:
+          writeCoverages(out, ((CoverageSequenceRule) rule).getCoverages());
+          break;
+        case CHAINED_GLYPH_RULE:
+          ChainedGlyphSequenceRule glyphRule = (ChainedGlyphSequenceRule) rule;
+          FontSnapshot.writeInts(out, glyphRule.getGlyphs());
+          FontSnapshot.writeInts(out, glyphRule.getBacktrackGlyphs());
+          FontSnapshot.writeInts(out, glyphRule.getLookaheadGlyphs());
+          break;
+        case CHAINED_CLASS_RULE:
+          ChainedClassSequenceRule classRule = (ChainedClassSequenceRule) rule;
+          FontSnapshot.writeInts(out, classRule.getClasses());
+          FontSnapshot.writeInts(out, classRule.getBacktrackClasses());
+          FontSnapshot.writeInts(out, classRule.getLookaheadClasses());
+          break;
+        default:
+          ChainedCoverageSequenceRule coverageRule = (ChainedCoverageSequenceRule) rule;
+          writeCoverages(out, coverageRule.getCoverages());
+          writeCoverages(out, coverageRule.getBacktrackCoverages());
+          writeCoverages(out, coverageRule.getLookaheadCoverages());
+          break;
+      }
+    }
+  }
+
+  private static RuleSet readRuleSet(ByteBuffer in) throws IOException {
+    int n = in.getInt();
+    if (n < 0) {
+      return null;
+    }
+    Rule[] rules = new Rule[n];
+    for (int i = 0; i < n; i++) {
+      int type = in.get();
+      if (type == NULL) {
+        continue;
+      }
+      RuleLookup[] lookups = new RuleLookup[in.getInt()];
+      for (int j = 0; j < lookups.length; j++) {
+        lookups[j] = new RuleLookup(in.getInt(), in.getInt());
+      }
+      int length = in.getInt();
+      switch (type) {
+        case GLYPH_RULE:
+          rules[i] = new GlyphSequenceRule(lookups, length, FontSnapshot.readInts(in));
+          break;
+        case CLASS_RULE:
+          rules[i] = new ClassSequenceRule(lookups, length, FontSnapshot.readInts(in));
+          break;
+        case COVERAGE_RULE:
+          rules[i] = new CoverageSequenceRule(lookups, length, readCoverages(in));
+          break;
+        case CHAINED_GLYPH_RULE:
+          rules[i] = new ChainedGlyphSequenceRule(lookups, length, FontSnapshot.readInts(in),
+              FontSnapshot.readInts(in), FontSnapshot.readInts(in));
+          break;
+        case CHAINED_CLASS_RULE:
+          rules[i] = new ChainedClassSequenceRule(lookups, length, FontSnapshot.readInts(in),
+              FontSnapshot.readInts(in), FontSnapshot.readInts(in));
+          break;
+        case CHAINED_COVERAGE_RULE:
+          rules[i] = new ChainedCoverageSequenceRule(lookups, length, readCoverages(in),
+              readCoverages(in), readCoverages(in));
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported rule type: " + type);
+      }
+    }
+    return new HomogeneousRuleSet(rules);
+  }
+
+  private static void writeCoverages(DataOutputStream out, GlyphCoverageTable[] coverages)
+      throws IOException {
+    out.writeInt(coverages.length);
+    for (GlyphCoverageTable coverage : coverages) {
+      writeEntry(out, coverage);
+    }
+  }
+
+  private static GlyphCoverageTable[] readCoverages(ByteBuffer in) throws IOException {
+    GlyphCoverageTable[] coverages = new GlyphCoverageTable[in.getInt()];
+    for (int i = 0; i < coverages.length; i++) {
+      coverages[i] = (GlyphCoverageTable) readEntry(in);
+    }
+    return coverages;
+  }
+
+  private static void writePairValues(DataOutputStream out, PairValues[] row) throws IOException {
+    if (row == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(row.length);
+    for (PairValues values : row) {
+      if (values == null) {
+        out.writeByte(NULL);
+      } else {
+        out.writeByte(VALUE);
+        out.writeInt(values.getGlyph());
+        writeValue(out, values.getValue1());
+        writeValue(out, values.getValue2());
+      }
+    }
+  }
+
+  private static PairValues[] readPairValues(ByteBuffer in) {
+    int n = in.getInt();
+    if (n < 0) {
+      return null;
+    }
+    PairValues[] row = new PairValues[n];
+    for (int i = 0; i < n; i++) {
+      if (in.get() != NULL) {
+        row[i] = new PairValues(in.getInt(), readValue(in), readValue(in));
+      }
+    }
+    return row;
+  }
+
+  // a value is stored as a mask of its non-zero fields and non-null device tables followed by them
+
+  private static void writeValue(DataOutputStream out, Value value) throws IOException {
+    if (value == null) {
+      out.writeByte(0xFF);
+      return;
+    }
+    int[] fields = {value.getXPlacement(), value.getYPlacement(), value.getXAdvance(),
+        value.getYAdvance()};
+    DeviceTable[] devices = {value.getXPlaDevice(), value.getYPlaDevice(),
+        value.getXAdvDevice(), value.getYAdvDevice()};
+    int mask = 0;
+    for (int i = 0; i < 4; i++) {
+      if (fields[i] != 0) {
+        mask |= 1 << i;
+      }
+      if (devices[i] != null) {
+        mask |= 0x10 << i;
+      }
+    }
+    out.writeByte(mask);
+    for (int i = 0; i < 4; i++) {
+      if (fields[i] != 0) {
+        out.writeInt(fields[i]);
+      }
+    }
+    for (int i = 0; i < 4; i++) {
+      if (devices[i] != null) {
+        writeDevice(out, devices[i]);
+      }
+    }
+  }
+
+  private static Value readValue(ByteBuffer in) {
+    int mask = in.get() & 0xFF;
+    if (mask == 0xFF) {
+      return null;
+    }
+    int[] fields = new int[4];
+    for (int i = 0; i < 4; i++) {
+      if ((mask & (1 << i)) != 0) {
+        fields[i] = in.getInt();
+      }
+    }
+    DeviceTable[] devices = new DeviceTable[4];
+    for (int i = 0; i < 4; i++) {
+      if ((mask & (0x10 << i)) != 0) {
+        devices[i] = readDevice(in);
+      }
+    }
+    return new Value(fields[0], fields[1], fields[2], fields[3], devices[0], devices[1],
+        devices[2], devices[3]);
+  }
+
+  private static void writeDevice(DataOutputStream out, DeviceTable device) throws IOException {
+    out.writeInt(device.getStartSize());
+    out.writeInt(device.getEndSize());
+    FontSnapshot.writeInts(out, device.getDeltas());
+  }
+
+  private static DeviceTable readDevice(ByteBuffer in) {
+    return new DeviceTable(in.getInt(), in.getInt(), FontSnapshot.readInts(in));
+  }
+
+  private static void writeAnchor(DataOutputStream out, Anchor anchor) throws IOException {
+    if (anchor == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    DeviceTable xDevice = anchor.getXDevice();
+    DeviceTable yDevice = anchor.getYDevice();
+    out.writeByte(1 | (xDevice != null ? 2 : 0) | (yDevice != null ? 4 : 0));
+    out.writeInt(anchor.getX());
+    out.writeInt(anchor.getY());
+    out.writeInt(anchor.getAnchorPoint());
+    if (xDevice != null) {
+      writeDevice(out, xDevice);
+    }
+    if (yDevice != null) {
+      writeDevice(out, yDevice);
+    }
+  }
+
+  private static Anchor readAnchor(ByteBuffer in) {
+    int flags = in.get();
+    if (flags == NULL) {
+      return null;
+    }
+    int x = in.getInt();
+    int y = in.getInt();
+    int anchorPoint = in.getInt();
+    DeviceTable xDevice = (flags & 2) != 0 ? readDevice(in) : null;
+    DeviceTable yDevice = (flags & 4) != 0 ? readDevice(in) : null;
+    if (anchorPoint != -1) {
+      return new Anchor(x, y, anchorPoint);
+    } else {
+      return new Anchor(x, y, xDevice, yDevice);
+    }
+  }
+
+  private static void writeAnchors(DataOutputStream out, Anchor[] anchors) throws IOException {
+    if (anchors == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(anchors.length);
+    for (Anchor anchor : anchors) {
+      writeAnchor(out, anchor);
+    }
+  }
+
+  private static Anchor[] readAnchors(ByteBuffer in) {
+    int n = in.getInt();
+    if (n < 0) {
+      return null;
+    }
+    Anchor[] anchors = new Anchor[n];
+    for (int i = 0; i < n; i++) {
+      anchors[i] = readAnchor(in);
+    }
+    return anchors;
+  }
+
+  private static void writeAnchorMatrix(DataOutputStream out, Anchor[][] matrix)
+      throws IOException {
+    if (matrix == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(matrix.length);
+    for (Anchor[] anchors : matrix) {
+      writeAnchors(out, anchors);
+    }
+  }
+
+  private static Anchor[][] readAnchorMatrix(ByteBuffer in) {
+    int n = in.getInt();
+    if (n < 0) {
+      return null;
+    }
+    Anchor[][] matrix = new Anchor[n][];
+    for (int i = 0; i < n; i++) {
+      matrix[i] = readAnchors(in);
+    }
+    return matrix;
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Kerning values of glyph pairs, stored in an open addressing hash table keyed by
+ * <code>(left &lt;&lt; 16) | right</code> so a lookup neither boxes nor allocates.
+ */
+public final class KerningTable {
+
+  /** An empty table. */
+  public static final KerningTable EMPTY = new KerningTable();
+
+  private static final int FREE = -1; // glyph 0xFFFF can not exist, so neither can this key
+
+  private int[] keys;
+  private int[] values;
+  private int size;
+
+  KerningTable() {
+    keys = new int[16];
+    values = new int[16];
+    Arrays.fill(keys, FREE);
+  }
+
+  /**
+   * Returns the kerning between two glyphs, in 1/1000 of the em as the values of
+   * {@link OpenFont#getKerning()}.
+   *
+   * @param leftGlyph
+   *     the index of the left glyph
+   * @param rightGlyph
+   *     the index of the right glyph
+   * @return the kerning value, 0 if the pair is not kerned
+   */
+  public int getKern(int leftGlyph, int rightGlyph) {
+    if (size == 0 || (leftGlyph & ~0xFFFF) != 0 || (rightGlyph & ~0xFFFF) != 0) {
+      return 0;
+    }
+    int key = (leftGlyph << 16) | rightGlyph;
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      int k = keys[i];
+      if (k == key) {
+        return values[i];
+      } else if (k == FREE) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of kerned pairs.
+   *
+   * @return the number of pairs
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the table has no pairs.
+   *
+   * @return true if no pair is kerned
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Sets the kerning of a pair, replacing an earlier value.
+   */
+  void put(int leftGlyph, int rightGlyph, int value) {
+    if ((size + 1) * 4 > keys.length * 3) {
+      rehash(keys.length * 2);
+    }
+    int key = (leftGlyph << 16) | (rightGlyph & 0xFFFF);
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (keys[i] != FREE && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    if (keys[i] == FREE) {
+      keys[i] = key;
+      size++;
+    }
+    values[i] = value;
+  }
+
+  /**
+   * Writes the table for {@link FontSnapshot}.
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(size);
+    FontSnapshot.writeInts(out, keys);
+    FontSnapshot.writeInts(out, values);
+  }
+
+  /**
+   * Reads a table written by {@link #write(DataOutputStream)}.
+   */
+  static KerningTable read(ByteBuffer in) {
+    KerningTable table = new KerningTable();
+    table.size = in.getInt();
+    table.keys = FontSnapshot.readInts(in);
+    table.values = FontSnapshot.readInts(in);
+    int[] keys = table.keys;
+    // getKern relies on a power of two slots with at least one of them free
+    FontSnapshot.check(keys != null && keys.length > 0 && (keys.length & (keys.length - 1)) == 0,
+        "kerning slot count");
+    FontSnapshot.check(table.values != null && table.values.length == keys.length,
+        "kerning values");
+    int used = 0;
+    for (int key : keys) {
+      if (key != FREE) {
+        used++;
+      }
+    }
+    FontSnapshot.check(used == table.size && used < keys.length, "kerning pair count");
+    return table;
+  }
+
+  // slots for iterating over the pairs, a slot is in use if getSlotKey is not -1
+
+  int getSlotCount() {
+    return keys.length;
+  }
+
+  int getSlotKey(int slot) {
+    return keys[slot];
+  }
+
+  int getSlotValue(int slot) {
+    return values[slot];
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, FREE);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      int key = oldKeys[j];
+      if (key != FREE) {
+        int i = hash(key) & mask;
+        while (keys[i] != FREE) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link FontFileReader} backed by a read-only memory-mapped file instead of a byte array.
+ * The font data is not copied onto the heap; pages are loaded by the operating system when they
+ * are first read and the page cache is shared between all readers of the same file.
+ */
+public class MappedFontFileReader extends FontFileReader {
+
+  /**
+   * Constructor
+   *
+   * @param file
+   *     The font file to map
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public MappedFontFileReader(File file) throws IOException {
+    super(map(file));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param channel
+   *     The channel to map, from position 0 to its current size. The channel may be closed once
+   *     the reader has been created.
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public MappedFontFileReader(FileChannel channel) throws IOException {
+    super(map(channel));
+  }
+
+  private static MappedByteBuffer map(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return map(raf.getChannel());
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static MappedByteBuffer map(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Font file is too large to map, file size=" + size);
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+  }
+
+}
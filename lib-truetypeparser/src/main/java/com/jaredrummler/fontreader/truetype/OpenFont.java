@@ -22,17 +22,23 @@ import android.graphics.Rect;
 import com.jaredrummler.fontreader.complexscripts.fonts.AdvancedTypographicTableFormatException;
 import com.jaredrummler.fontreader.complexscripts.fonts.GlyphDefinitionTable;
 import com.jaredrummler.fontreader.complexscripts.fonts.GlyphPositioningTable;
+import com.jaredrummler.fontreader.complexscripts.fonts.ShapingPlan;
 import com.jaredrummler.fontreader.fonts.CMapSegment;
 import com.jaredrummler.fontreader.fonts.FontUtil;
 import com.jaredrummler.fontreader.fonts.GlyphSubstitutionTable;
 import com.jaredrummler.fontreader.fonts.Glyphs;
 import com.jaredrummler.fontreader.fonts.OTFAdvancedTypographicTableReader;
+import com.jaredrummler.fontreader.fonts.OTFLanguage;
+import com.jaredrummler.fontreader.fonts.OTFScript;
+import com.jaredrummler.fontreader.fonts.Rectangle;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,6 +49,13 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class OpenFont {
 
@@ -50,7 +63,7 @@ public abstract class OpenFont {
   static final int MAX_CHAR_CODE = 255;
   static final int ENC_BUF_SIZE = 1024;
 
-  private static final String[] MAC_GLYPH_ORDERING = {
+  static final String[] MAC_GLYPH_ORDERING = {
       ".notdef", ".null", "nonmarkingreturn", "space", "exclam", "quotedbl", "numbersign", "dollar", "percent",
       "ampersand", "quotesingle", "parenleft", "parenright", "asterisk", "plus", "comma", "hyphen", "period", "slash",
       "zero", "one", "two", "three", "four", "five", "six", "seven", "eight", "nine", "colon", "semicolon", "less",
@@ -87,7 +100,42 @@ public abstract class OpenFont {
 
   private static final short FIRST_CHAR = 0;
 
+  /** Table group holding the "name" table. */
+  protected static final int TABLES_NAME = 1;
+  /** Table group holding the "OS/2" table. */
+  protected static final int TABLES_OS2 = 1 << 1;
+  /** Table group holding the "hhea", "hmtx", "PCLT" tables and the "post" header. */
+  protected static final int TABLES_METRICS = 1 << 2;
+  /** Table group holding the glyph names from the "post" table. */
+  protected static final int TABLES_GLYPH_NAMES = 1 << 3;
+  /** Table group holding the "cmap" table. */
+  protected static final int TABLES_CMAP = 1 << 4;
+  /**
+   * Table group holding the glyph offsets from the "loca" table. The bounding boxes in the "glyf"
+   * table are decoded per glyph when they are first asked for.
+   */
+  protected static final int TABLES_GLYPH_BOUNDS = 1 << 5;
+  /** Vertical metrics derived from the glyph bounding boxes, names and cmap. */
+  protected static final int TABLES_VERTICAL_METRICS = 1 << 6;
+  /** Table group holding the "kern" table. */
+  protected static final int TABLES_KERNING = 1 << 7;
+  /** Table group holding the "GDEF", "GSUB" and "GPOS" tables. */
+  protected static final int TABLES_ADVANCED = 1 << 8;
+  /** The code points of each glyph and the cmap segments, expanded from the "cmap" table. */
+  protected static final int TABLES_GLYPH_UNICODES = 1 << 9;
+  /** All table groups. */
+  protected static final int TABLES_ALL = TABLES_NAME | TABLES_OS2 | TABLES_METRICS
+      | TABLES_GLYPH_NAMES | TABLES_CMAP | TABLES_GLYPH_BOUNDS | TABLES_VERTICAL_METRICS
+      | TABLES_KERNING | TABLES_ADVANCED | TABLES_GLYPH_UNICODES;
+
   protected boolean useKerning;
+  protected boolean lazy;
+  // decode every glyph bounding box when the glyph bounds group is loaded
+  private final boolean eagerGlyphBounds;
+  // true once the bounding box of every glyph was decoded into mtxTab
+  private volatile boolean glyphBoundsDecoded;
+  // table groups selected by the ParseOptions
+  private final int enabledTables;
   private boolean isEmbeddable = true;
   private boolean hasSerifs = true;
   /**
@@ -95,10 +143,17 @@ public abstract class OpenFont {
    */
   protected Map<OFTableName, OFDirTabEntry> dirTabs;
 
-  private Map<Integer, Map<Integer, Integer>> kerningTab; // for CIDs
+  private KerningTable kerning; // by glyph index
+  // kerning of the GPOS "kern" feature by script and language
+  private final Map<String, KerningTable> positioningKerning = new HashMap<>();
+  // shaping plans by script, language and features
+  private final Map<String, ShapingPlan> shapingPlans = new HashMap<>();
+  // created from kerning when they are asked for
+  private volatile Map<Integer, Map<Integer, Integer>> kerningTab; // for CIDs
   private Map<Integer, Map<Integer, Integer>> ansiKerningTab; // For winAnsiEncoding
   private List<CMapSegment> cmaps;
   protected List<UnicodeMapping> unicodeMappings;
+  private CharacterMap characterMap = new CharacterMap(0);
 
   private int upem;                                // unitsPerEm from "head" table
   protected int nhmtx;                               // Number of horizontal metrics
@@ -113,7 +168,7 @@ public abstract class OpenFont {
   /**
    * Contains glyph data
    */
-  protected OFMtxEntry[] mtxTab;                  // Contains glyph data
+  protected GlyphMetrics mtxTab = new GlyphMetrics(0); // Contains glyph data
 
   protected String postScriptName = "";
   protected String fullName = "";
@@ -152,16 +207,18 @@ public abstract class OpenFont {
   private int[] ansiWidth;
   private Map<Integer, List<Integer>> ansiIndex;
 
-  // internal mapping of glyph indexes to unicode indexes
-  // used for quick mappings in this class
-  private final Map<Integer, Integer> glyphToUnicodeMap = new HashMap<Integer, Integer>();
-  private final Map<Integer, Integer> unicodeToGlyphMap = new HashMap<Integer, Integer>();
-
   private boolean isCFF;
 
+  // table groups that have been decoded, see ensureTables
+  private volatile int loadedTables;
+  private boolean cmapValid;
+  // guards loadedTables and the shared fontFile cursor while tables are decoded
+  private final Object tableLock = new Object();
+
   // advanced typographic table support
   protected boolean useAdvanced;
   protected OTFAdvancedTypographicTableReader advancedTableReader;
+  private final Executor executor; // decodes GDEF, GSUB and GPOS concurrently if not null
 
   /**
    * Version of the PostScript table (<q>post</q>) contained in this font.
@@ -190,8 +247,66 @@ public abstract class OpenFont {
    *     true if advanced typographic tables should be loaded
    */
   public OpenFont(boolean useKerning, boolean useAdvanced) {
-    this.useKerning = useKerning;
-    this.useAdvanced = useAdvanced;
+    this(useKerning, useAdvanced, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param useKerning
+   *     true if kerning data should be loaded
+   * @param useAdvanced
+   *     true if advanced typographic tables should be loaded
+   * @param lazy
+   *     true to only read the table directory when the font is read and decode the remaining
+   *     tables the first time one of their getters is called
+   */
+  public OpenFont(boolean useKerning, boolean useAdvanced, boolean lazy) {
+    this(new ParseOptions.Builder()
+        .kerning(useKerning)
+        .advanced(useAdvanced)
+        .lazy(lazy)
+        .build());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param options
+   *     the tables to decode
+   */
+  public OpenFont(ParseOptions options) {
+    this.useKerning = options.kerning;
+    this.useAdvanced = options.advanced;
+    this.lazy = options.lazy;
+    this.executor = options.executor;
+    int tables = TABLES_VERTICAL_METRICS;
+    if (options.names) {
+      tables |= TABLES_NAME;
+    }
+    if (options.os2) {
+      tables |= TABLES_OS2;
+    }
+    if (options.metrics) {
+      tables |= TABLES_METRICS;
+    }
+    if (options.glyphNames) {
+      tables |= TABLES_GLYPH_NAMES;
+    }
+    if (options.cmap) {
+      tables |= TABLES_CMAP | TABLES_GLYPH_UNICODES;
+    }
+    if (options.glyphBounds) {
+      tables |= TABLES_GLYPH_BOUNDS;
+    }
+    this.eagerGlyphBounds = options.eagerGlyphBounds;
+    if (options.kerning) {
+      tables |= TABLES_KERNING;
+    }
+    if (options.advanced) {
+      tables |= TABLES_ADVANCED;
+    }
+    this.enabledTables = tables;
   }
 
   /**
@@ -202,11 +317,9 @@ public abstract class OpenFont {
     private final int unicodeIndex;
     private final int glyphIndex;
 
-    UnicodeMapping(OpenFont font, int glyphIndex, int unicodeIndex) {
+    UnicodeMapping(int glyphIndex, int unicodeIndex) {
       this.unicodeIndex = unicodeIndex;
       this.glyphIndex = glyphIndex;
-      font.glyphToUnicodeMap.put(new Integer(glyphIndex), new Integer(unicodeIndex));
-      font.unicodeToGlyphMap.put(new Integer(unicodeIndex), new Integer(glyphIndex));
     }
 
     /**
@@ -276,6 +389,13 @@ public abstract class OpenFont {
     return dirTabs.get(name);
   }
 
+  /**
+   * Returns the unitsPerEm field of the "head" table.
+   */
+  int getUnitsPerEm() {
+    return upem;
+  }
+
   /**
    * Position inputstream to position indicated
    * in the dirtab offset + offset
@@ -310,6 +430,19 @@ public abstract class OpenFont {
    * @return pdf unit
    */
   public int convertTTFUnit2PDFUnit(int n) {
+    return convertTTFUnit2PDFUnit(n, upem);
+  }
+
+  /**
+   * Convert from truetype unit to pdf unit
+   *
+   * @param n
+   *     truetype unit
+   * @param upem
+   *     the unitsPerEm field of the "head" table
+   * @return pdf unit
+   */
+  static int convertTTFUnit2PDFUnit(int n, int upem) {
     int ret;
     if (n < 0) {
       long rest1 = n % upem;
@@ -327,12 +460,16 @@ public abstract class OpenFont {
    * Read the cmap table,
    * return false if the table is not present or only unsupported
    * tables are present. Currently only unicode cmaps are supported.
-   * Set the unicodeIndex in the TTFMtxEntries and fills in the
-   * cmaps vector.
+   * Fills in the character map and the WinAnsi widths, the unicodeIndex
+   * of the glyphs and the cmaps vector are created from it on demand.
+   *
+   * The BMP is read from the format 4 table, code points above U+FFFF
+   * from a format 12 or 13 table and variation sequences from a
+   * format 14 table.
    */
   protected boolean readCMAP() throws IOException {
 
-    unicodeMappings = new ArrayList<UnicodeMapping>();
+    characterMap = new CharacterMap(mtxTab.getNumGlyphs());
 
     if (!seekTab(fontFile, OFTableName.CMAP, 2)) {
       return true;
@@ -340,8 +477,11 @@ public abstract class OpenFont {
     int numCMap = fontFile.readTTFUShort();    // Number of cmap subtables
     long cmapUniOffset = 0;
     long symbolMapOffset = 0;
+    long fullMapOffset = 0;
+    int fullMapPriority = 0;
+    long variationOffset = 0;
 
-    //Read offset for all tables. We are only interested in the unicode table
+    //Read offset for all tables. We are only interested in the unicode tables
     for (int i = 0; i < numCMap; i++) {
       int cmapPID = fontFile.readTTFUShort();
       int cmapEID = fontFile.readTTFUShort();
@@ -353,22 +493,170 @@ public abstract class OpenFont {
       if (cmapPID == 3 && cmapEID == 0) {
         symbolMapOffset = cmapOffset;
       }
+      // full Unicode repertoire, preferring the Windows table
+      if (cmapPID == 3 && cmapEID == 10 && fullMapPriority < 3) {
+        fullMapOffset = cmapOffset;
+        fullMapPriority = 3;
+      }
+      if (cmapPID == 0 && cmapEID == 4 && fullMapPriority < 2) {
+        fullMapOffset = cmapOffset;
+        fullMapPriority = 2;
+      }
+      if (cmapPID == 0 && cmapEID == 6 && fullMapPriority < 1) {
+        fullMapOffset = cmapOffset;
+        fullMapPriority = 1;
+      }
+      if (cmapPID == 0 && cmapEID == 5) {
+        variationOffset = cmapOffset;
+      }
     }
 
+    boolean result;
     if (cmapUniOffset > 0) {
-      return readUnicodeCmap(cmapUniOffset, 1);
+      result = readUnicodeCmap(cmapUniOffset, 1);
     } else if (symbolMapOffset > 0) {
-      return readUnicodeCmap(symbolMapOffset, 0);
+      result = readUnicodeCmap(symbolMapOffset, 0);
     } else {
+      result = false;
+    }
+    if (fullMapOffset > 0) {
+      // without a usable format 4 table the BMP is read from here as well
+      result = readFullUnicodeCmap(fullMapOffset, result ? 0x10000 : 0) || result;
+    }
+    if (variationOffset > 0) {
+      try {
+        readVariationSequences(variationOffset);
+      } catch (EOFException e) {
+        // the variation sequences are optional, the font is used with those read so far
+      }
+    }
+    characterMap.finish();
+
+    // Also add winAnsiWidth
+    boolean segments = characterMap.getSegmentCount() > 0;
+    for (Entry<Integer, List<Integer>> e : ansiIndex.entrySet()) {
+      int unicode = e.getKey().intValue();
+      int glyph = segments ? characterMap.getSegmentGlyph(unicode)
+          : characterMap.glyphForCodePoint(unicode);
+      if (glyph >= 0 && glyph < mtxTab.getNumGlyphs()) {
+        for (Integer aIdx : e.getValue()) {
+          ansiWidth[aIdx.intValue()] = mtxTab.getAdvance(glyph);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads a format 12 (segmented coverage) or 13 (many-to-one range
+   * mappings) cmap, using only the code points from firstCodePoint on.
+   */
+  private boolean readFullUnicodeCmap(long offset, int firstCodePoint) throws IOException {
+    seekTab(fontFile, OFTableName.CMAP, offset);
+    int cmapFormat = fontFile.readTTFUShort();
+    if (cmapFormat != 12 && cmapFormat != 13) {
       return false;
     }
+    fontFile.skip(2 + 4 + 4); // reserved, length, language
+    long numGroups = fontFile.readTTFULong();
+    if (numGroups > (fontFile.getFileSize() - fontFile.getCurrentPos()) / 12) {
+      throw new EOFException("Reached EOF, cmap groups=" + numGroups);
+    }
+    // start code point, end code point and glyph of each group
+    long[] groups = new long[3 * (int) numGroups];
+    fontFile.readULongs(groups, groups.length);
+    int numGlyphs = mtxTab.getNumGlyphs();
+    for (int i = 0; i < groups.length; i += 3) {
+      int start = (int) groups[i];
+      int end = (int) groups[i + 1];
+      int glyph = (int) groups[i + 2];
+      if (end < firstCodePoint || end < start || start < 0) {
+        continue;
+      }
+      if (start < firstCodePoint) {
+        if (cmapFormat == 12) {
+          glyph += firstCodePoint - start;
+        }
+        start = firstCodePoint;
+      }
+      characterMap.addRange(start, end, glyph, cmapFormat == 13);
+      // Update lastChar
+      if (cmapFormat == 12 && start < 256 && glyph < numGlyphs) {
+        int last = Math.min(Math.min(end, 255), start + (numGlyphs - 1 - glyph));
+        if (last > lastChar) {
+          lastChar = (short) last;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the Unicode variation sequences of a format 14 cmap.
+   *
+   * @throws EOFException
+   *     if a count of records does not fit in the rest of the file
+   */
+  private void readVariationSequences(long offset) throws IOException {
+    seekTab(fontFile, OFTableName.CMAP, offset);
+    int start = fontFile.getCurrentPos();
+    if (fontFile.readTTFUShort() != 14) {
+      return;
+    }
+    fontFile.skip(4); // length
+    int numRecords = readRecordCount(11);
+    for (int i = 0; i < numRecords; i++) {
+      int selector = readTTFUInt24();
+      long defaultOffset = fontFile.readTTFULong();
+      long nonDefaultOffset = fontFile.readTTFULong();
+      int next = fontFile.getCurrentPos();
+
+      int[] defaultStarts = new int[0];
+      int[] defaultEnds = new int[0];
+      if (defaultOffset != 0) {
+        fontFile.seekSet(start + defaultOffset);
+        int n = readRecordCount(4);
+        defaultStarts = new int[n];
+        defaultEnds = new int[n];
+        for (int j = 0; j < n; j++) {
+          defaultStarts[j] = readTTFUInt24();
+          defaultEnds[j] = defaultStarts[j] + fontFile.readTTFUByte();
+        }
+      }
+      int[] codePoints = new int[0];
+      int[] glyphs = new int[0];
+      if (nonDefaultOffset != 0) {
+        fontFile.seekSet(start + nonDefaultOffset);
+        int n = readRecordCount(5);
+        codePoints = new int[n];
+        glyphs = new int[n];
+        for (int j = 0; j < n; j++) {
+          codePoints[j] = readTTFUInt24();
+          glyphs[j] = fontFile.readTTFUShort();
+        }
+      }
+      characterMap.addVariationSelector(selector, defaultStarts, defaultEnds, codePoints, glyphs);
+      fontFile.seekSet(next);
+    }
+  }
+
+  /**
+   * Reads the number of records of a format 14 cmap that follow, each of the given size in bytes.
+   */
+  private int readRecordCount(int size) throws IOException {
+    long n = fontFile.readTTFULong();
+    if (n > (fontFile.getFileSize() - fontFile.getCurrentPos()) / size) {
+      throw new EOFException("Reached EOF, cmap records=" + n);
+    }
+    return (int) n;
+  }
+
+  private int readTTFUInt24() throws IOException {
+    return (fontFile.readTTFUByte() << 16) | fontFile.readTTFUShort();
   }
 
   private boolean readUnicodeCmap(long cmapUniOffset, int encodingID)
       throws IOException {
-    //Read CMAP table and correct mtxTab.index
-    int mtxPtr = 0;
-
     // Read unicode cmap
     seekTab(fontFile, OFTableName.CMAP, cmapUniOffset);
     int cmapFormat = fontFile.readTTFUShort();
@@ -382,121 +670,128 @@ public abstract class OpenFont {
       int cmapEntrySelector = fontFile.readTTFUShort();
       int cmapRangeShift = fontFile.readTTFUShort();
 
-      int[] cmapEndCounts = new int[cmapSegCountX2 / 2];
-      int[] cmapStartCounts = new int[cmapSegCountX2 / 2];
-      int[] cmapDeltas = new int[cmapSegCountX2 / 2];
-      int[] cmapRangeOffsets = new int[cmapSegCountX2 / 2];
+      int segCount = cmapSegCountX2 / 2;
+      int[] cmapEndCounts = new int[segCount];
+      int[] cmapStartCounts = new int[segCount];
+      int[] cmapDeltas = new int[segCount];
+      int[] cmapRangeOffsets = new int[segCount];
 
-      for (int i = 0; i < (cmapSegCountX2 / 2); i++) {
-        cmapEndCounts[i] = fontFile.readTTFUShort();
-      }
+      fontFile.readUShorts(cmapEndCounts, segCount);
 
       fontFile.skip(2);    // Skip reservedPad
 
-      for (int i = 0; i < (cmapSegCountX2 / 2); i++) {
-        cmapStartCounts[i] = fontFile.readTTFUShort();
-      }
+      fontFile.readUShorts(cmapStartCounts, segCount);
 
-      for (int i = 0; i < (cmapSegCountX2 / 2); i++) {
-        cmapDeltas[i] = fontFile.readTTFShort();
+      fontFile.readUShorts(cmapDeltas, segCount);
+      for (int i = 0; i < segCount; i++) {
+        cmapDeltas[i] = (short) cmapDeltas[i];
       }
 
       //int startRangeOffset = in.getCurrentPos();
 
-      for (int i = 0; i < (cmapSegCountX2 / 2); i++) {
-        cmapRangeOffsets[i] = fontFile.readTTFUShort();
-      }
-
-      int glyphIdArrayOffset = fontFile.getCurrentPos();
-
-      BitSet eightBitGlyphs = new BitSet(256);
+      fontFile.readUShorts(cmapRangeOffsets, segCount);
 
-      // Insert the unicode id for the glyphs in mtxTab
-      // and fill in the cmaps ArrayList
+      // The segments are evaluated when a code point is looked up, only
+      // the part of the glyphIdArray they refer to is read
+      int glyphIdCount = 0;
       for (int i = 0; i < cmapStartCounts.length; i++) {
+        if (cmapRangeOffsets[i] != 0 && cmapEndCounts[i] >= cmapStartCounts[i]) {
+          glyphIdCount = Math.max(glyphIdCount, cmapRangeOffsets[i] / 2
+              + (cmapEndCounts[i] - cmapStartCounts[i]) + i - cmapSegCountX2 / 2 + 1);
+        }
+      }
+      OFDirTabEntry cmapEntry = dirTabs.get(OFTableName.CMAP);
+      long available = cmapEntry.getOffset() + cmapEntry.getLength() - fontFile.getCurrentPos();
+      glyphIdCount = (int) Math.max(0, Math.min(glyphIdCount, available / 2));
+      int[] glyphIdArray = new int[glyphIdCount];
+      fontFile.readUShorts(glyphIdArray, glyphIdCount);
+      char[] glyphIds = new char[glyphIdCount];
+      for (int i = 0; i < glyphIdCount; i++) {
+        glyphIds[i] = (char) glyphIdArray[i];
+      }
 
-        for (int j = cmapStartCounts[i]; j <= cmapEndCounts[i]; j++) {
-
-          // Update lastChar
-          if (j < 256 && j > lastChar) {
-            lastChar = (short) j;
-          }
+      characterMap.setSegments(cmapStartCounts, cmapEndCounts, cmapDeltas, cmapRangeOffsets,
+          glyphIds, encodingID == 0);
 
-          if (j < 256) {
-            eightBitGlyphs.set(j);
+      // Update lastChar
+      for (int i = 0; i < cmapStartCounts.length; i++) {
+        if (cmapStartCounts[i] < 256) {
+          int last = Math.min(cmapEndCounts[i], 255);
+          if (last > lastChar) {
+            lastChar = (short) last;
           }
+        }
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
 
-          if (mtxPtr < mtxTab.length) {
-            int glyphIdx;
-            // the last character 65535 = .notdef
-            // may have a range offset
-            if (cmapRangeOffsets[i] != 0 && j != 65535) {
-              int glyphOffset = glyphIdArrayOffset
-                  + ((cmapRangeOffsets[i] / 2)
-                  + (j - cmapStartCounts[i])
-                  + (i)
-                  - cmapSegCountX2 / 2) * 2;
-              fontFile.seekSet(glyphOffset);
-              glyphIdx = (fontFile.readTTFUShort() + cmapDeltas[i])
-                  & 0xffff;
-              //mtxTab[glyphIdx].setName(mtxTab[glyphIdx].getName() + " - "+(char)j);
-              unicodeMappings.add(new UnicodeMapping(this, glyphIdx, j));
-              mtxTab[glyphIdx].getUnicodeIndex().add(new Integer(j));
-
-              if (encodingID == 0 && j >= 0xF020 && j <= 0xF0FF) {
-                //Experimental: Mapping 0xF020-0xF0FF to 0x0020-0x00FF
-                //Tested with Wingdings and Symbol TTF fonts which map their
-                //glyphs in the region 0xF020-0xF0FF.
-                int mapped = j - 0xF000;
-                if (!eightBitGlyphs.get(mapped)) {
-                  //Only map if Unicode code point hasn't been mapped before
-                  unicodeMappings.add(new UnicodeMapping(this, glyphIdx, mapped));
-                  mtxTab[glyphIdx].getUnicodeIndex().add(new Integer(mapped));
-                }
-              }
-
-              // Also add winAnsiWidth
-              List<Integer> v = ansiIndex.get(new Integer(j));
-              if (v != null) {
-                for (Integer aIdx : v) {
-                  ansiWidth[aIdx.intValue()]
-                      = mtxTab[glyphIdx].getWx();
-
-                }
-              }
-
-            } else {
-              glyphIdx = (j + cmapDeltas[i]) & 0xffff;
+  /**
+   * Expands the cmap into the unicode indexes of the glyphs in mtxTab and
+   * the cmaps list.
+   */
+  private void createUnicodeMappings() {
+    unicodeMappings = new ArrayList<UnicodeMapping>();
+    int numGlyphs = mtxTab.getNumGlyphs();
+    int mtxPtr = 0;
 
-              if (glyphIdx < mtxTab.length) {
-                mtxTab[glyphIdx].getUnicodeIndex().add(new Integer(j));
-              }
+    for (int i = 0; i < characterMap.getSegmentCount(); i++) {
+      int end = characterMap.getSegmentEnd(i);
+      for (int j = characterMap.getSegmentStart(i); j <= end; j++) {
+        if (mtxPtr < numGlyphs) {
+          int glyphIdx = characterMap.getSegmentGlyph(i, j);
+          // the last character 65535 = .notdef
+          // may have a range offset
+          if (characterMap.usesGlyphIdArray(i, j)) {
+            unicodeMappings.add(new UnicodeMapping(glyphIdx, j));
+            if (glyphIdx < numGlyphs) {
+              mtxTab.addUnicode(glyphIdx, j);
+            }
 
-              unicodeMappings.add(new UnicodeMapping(this, glyphIdx, j));
-              if (glyphIdx < mtxTab.length) {
-                mtxTab[glyphIdx].getUnicodeIndex().add(new Integer(j));
+            if (characterMap.isSymbolMapping(i, j)) {
+              //Experimental: Mapping 0xF020-0xF0FF to 0x0020-0x00FF
+              //Tested with Wingdings and Symbol TTF fonts which map their
+              //glyphs in the region 0xF020-0xF0FF.
+              int mapped = j - 0xF000;
+              unicodeMappings.add(new UnicodeMapping(glyphIdx, mapped));
+              if (glyphIdx < numGlyphs) {
+                mtxTab.addUnicode(glyphIdx, mapped);
               }
+            }
+          } else {
+            if (glyphIdx < numGlyphs) {
+              mtxTab.addUnicode(glyphIdx, j);
+            }
 
-              // Also add winAnsiWidth
-              List<Integer> v = ansiIndex.get(new Integer(j));
-              if (v != null) {
-                for (Integer aIdx : v) {
-                  ansiWidth[aIdx.intValue()] = mtxTab[glyphIdx].getWx();
-                }
-              }
+            unicodeMappings.add(new UnicodeMapping(glyphIdx, j));
+            if (glyphIdx < numGlyphs) {
+              mtxTab.addUnicode(glyphIdx, j);
             }
-            if (glyphIdx < mtxTab.length) {
-              if (mtxTab[glyphIdx].getUnicodeIndex().size() < 2) {
-                mtxPtr++;
-              }
+          }
+          if (glyphIdx < numGlyphs) {
+            if (mtxTab.getUnicodeCount(glyphIdx) < 2) {
+              mtxPtr++;
             }
           }
         }
       }
-    } else {
-      return false;
     }
-    return true;
+
+    // format 12 groups, the format 13 ranges are only kept in the character map
+    for (int i = 0; i < characterMap.getRangeCount(); i++) {
+      if (characterMap.isConstantRange(i)) {
+        continue;
+      }
+      int end = characterMap.getRangeEnd(i);
+      int glyph = characterMap.getRangeGlyph(i);
+      for (int j = characterMap.getRangeStart(i); j <= end && glyph < numGlyphs; j++, glyph++) {
+        unicodeMappings.add(new UnicodeMapping(glyph, j));
+        mtxTab.addUnicode(glyph, j);
+      }
+    }
+    mtxTab.compactUnicodes();
   }
 
   private boolean isInPrivateUseArea(int start, int end) {
@@ -508,10 +803,52 @@ public abstract class OpenFont {
   }
 
   /**
+   * Returns the glyph data as a list of entries. The entries are created when they are accessed
+   * and changes to them are not reflected in the font; use {@link #getGlyphMetrics()} to read the
+   * glyph data without creating objects.
+   *
    * @return mmtx data
    */
   public List<OFMtxEntry> getMtx() {
-    return Collections.unmodifiableList(Arrays.asList(mtxTab));
+    ensureTables(TABLES_METRICS | TABLES_GLYPH_NAMES | TABLES_GLYPH_UNICODES
+        | TABLES_GLYPH_BOUNDS);
+    ensureGlyphBBoxes();
+    final GlyphMetrics metrics = mtxTab;
+    return new AbstractList<OFMtxEntry>() {
+
+      @Override public OFMtxEntry get(int index) {
+        if (index < 0 || index >= metrics.getNumGlyphs()) {
+          throw new IndexOutOfBoundsException("Glyph index " + index);
+        }
+        OFMtxEntry entry = new OFMtxEntry();
+        entry.setWx(metrics.getAdvance(index));
+        entry.setLsb(metrics.getLsb(index));
+        entry.setName(metrics.getName(index));
+        entry.setIndex(metrics.getPostIndex(index));
+        entry.setOffset(metrics.getOffset(index));
+        entry.setBoundingBox(metrics.getBBox(index));
+        for (int i = 0, n = metrics.getUnicodeCount(index); i < n; i++) {
+          entry.getUnicodeIndex().add(metrics.getUnicode(index, i));
+        }
+        return entry;
+      }
+
+      @Override public int size() {
+        return metrics.getNumGlyphs();
+      }
+    };
+  }
+
+  /**
+   * Returns the per glyph data (widths, bounding boxes, names and code points).
+   *
+   * @return the glyph data
+   */
+  public GlyphMetrics getGlyphMetrics() {
+    ensureTables(TABLES_METRICS | TABLES_GLYPH_NAMES | TABLES_GLYPH_UNICODES
+        | TABLES_GLYPH_BOUNDS);
+    ensureGlyphBBoxes();
+    return mtxTab;
   }
 
   /**
@@ -545,7 +882,7 @@ public abstract class OpenFont {
   protected void initAnsiWidths() {
     ansiWidth = new int[256];
     for (int i = 0; i < 256; i++) {
-      ansiWidth[i] = mtxTab[0].getWx();
+      ansiWidth[i] = mtxTab.getAdvance(0);
     }
 
     // Create an index hash to the ansiWidth
@@ -592,41 +929,397 @@ public abstract class OpenFont {
         throw new IOException("Name does not exist in the TrueType collection: " + name);
       }
     }
+    return readFontTables();
+  }
+
+  /**
+   * Reads the font whose table directory starts at the given offset, the member of a TrueType
+   * collection found by {@link TTFCollection}.
+   */
+  final boolean readFont(FontFileReader in, long directoryOffset) throws IOException {
+    initializeFont(in);
+    fontFile.seekSet(directoryOffset);
+    return readFontTables();
+  }
+
+  /**
+   * Reads the name of the font whose table directory starts at the given offset, decoding
+   * nothing else.
+   */
+  final String readFullName(FontFileReader in, long directoryOffset) throws IOException {
+    initializeFont(in);
+    fontFile.seekSet(directoryOffset);
+    readDirTabs();
+    readName();
+    String name = fullName;
+    resetNames();
+    return name;
+  }
 
+  /**
+   * Reads the table directory at the current position and decodes the selected tables.
+   */
+  private boolean readFontTables() throws IOException {
     readDirTabs();
     readFontHeader();
     getNumGlyphs();
+    loadedTables = TABLES_ALL & ~enabledTables;
 
-    readHorizontalHeader();
-    readHorizontalMetrics();
-    initAnsiWidths();
-    readPostScript();
-    readOS2();
-    determineAscDesc();
+    if (lazy) {
+      return true;
+    }
+    synchronized (tableLock) {
+      // the code points of each glyph are only expanded from the cmap when they are asked for
+      loadTables(TABLES_ALL & ~TABLES_GLYPH_UNICODES);
+    }
+    return cmapValid || (enabledTables & TABLES_CMAP) == 0;
+  }
 
-    readName();
-    boolean pcltFound = readPCLT();
-    // Read cmap table and fill in ansiwidths
-    boolean valid = readCMAP();
-    if (!valid) {
-      return false;
+  /**
+   * Decodes the given table groups if they have not been decoded yet. Safe to call from
+   * multiple threads; each group is decoded at most once.
+   *
+   * @param tables
+   *     a combination of the TABLES_* group flags
+   * @throws IllegalStateException
+   *     if the font file can not be read
+   */
+  protected final void ensureTables(int tables) {
+    if ((loadedTables & tables) != tables) {
+      synchronized (tableLock) {
+        try {
+          loadTables(tables);
+        } catch (IOException e) {
+          throw new IllegalStateException("Error reading font tables: " + e.getMessage(), e);
+        }
+      }
     }
+  }
 
-    // Create cmaps for bfentries
-    createCMaps();
-    updateBBoxAndOffset();
+  /**
+   * Decodes the table groups that have not been decoded yet. Must hold tableLock.
+   */
+  private void loadTables(int tables) throws IOException {
+    int pending = tables & ~loadedTables;
+    if (pending == 0) {
+      return;
+    }
+    if ((pending & TABLES_KERNING) != 0) {
+      pending |= TABLES_CMAP; // kerning is only read with a valid cmap
+      if (dirTabs.get(OFTableName.KERN) == null) {
+        pending |= TABLES_ADVANCED; // fall back on the GPOS kerning
+      }
+    }
+    if ((pending & TABLES_VERTICAL_METRICS) != 0) {
+      pending |= TABLES_GLYPH_NAMES | TABLES_CMAP | TABLES_GLYPH_BOUNDS;
+    }
+    if ((pending & TABLES_GLYPH_UNICODES) != 0) {
+      pending |= TABLES_CMAP;
+    }
+    if ((pending & (TABLES_GLYPH_NAMES | TABLES_CMAP | TABLES_GLYPH_BOUNDS)) != 0) {
+      pending |= TABLES_METRICS; // per glyph data is stored in mtxTab
+    }
+    if ((pending & TABLES_METRICS) != 0) {
+      pending |= TABLES_OS2; // ascender and descender fall back on OS/2
+    }
+    pending &= ~loadedTables;
 
-    if (useKerning) {
-      readKerning();
+    AtomicBoolean advancedAbandoned = new AtomicBoolean();
+    List<FutureTask<OTFAdvancedTypographicTableReader>> advancedTasks = null;
+    if ((pending & TABLES_ADVANCED) != 0) {
+      advancedTasks = startAdvancedTables(advancedAbandoned);
+    }
+    boolean loaded = false;
+    try {
+      loadBasicTables(pending);
+      loaded = true;
+    } finally {
+      if (!loaded && advancedTasks != null) {
+        abandonAdvancedTables(advancedTasks, advancedAbandoned);
+      }
     }
-    handleCharacterSpacing(in);
+    if ((pending & TABLES_ADVANCED) != 0) {
+      if (advancedTasks != null) {
+        finishAdvancedTables(advancedTasks, advancedAbandoned);
+      } else {
+        handleCharacterSpacing(fontFile);
+      }
+      loadedTables |= TABLES_ADVANCED;
+    }
+    if ((pending & TABLES_KERNING) != 0) {
+      if (useKerning && cmapValid) {
+        readKerning();
+        if (dirTabs.get(OFTableName.KERN) == null) {
+          kerning = createPositioningKerning(OTFScript.LATIN, OTFLanguage.DEFAULT);
+        }
+      }
+      loadedTables |= TABLES_KERNING;
+    }
+  }
 
-    guessVerticalMetricsFromGlyphBBox();
-    return true;
+  /**
+   * Decodes the pending table groups other than the advanced and kerning tables. Must hold
+   * tableLock.
+   */
+  private void loadBasicTables(int pending) throws IOException {
+    if ((pending & TABLES_NAME) != 0) {
+      readName();
+      loadedTables |= TABLES_NAME;
+    }
+    if ((pending & TABLES_OS2) != 0) {
+      readOS2();
+      loadedTables |= TABLES_OS2;
+    }
+    if ((pending & TABLES_METRICS) != 0) {
+      readHorizontalHeader();
+      readHorizontalMetrics();
+      initAnsiWidths();
+      readPostScript();
+      determineAscDesc();
+      readPCLT();
+      loadedTables |= TABLES_METRICS;
+    }
+    if ((pending & TABLES_GLYPH_NAMES) != 0) {
+      readPostScriptGlyphNames();
+      loadedTables |= TABLES_GLYPH_NAMES;
+    }
+    if ((pending & TABLES_CMAP) != 0) {
+      // Read cmap table and fill in ansiwidths
+      cmapValid = readCMAP();
+      loadedTables |= TABLES_CMAP;
+    }
+    if ((pending & TABLES_GLYPH_UNICODES) != 0) {
+      createUnicodeMappings();
+      if (cmapValid) {
+        // Create cmaps for bfentries
+        createCMaps();
+      }
+      loadedTables |= TABLES_GLYPH_UNICODES;
+    }
+    if ((pending & TABLES_GLYPH_BOUNDS) != 0) {
+      updateBBoxAndOffset();
+      loadedTables |= TABLES_GLYPH_BOUNDS;
+      if (eagerGlyphBounds) {
+        readGlyphBBoxes();
+      }
+    }
+    if ((pending & TABLES_VERTICAL_METRICS) != 0) {
+      // the guess needs the bounding boxes and at least one way to find the glyphs
+      if ((enabledTables & TABLES_GLYPH_BOUNDS) != 0
+          && (cmapValid || (enabledTables & TABLES_CMAP) == 0)) {
+        guessVerticalMetricsFromGlyphBBox();
+      } else {
+        if (capHeight == 0) {
+          capHeight = os2CapHeight;
+        }
+        if (xHeight == 0) {
+          xHeight = os2xHeight;
+        }
+      }
+      loadedTables |= TABLES_VERTICAL_METRICS;
+    }
+  }
+
+  /**
+   * Starts decoding GDEF, GSUB and GPOS on the executor, each table with its own reader over the
+   * font data, so they are decoded while the calling thread reads the other tables. The GSUB and
+   * GPOS tasks wait for GDEF, as the lookups they build test glyphs against its classes.
+   *
+   * @param abandoned
+   *     set once the tables are no longer needed, after which tasks that did not start do nothing
+   * @return the tasks decoding the tables, GDEF first, or null if they are decoded by
+   *     {@link #handleCharacterSpacing(FontFileReader)}
+   */
+  private List<FutureTask<OTFAdvancedTypographicTableReader>> startAdvancedTables(
+      AtomicBoolean abandoned) {
+    if (executor == null || !useAdvanced || !fontFile.holdsWholeFile()) {
+      return null;
+    }
+    FontData data = fontFile.getFontData();
+    List<FutureTask<OTFAdvancedTypographicTableReader>> tasks = new ArrayList<>(3);
+    FutureTask<OTFAdvancedTypographicTableReader> gdefTask = null;
+    if (dirTabs.get(OFTableName.GDEF) != null) {
+      gdefTask = createAdvancedTableTask(data, OFTableName.GDEF, null, abandoned);
+      tasks.add(gdefTask);
+    }
+    for (OFTableName tableTag : new OFTableName[]{OFTableName.GSUB, OFTableName.GPOS}) {
+      if (dirTabs.get(tableTag) != null) {
+        tasks.add(createAdvancedTableTask(data, tableTag, gdefTask, abandoned));
+      }
+    }
+    for (FutureTask<OTFAdvancedTypographicTableReader> task : tasks) {
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        // run by finishAdvancedTables
+      }
+    }
+    return tasks;
+  }
+
+  private FutureTask<OTFAdvancedTypographicTableReader> createAdvancedTableTask(
+      final FontData data, final OFTableName tableTag,
+      final FutureTask<OTFAdvancedTypographicTableReader> gdefTask, final AtomicBoolean abandoned) {
+    return new FutureTask<>(new Callable<OTFAdvancedTypographicTableReader>() {
+      @Override public OTFAdvancedTypographicTableReader call() throws Exception {
+        OTFAdvancedTypographicTableReader gdefReader = null;
+        if (gdefTask != null && !abandoned.get()) {
+          gdefTask.run(); // does nothing if another thread started it
+          gdefReader = gdefTask.get();
+        }
+        OTFAdvancedTypographicTableReader atr = null;
+        if (!abandoned.get()) {
+          atr = new OTFAdvancedTypographicTableReader(
+              OpenFont.this, new FontFileReader(data.slice(0, data.size())));
+          if (gdefReader != null) {
+            atr.add(gdefReader);
+          }
+          atr.read(tableTag);
+        }
+        return atr;
+      }
+    });
+  }
+
+  /**
+   * Waits for the tables started by {@link #startAdvancedTables(AtomicBoolean)}, decoding those
+   * that no thread of the executor has started on the calling thread. If a table has an invalid
+   * format, the tables are decoded again by {@link #handleCharacterSpacing(FontFileReader)}, which
+   * reports the error and uses the font without advanced tables, the same as without an executor.
+   */
+  private void finishAdvancedTables(List<FutureTask<OTFAdvancedTypographicTableReader>> tasks,
+                                    AtomicBoolean abandoned) throws IOException {
+    OTFAdvancedTypographicTableReader atr = new OTFAdvancedTypographicTableReader(this, fontFile);
+    boolean finished = false;
+    try {
+      for (FutureTask<OTFAdvancedTypographicTableReader> task : tasks) {
+        task.run(); // does nothing if the task was started by the executor
+        atr.add(task.get());
+      }
+      this.advancedTableReader = atr;
+      finished = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading the advanced tables");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AdvancedTypographicTableFormatException) {
+        abandonAdvancedTables(tasks, abandoned);
+        finished = true;
+        handleCharacterSpacing(fontFile);
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else {
+        throw (Error) cause;
+      }
+    } finally {
+      if (!finished) {
+        abandonAdvancedTables(tasks, abandoned);
+      }
+    }
+  }
+
+  /**
+   * Stops the tasks started by {@link #startAdvancedTables(AtomicBoolean)} once their tables are
+   * not needed: those that did not start yet end without decoding, and the method waits for
+   * the others to end, so no task still reads the font when loading fails.
+   */
+  private static void abandonAdvancedTables(
+      List<FutureTask<OTFAdvancedTypographicTableReader>> tasks, AtomicBoolean abandoned) {
+    abandoned.set(true);
+    boolean interrupted = false;
+    for (FutureTask<OTFAdvancedTypographicTableReader> task : tasks) {
+      task.run(); // ends at once if not started, as abandoned is set
+      boolean done = false;
+      while (!done) {
+        try {
+          task.get();
+          done = true;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          done = true; // the first failure is reported by the caller
+        } catch (CancellationException e) {
+          done = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   protected abstract void updateBBoxAndOffset() throws IOException;
 
+  /**
+   * Reads the bounding box of a glyph into mtxTab. Called at most once per glyph after
+   * {@link #updateBBoxAndOffset()}, with tableLock held.
+   *
+   * @param glyph
+   *     the glyph index, less than the number of glyphs
+   * @throws IOException
+   *     if the font file can not be read
+   */
+  protected abstract void readGlyphBBox(int glyph) throws IOException;
+
+  /**
+   * Reads the bounding boxes of all glyphs that were not read yet. Must hold tableLock.
+   */
+  private void readGlyphBBoxes() throws IOException {
+    if (!glyphBoundsDecoded) {
+      for (int i = 0; i < numberOfGlyphs; i++) {
+        if (!mtxTab.hasBBox(i)) {
+          readGlyphBBox(i);
+        }
+      }
+      glyphBoundsDecoded = true;
+    }
+  }
+
+  /**
+   * Makes sure the bounding box of every glyph is in mtxTab.
+   */
+  private void ensureGlyphBBoxes() {
+    ensureTables(TABLES_GLYPH_BOUNDS);
+    if (!glyphBoundsDecoded && (enabledTables & TABLES_GLYPH_BOUNDS) != 0) {
+      synchronized (tableLock) {
+        try {
+          readGlyphBBoxes();
+        } catch (IOException e) {
+          throw new IllegalStateException("Error reading glyph bounds: " + e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns one coordinate of a glyph's bounding box, reading the box from the font first if
+   * needed. The glyph bounds group must be loaded.
+   *
+   * @param glyph
+   *     the glyph index
+   * @param index
+   *     0 for xMin, 1 for yMin, 2 for xMax and 3 for yMax
+   * @return the coordinate in font units
+   */
+  private int getGlyphBBox(int glyph, int index) {
+    if (!glyphBoundsDecoded && glyph < numberOfGlyphs
+        && (enabledTables & TABLES_GLYPH_BOUNDS) != 0) {
+      synchronized (tableLock) {
+        if (!mtxTab.hasBBox(glyph)) {
+          try {
+            readGlyphBBox(glyph);
+          } catch (IOException e) {
+            throw new IllegalStateException("Error reading glyph bounds: " + e.getMessage(), e);
+          }
+        }
+      }
+    }
+    return mtxTab.getBBox(glyph, index);
+  }
+
   protected abstract void readName() throws IOException;
 
   protected abstract void initializeFont(FontFileReader in) throws IOException;
@@ -683,6 +1376,7 @@ public abstract class OpenFont {
    * @return String The PostScript name
    */
   public String getPostScriptName() {
+    ensureTables(TABLES_NAME);
     if (postScriptName.length() == 0) {
       return FontUtil.stripWhiteSpace(getFullName());
     } else {
@@ -691,6 +1385,7 @@ public abstract class OpenFont {
   }
 
   PostScriptVersion getPostScriptVersion() {
+    ensureTables(TABLES_METRICS);
     return postScriptVersion;
   }
 
@@ -700,6 +1395,7 @@ public abstract class OpenFont {
    * @return Set The family names (a Set of Strings)
    */
   public Set<String> getFamilyNames() {
+    ensureTables(TABLES_NAME);
     return familyNames;
   }
 
@@ -709,6 +1405,7 @@ public abstract class OpenFont {
    * @return String The sub family name
    */
   public String getSubFamilyName() {
+    ensureTables(TABLES_NAME);
     return subFamilyName;
   }
 
@@ -718,6 +1415,7 @@ public abstract class OpenFont {
    * @return String The full name
    */
   public String getFullName() {
+    ensureTables(TABLES_NAME);
     return fullName;
   }
 
@@ -736,6 +1434,7 @@ public abstract class OpenFont {
    * @return int The CapHeight
    */
   public int getCapHeight() {
+    ensureTables(TABLES_VERTICAL_METRICS);
     return convertTTFUnit2PDFUnit(capHeight);
   }
 
@@ -745,6 +1444,7 @@ public abstract class OpenFont {
    * @return int The XHeight
    */
   public int getXHeight() {
+    ensureTables(TABLES_VERTICAL_METRICS);
     return convertTTFUnit2PDFUnit(xHeight);
   }
 
@@ -767,6 +1467,7 @@ public abstract class OpenFont {
    * @return int The Flags
    */
   public int getFlags() {
+    ensureTables(TABLES_METRICS);
     int flags = 32;    // Use Adobe Standard charset
     if (italicAngle != 0) {
       flags |= 64;
@@ -786,6 +1487,7 @@ public abstract class OpenFont {
    * @return the weight class value (or 0 if there was no OS/2 table in the font)
    */
   public int getWeightClass() {
+    ensureTables(TABLES_OS2);
     return this.usWeightClass;
   }
 
@@ -804,6 +1506,7 @@ public abstract class OpenFont {
    * @return String The ItalicAngle
    */
   public String getItalicAngle() {
+    ensureTables(TABLES_METRICS);
     return Short.toString((short) (italicAngle / 0x10000));
   }
 
@@ -835,6 +1538,7 @@ public abstract class OpenFont {
    * @return int The LowerCaseAscent
    */
   public int getLowerCaseAscent() {
+    ensureTables(TABLES_VERTICAL_METRICS);
     return convertTTFUnit2PDFUnit(ascender);
   }
 
@@ -844,6 +1548,7 @@ public abstract class OpenFont {
    * @return int The LowerCaseDescent
    */
   public int getLowerCaseDescent() {
+    ensureTables(TABLES_VERTICAL_METRICS);
     return convertTTFUnit2PDFUnit(descender);
   }
 
@@ -854,6 +1559,7 @@ public abstract class OpenFont {
    * @return short Index of the last character (<256)
    */
   public short getLastChar() {
+    ensureTables(TABLES_CMAP);
     return lastChar;
   }
 
@@ -872,22 +1578,54 @@ public abstract class OpenFont {
    * @return int[] The character widths
    */
   public int[] getWidths() {
-    int[] wx = new int[mtxTab.length];
+    ensureTables(TABLES_METRICS);
+    int[] wx = new int[mtxTab.getNumGlyphs()];
     for (int i = 0; i < wx.length; i++) {
-      wx[i] = convertTTFUnit2PDFUnit(mtxTab[i].getWx());
+      wx[i] = convertTTFUnit2PDFUnit(mtxTab.getAdvance(i));
     }
     return wx;
   }
 
+  /**
+   * Returns the bounding boxes of all glyphs, in 1/1000 of the em.
+   *
+   * @return the bounding boxes, indexed by glyph
+   * @deprecated android.graphics.Rect is only available on Android; use
+   *     {@link #getBoundingRectangles()} instead.
+   */
+  @Deprecated
   public Rect[] getBoundingBoxes() {
-    Rect[] boundingBoxes = new Rect[mtxTab.length];
+    ensureGlyphBBoxes();
+    Rect[] boundingBoxes = new Rect[mtxTab.getNumGlyphs()];
     for (int i = 0; i < boundingBoxes.length; i++) {
-      int[] boundingBox = mtxTab[i].getBoundingBox();
+      int xMin = mtxTab.getBBox(i, 0);
+      int yMin = mtxTab.getBBox(i, 1);
       boundingBoxes[i] = new Rect(
-          convertTTFUnit2PDFUnit(boundingBox[0]),
-          convertTTFUnit2PDFUnit(boundingBox[1]),
-          convertTTFUnit2PDFUnit(boundingBox[2] - boundingBox[0]),
-          convertTTFUnit2PDFUnit(boundingBox[3] - boundingBox[1]));
+          convertTTFUnit2PDFUnit(xMin),
+          convertTTFUnit2PDFUnit(yMin),
+          convertTTFUnit2PDFUnit(mtxTab.getBBox(i, 2) - xMin),
+          convertTTFUnit2PDFUnit(mtxTab.getBBox(i, 3) - yMin));
+    }
+    return boundingBoxes;
+  }
+
+  /**
+   * Returns the bounding boxes of all glyphs as their lower left corner, width and height, in
+   * 1/1000 of the em.
+   *
+   * @return the bounding boxes, indexed by glyph
+   */
+  public Rectangle[] getBoundingRectangles() {
+    ensureGlyphBBoxes();
+    Rectangle[] boundingBoxes = new Rectangle[mtxTab.getNumGlyphs()];
+    for (int i = 0; i < boundingBoxes.length; i++) {
+      int xMin = mtxTab.getBBox(i, 0);
+      int yMin = mtxTab.getBBox(i, 1);
+      boundingBoxes[i] = new Rectangle(
+          convertTTFUnit2PDFUnit(xMin),
+          convertTTFUnit2PDFUnit(yMin),
+          convertTTFUnit2PDFUnit(mtxTab.getBBox(i, 2) - xMin),
+          convertTTFUnit2PDFUnit(mtxTab.getBBox(i, 3) - yMin));
     }
     return boundingBoxes;
   }
@@ -900,10 +1638,10 @@ public abstract class OpenFont {
    * @return int[] Array defining bounding box.
    */
   public int[] getBBox(int glyphIndex) {
-    int[] bboxInTTFUnits = mtxTab[glyphIndex].getBoundingBox();
+    ensureTables(TABLES_GLYPH_BOUNDS);
     int[] bbox = new int[4];
     for (int i = 0; i < 4; i++) {
-      bbox[i] = convertTTFUnit2PDFUnit(bboxInTTFUnits[i]);
+      bbox[i] = convertTTFUnit2PDFUnit(getGlyphBBox(glyphIndex, i));
     }
     return bbox;
   }
@@ -916,7 +1654,11 @@ public abstract class OpenFont {
    * @return int Standard width
    */
   public int getCharWidth(int idx) {
-    return convertTTFUnit2PDFUnit(ansiWidth[idx]);
+    ensureTables(TABLES_CMAP);
+    if (ansiWidth != null) {
+      return convertTTFUnit2PDFUnit(ansiWidth[idx]);
+    }
+    return -1;
   }
 
   /**
@@ -927,6 +1669,7 @@ public abstract class OpenFont {
    * @return int Width in it's raw form stored in the font
    */
   public int getCharWidthRaw(int idx) {
+    ensureTables(TABLES_CMAP);
     if (ansiWidth != null) {
       return ansiWidth[idx];
     }
@@ -939,6 +1682,7 @@ public abstract class OpenFont {
    * @return Map The kerning table
    */
   public Map<Integer, Map<Integer, Integer>> getKerning() {
+    ensureKerningMaps();
     return kerningTab;
   }
 
@@ -948,22 +1692,106 @@ public abstract class OpenFont {
    * @return Map The ANSI kerning table
    */
   public Map<Integer, Map<Integer, Integer>> getAnsiKerning() {
+    ensureKerningMaps();
     return ansiKerningTab;
   }
 
+  /**
+   * Returns the kerning between two glyphs.
+   *
+   * @param leftGlyph
+   *     the index of the left glyph
+   * @param rightGlyph
+   *     the index of the right glyph
+   * @return the kerning value in 1/1000 of the em, 0 if the pair is not kerned
+   */
+  public int getKern(int leftGlyph, int rightGlyph) {
+    ensureTables(TABLES_KERNING);
+    return kerning != null ? kerning.getKern(leftGlyph, rightGlyph) : 0;
+  }
+
+  /**
+   * Returns the kerning of glyph pairs. This is the "kern" table or, for fonts without one,
+   * the "kern" feature of the GPOS table for Latin script if advanced typographic tables are
+   * enabled.
+   *
+   * @return the kerning table, or null if kerning is disabled or the font has no cmap
+   */
+  public KerningTable getKerningTable() {
+    ensureTables(TABLES_KERNING);
+    return kerning;
+  }
+
+  /**
+   * Returns the kerning of glyph pairs of the "kern" feature of the GPOS table. The pair
+   * adjustment lookups are flattened once per script and language, so simple layout can kern
+   * without positioning each glyph sequence.
+   *
+   * @param script
+   *     the script, e.g. "latn"
+   * @param language
+   *     the language, e.g. "dflt"
+   * @return the kerning table, empty if the font has no GPOS table or advanced typographic
+   *     tables are disabled
+   */
+  public KerningTable getKerningTable(String script, String language) {
+    ensureTables(TABLES_ADVANCED);
+    synchronized (tableLock) {
+      return createPositioningKerning(script, language);
+    }
+  }
+
+  /**
+   * Flattens the pair adjustments of the GPOS "kern" feature. Must hold tableLock.
+   */
+  private KerningTable createPositioningKerning(String script, String language) {
+    String key = script + '/' + language;
+    KerningTable table = positioningKerning.get(key);
+    if (table == null) {
+      GlyphPositioningTable gpos = advancedTableReader != null ? advancedTableReader.getGPOS() : null;
+      if (gpos == null) {
+        table = KerningTable.EMPTY;
+      } else {
+        final KerningTable sums = new KerningTable();
+        gpos.collectPairAdjustments(script, language, "kern", numberOfGlyphs,
+            new GlyphPositioningTable.PairAdjustmentCollector() {
+
+              @Override public void addPair(int glyph1, int glyph2, int xAdvance) {
+                sums.put(glyph1, glyph2, sums.getKern(glyph1, glyph2) + xAdvance);
+              }
+            });
+        table = new KerningTable();
+        for (int slot = 0; slot < sums.getSlotCount(); slot++) {
+          int pair = sums.getSlotKey(slot);
+          int kpx = sums.getSlotValue(slot);
+          if (pair != -1 && kpx != 0) {
+            // value records are already converted to PDF units by the table reader
+            table.put(pair >>> 16, pair & 0xFFFF, kpx);
+          }
+        }
+      }
+      positioningKerning.put(key, table);
+    }
+    return table;
+  }
+
   public int getUnderlinePosition() {
+    ensureTables(TABLES_METRICS);
     return convertTTFUnit2PDFUnit(underlinePosition);
   }
 
   public int getUnderlineThickness() {
+    ensureTables(TABLES_METRICS);
     return convertTTFUnit2PDFUnit(underlineThickness);
   }
 
   public int getStrikeoutPosition() {
+    ensureTables(TABLES_OS2);
     return convertTTFUnit2PDFUnit(strikeoutPosition);
   }
 
   public int getStrikeoutThickness() {
+    ensureTables(TABLES_OS2);
     return convertTTFUnit2PDFUnit(strikeoutThickness);
   }
 
@@ -973,6 +1801,7 @@ public abstract class OpenFont {
    * @return boolean True if it may be embedded
    */
   public boolean isEmbeddable() {
+    ensureTables(TABLES_OS2);
     return isEmbeddable;
   }
 
@@ -1092,29 +1921,28 @@ public abstract class OpenFont {
     seekTab(fontFile, OFTableName.HMTX, 0);
 
     int mtxSize = Math.max(numberOfGlyphs, nhmtx);
-    mtxTab = new OFMtxEntry[mtxSize];
+    mtxTab = new GlyphMetrics(mtxSize);
 
-    for (int i = 0; i < mtxSize; i++) {
-      mtxTab[i] = new OFMtxEntry();
-    }
+    // advance width and left side bearing pairs
+    int[] metrics = new int[2 * nhmtx];
+    fontFile.readUShorts(metrics, metrics.length);
     for (int i = 0; i < nhmtx; i++) {
-      mtxTab[i].setWx(fontFile.readTTFUShort());
-      mtxTab[i].setLsb(fontFile.readTTFUShort());
+      mtxTab.setMetrics(i, metrics[2 * i], metrics[2 * i + 1]);
     }
 
     if (cid && nhmtx < mtxSize) {
       // Fill in the missing widths
-      int lastWidth = mtxTab[nhmtx - 1].getWx();
+      int lastWidth = mtxTab.getAdvance(nhmtx - 1);
+      int[] lsbs = new int[mtxSize - nhmtx];
+      fontFile.readUShorts(lsbs, lsbs.length);
       for (int i = nhmtx; i < mtxSize; i++) {
-        mtxTab[i].setWx(lastWidth);
-        mtxTab[i].setLsb(fontFile.readTTFUShort());
+        mtxTab.setMetrics(i, lastWidth, lsbs[i - nhmtx]);
       }
     }
   }
 
   /**
-   * Read the "post" table
-   * containing the PostScript names of the glyphs.
+   * Read the "post" table header.
    */
   protected void readPostScript() throws IOException {
     seekTab(fontFile, OFTableName.POST, 0);
@@ -1124,60 +1952,63 @@ public abstract class OpenFont {
     underlineThickness = fontFile.readTTFShort();
     isFixedPitch = fontFile.readTTFULong();
 
-    //Skip memory usage values
-    fontFile.skip(4 * 4);
-
     switch (postFormat) {
       case 0x00010000:
         postScriptVersion = PostScriptVersion.V1;
-        for (int i = 0; i < MAC_GLYPH_ORDERING.length; i++) {
-          mtxTab[i].setName(MAC_GLYPH_ORDERING[i]);
-        }
         break;
       case 0x00020000:
         postScriptVersion = PostScriptVersion.V2;
+        break;
+      case 0x00030000:
+        // PostScript format 3 contains no glyph names
+        postScriptVersion = PostScriptVersion.V3;
+        break;
+      default:
+        postScriptVersion = PostScriptVersion.UNKNOWN;
+    }
+  }
+
+  /**
+   * Read the glyph names from the "post" table.
+   */
+  protected void readPostScriptGlyphNames() throws IOException {
+    // Skip the header and memory usage values
+    seekTab(fontFile, OFTableName.POST, 4 * 4 + 4 * 4);
+
+    switch (postScriptVersion) {
+      case V1:
+        mtxTab.setStandardNames();
+        break;
+      case V2:
         int numGlyphStrings = 257;
 
         // Read Number of Glyphs
         int l = fontFile.readTTFUShort();
 
         // Read indexes
+        int[] indexes = new int[l];
         for (int i = 0; i < l; i++) {
-          mtxTab[i].setIndex(fontFile.readTTFUShort());
+          indexes[i] = fontFile.readTTFUShort();
 
-          if (mtxTab[i].getIndex() > numGlyphStrings) {
-            numGlyphStrings = mtxTab[i].getIndex();
+          if (indexes[i] > numGlyphStrings) {
+            numGlyphStrings = indexes[i];
           }
 
         }
 
-        // firstChar=minIndex;
-        String[] psGlyphsBuffer = new String[numGlyphStrings - 257];
-
-        for (int i = 0; i < psGlyphsBuffer.length; i++) {
-          psGlyphsBuffer[i] = fontFile.readTTFString(fontFile.readTTFUByte());
-        }
-
-        //Set glyph names
-        for (int i = 0; i < l; i++) {
-          if (mtxTab[i].getIndex() < MAC_GLYPH_ORDERING.length) {
-            mtxTab[i].setName(MAC_GLYPH_ORDERING[mtxTab[i].getIndex()]);
-          } else {
-            if (!mtxTab[i].isIndexReserved()) {
-              int k = mtxTab[i].getIndex() - MAC_GLYPH_ORDERING.length;
-
-              mtxTab[i].setName(psGlyphsBuffer[k]);
-            }
-          }
+        // Locate the Pascal strings, they are decoded when a name is requested
+        int[] nameOffsets = new int[numGlyphStrings - 257];
+        int start = fontFile.getCurrentPos();
+        for (int i = 0; i < nameOffsets.length; i++) {
+          nameOffsets[i] = fontFile.getCurrentPos() - start;
+          fontFile.skip(fontFile.readTTFUByte());
         }
+        byte[] nameData = fontFile.getBytes(start, fontFile.getCurrentPos() - start);
 
-        break;
-      case 0x00030000:
-        // PostScript format 3 contains no glyph names
-        postScriptVersion = PostScriptVersion.V3;
+        mtxTab.setNames(indexes, nameData, nameOffsets);
         break;
       default:
-        postScriptVersion = PostScriptVersion.UNKNOWN;
+        break;
     }
   }
 
@@ -1287,42 +2118,31 @@ public abstract class OpenFont {
   protected void guessVerticalMetricsFromGlyphBBox() {
     // Approximate capHeight from height of "H"
     // It's most unlikely that a font misses the PCLT table
-    // This also assumes that postscriptnames exists ("H")
-    // Should look it up in the cmap (that wouldn't help
-    // for charsets without H anyway...)
     // Same for xHeight with the letter "x"
-    int localCapHeight = 0;
-    int localXHeight = 0;
-    int localAscender = 0;
-    int localDescender = 0;
-    for (int i = 0; i < mtxTab.length; i++) {
-      if ("H".equals(mtxTab[i].getName())) {
-        localCapHeight = mtxTab[i].getBoundingBox()[3];
-      } else if ("x".equals(mtxTab[i].getName())) {
-        localXHeight = mtxTab[i].getBoundingBox()[3];
-      } else if ("d".equals(mtxTab[i].getName())) {
-        localAscender = mtxTab[i].getBoundingBox()[3];
-      } else if ("p".equals(mtxTab[i].getName())) {
-        localDescender = mtxTab[i].getBoundingBox()[1];
-      } else {
-        // OpenType Fonts with a version 3.0 "post" table don't have glyph names.
-        // Use Unicode indices instead.
-        List unicodeIndex = mtxTab[i].getUnicodeIndex();
-        if (unicodeIndex.size() > 0) {
-          //Only the first index is used
-          char ch = (char) ((Integer) unicodeIndex.get(0)).intValue();
-          if (ch == 'H') {
-            localCapHeight = mtxTab[i].getBoundingBox()[3];
-          } else if (ch == 'x') {
-            localXHeight = mtxTab[i].getBoundingBox()[3];
-          } else if (ch == 'd') {
-            localAscender = mtxTab[i].getBoundingBox()[3];
-          } else if (ch == 'p') {
-            localDescender = mtxTab[i].getBoundingBox()[1];
-          }
+    // The glyphs are looked up in the cmap, which is cheaper than expanding it into the
+    // code points of every glyph. Glyphs the cmap does not map are found by their
+    // postscript names instead.
+    int glyphH = findGuessGlyph('H');
+    int glyphX = findGuessGlyph('x');
+    int glyphD = findGuessGlyph('d');
+    int glyphP = findGuessGlyph('p');
+    if (glyphH < 0 || glyphX < 0 || glyphD < 0 || glyphP < 0) {
+      for (int i = 0; i < mtxTab.getNumGlyphs(); i++) {
+        if (glyphH < 0 && mtxTab.hasName(i, "H")) {
+          glyphH = i;
+        } else if (glyphX < 0 && mtxTab.hasName(i, "x")) {
+          glyphX = i;
+        } else if (glyphD < 0 && mtxTab.hasName(i, "d")) {
+          glyphD = i;
+        } else if (glyphP < 0 && mtxTab.hasName(i, "p")) {
+          glyphP = i;
         }
       }
     }
+    int localCapHeight = (glyphH >= 0) ? getGlyphBBox(glyphH, 3) : 0;
+    int localXHeight = (glyphX >= 0) ? getGlyphBBox(glyphX, 3) : 0;
+    int localAscender = (glyphD >= 0) ? getGlyphBBox(glyphD, 3) : 0;
+    int localDescender = (glyphP >= 0) ? getGlyphBBox(glyphP, 1) : 0;
     if (ascender - descender > upem) {
       ascender = localAscender;
       descender = localDescender;
@@ -1343,16 +2163,30 @@ public abstract class OpenFont {
   }
 
   /**
-   * Read the kerning table, create a table for both CIDs and
-   * winAnsiEncoding.
+   * Returns the glyph the cmap maps a character used by the vertical metrics guess to.
+   *
+   * @param ch
+   *     the character
+   * @return the glyph index, or -1 if the cmap is not valid or does not map the character
+   */
+  private int findGuessGlyph(char ch) {
+    int glyph = cmapValid ? characterMap.glyphForCodePoint(ch) : 0;
+    if (glyph > 0 && glyph < mtxTab.getNumGlyphs()) {
+      return glyph;
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * Read the kerning table into a table keyed by glyph indexes.
    *
    * @throws IOException
    *     In case of a I/O problem
    */
   protected void readKerning() throws IOException {
     // Read kerning
-    kerningTab = new HashMap<Integer, Map<Integer, Integer>>();
-    ansiKerningTab = new HashMap<Integer, Map<Integer, Integer>>();
+    kerning = new KerningTable();
     OFDirTabEntry dirTab = dirTabs.get(OFTableName.KERN);
     if (dirTab != null) {
       seekTab(fontFile, OFTableName.KERN, 2);
@@ -1373,62 +2207,88 @@ public abstract class OpenFont {
           int j = fontFile.readTTFUShort();
           int kpx = fontFile.readTTFShort();
           if (kpx != 0) {
-            // CID kerning table entry, using unicode indexes
-            final Integer iObj = glyphToUnicode(i);
-            final Integer u2 = glyphToUnicode(j);
-            if (iObj != null && u2 != null) {
-              Map<Integer, Integer> adjTab = kerningTab.get(iObj);
-              if (adjTab == null) {
-                adjTab = new HashMap<Integer, Integer>();
-              }
-              adjTab.put(u2, new Integer(convertTTFUnit2PDFUnit(kpx)));
-              kerningTab.put(iObj, adjTab);
-            }
+            kerning.put(i, j, convertTTFUnit2PDFUnit(kpx));
+          }
+        }
+      }
+    }
+  }
+
+  private void ensureKerningMaps() {
+    ensureTables(TABLES_KERNING | TABLES_GLYPH_UNICODES);
+    if (kerningTab == null && kerning != null) {
+      synchronized (tableLock) {
+        if (kerningTab == null) {
+          createKerningMaps();
+        }
+      }
+    }
+  }
+
+  /**
+   * Create the kerning tables for both CIDs and winAnsiEncoding from the
+   * kerning of the glyphs.
+   */
+  private void createKerningMaps() {
+    Map<Integer, Map<Integer, Integer>> cidKerning = new HashMap<>();
+    ansiKerningTab = new HashMap<Integer, Map<Integer, Integer>>();
+
+    for (int slot = 0; slot < kerning.getSlotCount(); slot++) {
+      int key = kerning.getSlotKey(slot);
+      if (key != -1) {
+        // CID kerning table entry, using unicode indexes
+        final int u1 = characterMap.codePointForGlyph(key >>> 16);
+        final int u2 = characterMap.codePointForGlyph(key & 0xFFFF);
+        if (u1 >= 0 && u2 >= 0) {
+          Integer iObj = new Integer(u1);
+          Map<Integer, Integer> adjTab = cidKerning.get(iObj);
+          if (adjTab == null) {
+            adjTab = new HashMap<Integer, Integer>();
           }
+          adjTab.put(new Integer(u2), new Integer(kerning.getSlotValue(slot)));
+          cidKerning.put(iObj, adjTab);
         }
       }
+    }
 
-      // Create winAnsiEncoded kerning table from kerningTab
-      // (could probably be simplified, for now we remap back to CID indexes and
-      // then to winAnsi)
+    // Create winAnsiEncoded kerning table from kerningTab
+    // (could probably be simplified, for now we remap back to CID indexes and
+    // then to winAnsi)
 
-      for (Entry<Integer, Map<Integer, Integer>> e1 : kerningTab.entrySet()) {
-        Integer unicodeKey1 = e1.getKey();
-        Integer cidKey1 = unicodeToGlyph(unicodeKey1);
-        Map<Integer, Integer> akpx = new HashMap<Integer, Integer>();
-        Map<Integer, Integer> ckpx = e1.getValue();
+    for (Entry<Integer, Map<Integer, Integer>> e1 : cidKerning.entrySet()) {
+      int glyph1 = characterMap.glyphForCodePoint(e1.getKey().intValue());
+      Map<Integer, Integer> akpx = new HashMap<Integer, Integer>();
+      Map<Integer, Integer> ckpx = e1.getValue();
 
-        for (Entry<Integer, Integer> e : ckpx.entrySet()) {
-          Integer unicodeKey2 = e.getKey();
-          Integer cidKey2 = unicodeToGlyph(unicodeKey2.intValue());
-          Integer kern = e.getValue();
+      for (Entry<Integer, Integer> e : ckpx.entrySet()) {
+        int glyph2 = characterMap.glyphForCodePoint(e.getKey().intValue());
+        Integer kern = e.getValue();
 
-          Iterator uniMap = mtxTab[cidKey2.intValue()].getUnicodeIndex().listIterator();
-          while (uniMap.hasNext()) {
-            Integer unicodeKey = (Integer) uniMap.next();
-            Integer[] ansiKeys = unicodeToWinAnsi(unicodeKey.intValue());
-            for (int u = 0; u < ansiKeys.length; u++) {
-              akpx.put(ansiKeys[u], kern);
-            }
+        for (int u2 = 0, n2 = mtxTab.getUnicodeCount(glyph2); u2 < n2; u2++) {
+          Integer[] ansiKeys = unicodeToWinAnsi(mtxTab.getUnicode(glyph2, u2));
+          for (int u = 0; u < ansiKeys.length; u++) {
+            akpx.put(ansiKeys[u], kern);
           }
         }
+      }
 
-        if (akpx.size() > 0) {
-          Iterator uniMap = mtxTab[cidKey1.intValue()].getUnicodeIndex().listIterator();
-          while (uniMap.hasNext()) {
-            Integer unicodeKey = (Integer) uniMap.next();
-            Integer[] ansiKeys = unicodeToWinAnsi(unicodeKey.intValue());
-            for (Integer ansiKey : ansiKeys) {
-              ansiKerningTab.put(ansiKey, akpx);
-            }
+      if (akpx.size() > 0) {
+        for (int u1 = 0, n1 = mtxTab.getUnicodeCount(glyph1); u1 < n1; u1++) {
+          Integer[] ansiKeys = unicodeToWinAnsi(mtxTab.getUnicode(glyph1, u1));
+          for (Integer ansiKey : ansiKeys) {
+            ansiKerningTab.put(ansiKey, akpx);
           }
         }
       }
     }
+    kerningTab = cidKerning;
   }
 
   /**
-   * Streams a font.
+   * Streams a font. The tables are passed to the output in place if the font file is held in an
+   * array; otherwise one table at a time is copied into a buffer that is reused for the next.
+   * The glyphs are split by the "loca" table whichever tables were selected when the font was
+   * opened.
    *
    * @param ttfOut
    *     The interface for streaming TrueType tables.
@@ -1437,7 +2297,8 @@ public abstract class OpenFont {
    */
   public void stream(TTFOutputStream ttfOut) throws IOException {
     SortedSet<Entry<OFTableName, OFDirTabEntry>> sortedDirTabs = sortDirTabMap(dirTabs);
-    byte[] file = fontFile.getAllBytes();
+    byte[] file = fontFile.getArray(); // streamed in place if the file is held in an array
+    byte[] table = null; // otherwise each table is copied here, reused for the next table
     TTFTableOutputStream tableOut = ttfOut.getTableOutputStream();
     TTFGlyphOutputStream glyphOut = ttfOut.getGlyphOutputStream();
     ttfOut.startFontStream();
@@ -1445,24 +2306,81 @@ public abstract class OpenFont {
       int offset = (int) entry.getValue().getOffset();
       int paddedLength = (int) entry.getValue().getLength();
       paddedLength += getPadSize(offset + paddedLength);
+      byte[] data = file;
+      int start = offset;
+      if (data == null) {
+        if (table == null || table.length < paddedLength) {
+          table = new byte[paddedLength];
+        }
+        int length = Math.min(paddedLength, fontFile.getFileSize() - offset);
+        fontFile.getBuffer(offset, length).get(table, 0, length);
+        Arrays.fill(table, length, paddedLength, (byte) 0);
+        data = table;
+        start = 0;
+      }
       if (entry.getKey().equals(OFTableName.GLYF)) {
-        streamGlyf(glyphOut, file, offset, paddedLength);
+        streamGlyf(glyphOut, getGlyphOffsets(), data, start, paddedLength);
       } else {
-        tableOut.streamTable(file, offset, paddedLength);
+        tableOut.streamTable(data, start, paddedLength);
       }
     }
     ttfOut.endFontStream();
   }
 
-  private void streamGlyf(TTFGlyphOutputStream glyphOut, byte[] fontFile, int tableOffset,
-                          int tableLength) throws IOException {
+  /**
+   * Returns the contents of a table. No bytes are copied if the whole font file is held in one
+   * buffer, as for a memory-mapped file or an array.
+   *
+   * @param name
+   *     the table tag
+   * @return a read-only buffer holding the table from position 0, or null if the font has no
+   *     such table
+   * @throws IOException
+   *     if the table directory points outside of the file
+   */
+  public ByteBuffer getTableBuffer(OFTableName name) throws IOException {
+    OFDirTabEntry dirTab = dirTabs.get(name);
+    if (dirTab == null) {
+      return null;
+    }
+    return fontFile.getBuffer((int) dirTab.getOffset(), (int) dirTab.getLength());
+  }
+
+  /**
+   * Returns the offsets of the glyphs in the "glyf" table. They are taken from mtxTab if the glyph
+   * bounds were selected when the font was opened, and read from the "loca" table otherwise.
+   */
+  private int[] getGlyphOffsets() throws IOException {
+    int[] offsets;
+    if ((enabledTables & TABLES_GLYPH_BOUNDS) != 0) {
+      ensureTables(TABLES_GLYPH_BOUNDS);
+      offsets = new int[mtxTab.getNumGlyphs()];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = mtxTab.getOffset(i);
+      }
+    } else {
+      ByteBuffer loca = getTableBuffer(OFTableName.LOCA);
+      int size = locaFormat == 1 ? 4 : 2;
+      if (loca == null || loca.remaining() < size * numberOfGlyphs) {
+        throw new IOException("'loca' table not found or shorter than the number of glyphs");
+      }
+      offsets = new int[numberOfGlyphs];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = locaFormat == 1 ? loca.getInt(4 * i) : (loca.getShort(2 * i) & 0xFFFF) << 1;
+      }
+    }
+    return offsets;
+  }
+
+  private void streamGlyf(TTFGlyphOutputStream glyphOut, int[] offsets, byte[] fontFile,
+                          int tableOffset, int tableLength) throws IOException {
     //Stream all but the last glyph
     int glyphStart = 0;
     int glyphEnd = 0;
     glyphOut.startGlyphStream();
-    for (int i = 0; i < mtxTab.length - 1; i++) {
-      glyphStart = (int) mtxTab[i].getOffset() + tableOffset;
-      glyphEnd = (int) mtxTab[i + 1].getOffset() + tableOffset;
+    for (int i = 0; i < offsets.length - 1; i++) {
+      glyphStart = offsets[i] + tableOffset;
+      glyphEnd = offsets[i + 1] + tableOffset;
       glyphOut.streamGlyph(fontFile, glyphStart, glyphEnd - glyphStart);
     }
     glyphOut.streamGlyph(fontFile, glyphEnd, (tableOffset + tableLength) - glyphEnd);
@@ -1499,9 +2417,21 @@ public abstract class OpenFont {
    * @return the font's cmap
    */
   public List<CMapSegment> getCMaps() {
+    ensureTables(TABLES_GLYPH_UNICODES);
     return cmaps;
   }
 
+  /**
+   * Returns this font's character to glyph mapping for the whole Unicode
+   * range, including variation sequences.
+   *
+   * @return the font's character map
+   */
+  public CharacterMap getCharacterMap() {
+    ensureTables(TABLES_CMAP);
+    return characterMap;
+  }
+
   /**
    * Check if this is a TrueType collection and that the given
    * name exists in the collection.
@@ -1527,14 +2457,10 @@ public abstract class OpenFont {
         dirOffsets[i] = fontFile.readTTFULong();
       }
 
-      // Read all the directories and name tables to check
-      // If the font exists - this is a bit ugly, but...
+      // Read the directories and name tables until the font is found
       boolean found = false;
-
-      // Iterate through all name tables even if font
-      // Is found, just to show all the names
       long dirTabOffset = 0;
-      for (int i = 0; (i < numDirectories); i++) {
+      for (int i = 0; i < numDirectories && !found; i++) {
         fontFile.seekSet(dirOffsets[i]);
         readDirTabs();
 
@@ -1544,13 +2470,7 @@ public abstract class OpenFont {
           found = true;
           dirTabOffset = dirOffsets[i];
         }
-
-        // Reset names
-        notice = "";
-        fullName = "";
-        familyNames.clear();
-        postScriptName = "";
-        subFamilyName = "";
+        resetNames();
       }
 
       fontFile.seekSet(dirTabOffset);
@@ -1561,53 +2481,30 @@ public abstract class OpenFont {
     }
   }
 
+  private void resetNames() {
+    notice = "";
+    fullName = "";
+    familyNames.clear();
+    postScriptName = "";
+    subFamilyName = "";
+  }
+
   /**
    * Return TTC font names
    *
    * @param in
    *     FontFileReader to read from
-   * @return True if not collection or font name present, false otherwise
+   * @return the full names of the members, or null if the file is not a TrueType collection
    * @throws IOException
    *     In case of an I/O problem
+   * @see TTFFile#openCollection(FontFileReader)
    */
   public final List<String> getTTCnames(FontFileReader in) throws IOException {
     this.fontFile = in;
-
-    List<String> fontNames = new ArrayList<String>();
-    String tag = in.readTTFString(4);
-
-    if ("ttcf".equals(tag)) {
-      // This is a TrueType Collection
-      in.skip(4);
-
-      // Read directory offsets
-      int numDirectories = (int) in.readTTFULong();
-      long[] dirOffsets = new long[numDirectories];
-      for (int i = 0; i < numDirectories; i++) {
-        dirOffsets[i] = in.readTTFULong();
-      }
-
-      for (int i = 0; (i < numDirectories); i++) {
-        in.seekSet(dirOffsets[i]);
-        readDirTabs();
-
-        readName();
-
-        fontNames.add(fullName);
-
-        // Reset names
-        notice = "";
-        fullName = "";
-        familyNames.clear();
-        postScriptName = "";
-        subFamilyName = "";
-      }
-
-      in.seekSet(0);
-      return fontNames;
-    } else {
-      return null;
-    }
+    TTFCollection collection = new TTFCollection(in);
+    List<String> fontNames = collection.isCollection() ? collection.getNames() : null;
+    in.seekSet(0);
+    return fontNames;
   }
 
   /*
@@ -1629,34 +2526,33 @@ public abstract class OpenFont {
   }
 
   /**
-   * Map a glyph index to the corresponding unicode code point
+   * Map a unicode code point to the corresponding glyph index
    *
-   * @param glyphIndex
-   * @return unicode code point
+   * @param codePoint
+   *     unicode code point
+   * @return glyph index, or 0 (.notdef) if the code point is not mapped
    */
-  private Integer glyphToUnicode(int glyphIndex) {
-    return glyphToUnicodeMap.get(new Integer(glyphIndex));
+  public int getGlyphIndex(int codePoint) {
+    ensureTables(TABLES_CMAP);
+    return characterMap.glyphForCodePoint(codePoint);
   }
 
   /**
-   * Map a unicode code point to the corresponding glyph index
+   * Map a glyph index to the corresponding unicode code point. If several
+   * code points use the glyph the last one in the cmap is returned.
    *
-   * @param unicodeIndex
-   *     unicode code point
-   * @return glyph index
+   * @param glyphIndex
+   *     glyph index
+   * @return unicode code point, or -1 if no code point maps to the glyph
    */
-  private Integer unicodeToGlyph(int unicodeIndex) throws IOException {
-    final Integer result
-        = unicodeToGlyphMap.get(new Integer(unicodeIndex));
-    if (result == null) {
-      throw new IOException(
-          "Glyph index not found for unicode value " + unicodeIndex);
-    }
-    return result;
+  public int getCodePoint(int glyphIndex) {
+    ensureTables(TABLES_CMAP);
+    return characterMap.codePointForGlyph(glyphIndex);
   }
 
   String getGlyphName(int glyphIndex) {
-    return mtxTab[glyphIndex].getName();
+    ensureTables(TABLES_GLYPH_NAMES);
+    return mtxTab.getName(glyphIndex);
   }
 
   /**
@@ -1665,6 +2561,7 @@ public abstract class OpenFont {
    * @return true if advanced (typographic) table is present
    */
   public boolean hasAdvancedTable() {
+    ensureTables(TABLES_ADVANCED);
     if (advancedTableReader != null) {
       return advancedTableReader.hasAdvancedTable();
     } else {
@@ -1678,6 +2575,7 @@ public abstract class OpenFont {
    * @return the GDEF table
    */
   public GlyphDefinitionTable getGDEF() {
+    ensureTables(TABLES_ADVANCED);
     if (advancedTableReader != null) {
       return advancedTableReader.getGDEF();
     } else {
@@ -1691,6 +2589,7 @@ public abstract class OpenFont {
    * @return the GSUB table
    */
   public GlyphSubstitutionTable getGSUB() {
+    ensureTables(TABLES_ADVANCED);
     if (advancedTableReader != null) {
       return advancedTableReader.getGSUB();
     } else {
@@ -1704,6 +2603,7 @@ public abstract class OpenFont {
    * @return the GPOS table
    */
   public GlyphPositioningTable getGPOS() {
+    ensureTables(TABLES_ADVANCED);
     if (advancedTableReader != null) {
       return advancedTableReader.getGPOS();
     } else {
@@ -1711,7 +2611,61 @@ public abstract class OpenFont {
     }
   }
 
+  /**
+   * Returns the shaping plan of a script and language, applying the features the script
+   * processor applies by default. The plan is compiled the first time it is asked for.
+   *
+   * @param script
+   *     a script identifier, e.g. "latn"
+   * @param language
+   *     a language identifier, e.g. "dflt"
+   * @return the shaping plan
+   */
+  public ShapingPlan getShapingPlan(String script, String language) {
+    return getShapingPlan(script, language, null);
+  }
+
+  /**
+   * Returns the shaping plan of a script, language and set of features. The plan is compiled the
+   * first time it is asked for.
+   *
+   * @param script
+   *     a script identifier, e.g. "latn"
+   * @param language
+   *     a language identifier, e.g. "dflt"
+   * @param features
+   *     the features to apply, or null for the features the script processor applies by default
+   * @return the shaping plan
+   */
+  public ShapingPlan getShapingPlan(String script, String language, String[] features) {
+    ensureTables(TABLES_ADVANCED);
+    String key = getShapingPlanKey(script, language, features);
+    synchronized (tableLock) {
+      ShapingPlan plan = shapingPlans.get(key);
+      if (plan == null) {
+        plan = advancedTableReader != null
+            ? ShapingPlan.compile(advancedTableReader.getGSUB(), advancedTableReader.getGPOS(),
+            script, language, features)
+            : ShapingPlan.compile(null, null, script, language, features);
+        shapingPlans.put(key, plan);
+      }
+      return plan;
+    }
+  }
+
+  static String getShapingPlanKey(String script, String language, String[] features) {
+    StringBuilder key = new StringBuilder(script).append('/').append(language);
+    if (features != null) {
+      key.append('/');
+      for (String feature : features) {
+        key.append(feature).append(',');
+      }
+    }
+    return key.toString();
+  }
+
   public String getCopyrightNotice() {
+    ensureTables(TABLES_NAME);
     return notice;
   }
 
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Selects which tables are decoded when a font is opened. Getters backed by a table that was not
+ * selected return their default value (empty names, zero metrics, null kerning and advanced
+ * tables). Tables that a selected table depends on are always included:
+ *
+ * <ul>
+ * <li>kerning requires the cmap</li>
+ * <li>the cmap, glyph bounding boxes and glyph names require the horizontal metrics</li>
+ * <li>the horizontal metrics require the OS/2 table</li>
+ * </ul>
+ *
+ * <pre>
+ * ParseOptions options = new ParseOptions.Builder()
+ *     .clearTables()
+ *     .names(true)
+ *     .os2(true)
+ *     .build();
+ * TTFFile ttfFile = TTFFile.open(file, options);
+ * </pre>
+ */
+public final class ParseOptions {
+
+  /** The options used by {@link TTFFile#open(java.io.File)}: all tables except GDEF/GSUB/GPOS. */
+  public static final ParseOptions DEFAULT = new Builder().build();
+
+  /** Decodes every supported table, including GDEF/GSUB/GPOS. */
+  public static final ParseOptions ALL = new Builder().advanced(true).build();
+
+  final boolean names;
+  final boolean os2;
+  final boolean metrics;
+  final boolean cmap;
+  final boolean glyphBounds;
+  final boolean eagerGlyphBounds;
+  final boolean glyphNames;
+  final boolean kerning;
+  final boolean advanced;
+  final boolean lazy;
+  final Executor executor;
+
+  private ParseOptions(Builder builder) {
+    kerning = builder.kerning;
+    cmap = builder.cmap || kerning;
+    glyphBounds = builder.glyphBounds;
+    eagerGlyphBounds = glyphBounds && builder.eagerGlyphBounds;
+    glyphNames = builder.glyphNames;
+    metrics = builder.metrics || cmap || glyphBounds || glyphNames;
+    os2 = builder.os2 || metrics;
+    names = builder.names;
+    advanced = builder.advanced;
+    lazy = builder.lazy;
+    executor = builder.executor;
+  }
+
+  /** @return true if the "name" table is decoded */
+  public boolean readsNames() {
+    return names;
+  }
+
+  /** @return true if the "OS/2" table is decoded */
+  public boolean readsOS2() {
+    return os2;
+  }
+
+  /** @return true if the "hhea", "hmtx", "post" header and "PCLT" tables are decoded */
+  public boolean readsMetrics() {
+    return metrics;
+  }
+
+  /** @return true if the "cmap" table is decoded */
+  public boolean readsCmap() {
+    return cmap;
+  }
+
+  /** @return true if glyph bounding boxes are decoded from the "loca" and "glyf" tables */
+  public boolean readsGlyphBounds() {
+    return glyphBounds;
+  }
+
+  /** @return true if all glyph bounding boxes are decoded together instead of when first used */
+  public boolean readsGlyphBoundsEagerly() {
+    return eagerGlyphBounds;
+  }
+
+  /** @return true if glyph names are decoded from the "post" table */
+  public boolean readsGlyphNames() {
+    return glyphNames;
+  }
+
+  /** @return true if the "kern" table is decoded */
+  public boolean readsKerning() {
+    return kerning;
+  }
+
+  /** @return true if the "GDEF", "GSUB" and "GPOS" tables are decoded */
+  public boolean readsAdvanced() {
+    return advanced;
+  }
+
+  /** @return true if tables are decoded on first use rather than when the font is opened */
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /** @return the executor that decodes GDEF, GSUB and GPOS concurrently, or null */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Builder for {@link ParseOptions}. Starts with the same selection as {@link #DEFAULT}.
+   */
+  public static final class Builder {
+
+    private boolean names = true;
+    private boolean os2 = true;
+    private boolean metrics = true;
+    private boolean cmap = true;
+    private boolean glyphBounds = true;
+    private boolean eagerGlyphBounds;
+    private boolean glyphNames = true;
+    private boolean kerning = true;
+    private boolean advanced;
+    private boolean lazy;
+    private Executor executor;
+
+    public Builder() {
+    }
+
+    /**
+     * Deselects all tables so that only the ones enabled afterwards are decoded.
+     *
+     * @return this builder
+     */
+    public Builder clearTables() {
+      names = false;
+      os2 = false;
+      metrics = false;
+      cmap = false;
+      glyphBounds = false;
+      glyphNames = false;
+      kerning = false;
+      advanced = false;
+      return this;
+    }
+
+    /**
+     * @param names
+     *     true to decode the "name" table (full, family, sub family and PostScript names)
+     * @return this builder
+     */
+    public Builder names(boolean names) {
+      this.names = names;
+      return this;
+    }
+
+    /**
+     * @param os2
+     *     true to decode the "OS/2" table (weight class, embedding and strikeout metrics)
+     * @return this builder
+     */
+    public Builder os2(boolean os2) {
+      this.os2 = os2;
+      return this;
+    }
+
+    /**
+     * @param metrics
+     *     true to decode the horizontal metrics and font wide metrics ("hhea", "hmtx", "post"
+     *     header and "PCLT")
+     * @return this builder
+     */
+    public Builder metrics(boolean metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * @param cmap
+     *     true to decode the character to glyph mapping; the code points of each glyph are
+     *     expanded from it when they are first asked for
+     * @return this builder
+     */
+    public Builder cmap(boolean cmap) {
+      this.cmap = cmap;
+      return this;
+    }
+
+    /**
+     * @param glyphBounds
+     *     true to decode the glyph bounding boxes from the "loca" and "glyf" tables
+     * @return this builder
+     */
+    public Builder glyphBounds(boolean glyphBounds) {
+      this.glyphBounds = glyphBounds;
+      return this;
+    }
+
+    /**
+     * @param eagerGlyphBounds
+     *     true to decode the bounding box of every glyph together with the "loca" table. By
+     *     default a glyph's box is read from the "glyf" table the first time it is asked for.
+     * @return this builder
+     */
+    public Builder eagerGlyphBounds(boolean eagerGlyphBounds) {
+      this.eagerGlyphBounds = eagerGlyphBounds;
+      return this;
+    }
+
+    /**
+     * @param glyphNames
+     *     true to decode the glyph names from the "post" table
+     * @return this builder
+     */
+    public Builder glyphNames(boolean glyphNames) {
+      this.glyphNames = glyphNames;
+      return this;
+    }
+
+    /**
+     * @param kerning
+     *     true to decode the "kern" table
+     * @return this builder
+     */
+    public Builder kerning(boolean kerning) {
+      this.kerning = kerning;
+      return this;
+    }
+
+    /**
+     * @param advanced
+     *     true to decode the advanced typographic tables (GDEF, GSUB and GPOS)
+     * @return this builder
+     */
+    public Builder advanced(boolean advanced) {
+      this.advanced = advanced;
+      return this;
+    }
+
+    /**
+     * @param lazy
+     *     true to decode the selected tables the first time one of their getters is called
+     *     instead of when the font is opened
+     * @return this builder
+     */
+    public Builder lazy(boolean lazy) {
+      this.lazy = lazy;
+      return this;
+    }
+
+    /**
+     * @param executor
+     *     decodes GSUB and GPOS concurrently with each other, once GDEF is decoded, and with the
+     *     other tables, or null (the default) to decode every table on the thread opening the
+     *     font. Only used
+     *     when the whole font file is held in one buffer, as with a memory-mapped file. The
+     *     opening thread decodes a table itself if no thread of the executor has started it yet,
+     *     so a busy or bounded executor can not stall the open.
+     * @return this builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    public ParseOptions build() {
+      return new ParseOptions(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fontreader.truetype;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The members of a TrueType collection (.ttc file). The "ttcf" header is read once when the
+ * collection is opened; a member is then read directly from its table directory, by index or by
+ * full name, without decoding the other members.
+ *
+ * <pre>
+ * TTFCollection collection = TTFFile.openCollection(file);
+ * for (int i = 0; i &lt; collection.size(); i++) {
+ *   TTFFile font = collection.open(i);
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>A plain font file is treated as a collection of one member. The members read from the
+ * same bytes, so tables the members have in common (often "glyf" and "loca") are held only once.
+ * When the file is held in a single buffer (a memory-mapped file or an array) each member gets
+ * its own reader over that buffer and members may be read by different threads. Otherwise, for
+ * example with a {@link ChannelFontFileReader}, the members share the collection's reader and
+ * must be read by one thread at a time.</p>
+ */
+public final class TTFCollection {
+
+  private static final String TTC_TAG = "ttcf";
+
+  private final FontFileReader reader;
+  private final FontData data; // null if the members share the reader
+  private final boolean collection;
+  private final long[] dirOffsets;
+  private final String[] names; // full names of the members, read on demand
+
+  /**
+   * Reads the header of a collection.
+   */
+  TTFCollection(FontFileReader reader) throws IOException {
+    this.reader = reader;
+    this.data = reader.holdsWholeFile() ? reader.getFontData() : null;
+    reader.seekSet(0);
+    collection = TTC_TAG.equals(reader.readTTFString(4));
+    if (collection) {
+      reader.skip(4); // version
+      long numFonts = reader.readTTFULong();
+      if (numFonts > (reader.getFileSize() - 12) / 4) {
+        throw new IOException("Invalid number of fonts in the TrueType collection: " + numFonts);
+      }
+      dirOffsets = new long[(int) numFonts];
+      for (int i = 0; i < dirOffsets.length; i++) {
+        dirOffsets[i] = reader.readTTFULong();
+      }
+    } else {
+      dirOffsets = new long[]{0};
+    }
+    names = new String[dirOffsets.length];
+  }
+
+  /**
+   * Checks if the file is a TrueType collection rather than a single font.
+   *
+   * @return true if the file starts with a "ttcf" header
+   */
+  public boolean isCollection() {
+    return collection;
+  }
+
+  /**
+   * Returns the number of fonts in the collection.
+   *
+   * @return the number of members, 1 for a plain font file
+   */
+  public int size() {
+    return dirOffsets.length;
+  }
+
+  /**
+   * Returns the full name of a member. Only the member's table directory and "name" table are
+   * read.
+   *
+   * @param index
+   *     the index of the member
+   * @return the full name
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public synchronized String getName(int index) throws IOException {
+    checkIndex(index);
+    if (names[index] == null) {
+      TTFFile font = new TTFFile(new ParseOptions.Builder().clearTables().names(true).build());
+      names[index] = font.readFullName(newReader(), dirOffsets[index]);
+    }
+    return names[index];
+  }
+
+  /**
+   * Returns the full names of all members.
+   *
+   * @return the names in the order of the collection
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public List<String> getNames() throws IOException {
+    List<String> list = new ArrayList<>(dirOffsets.length);
+    for (int i = 0; i < dirOffsets.length; i++) {
+      list.add(getName(i));
+    }
+    return list;
+  }
+
+  /**
+   * Returns the index of the member with the given full name.
+   *
+   * @param name
+   *     the full name
+   * @return the index of the first member with the name, or -1 if there is none
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public int indexOf(String name) throws IOException {
+    for (int i = 0; i < dirOffsets.length; i++) {
+      if (getName(i).equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads a member with the tables of {@link ParseOptions#DEFAULT}.
+   *
+   * @param index
+   *     the index of the member
+   * @return the font
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public TTFFile open(int index) throws IOException {
+    return open(index, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads a member.
+   *
+   * @param index
+   *     the index of the member
+   * @param options
+   *     the tables to decode
+   * @return the font
+   * @throws IOException
+   *     In case of an I/O problem
+   */
+  public TTFFile open(int index, ParseOptions options) throws IOException {
+    checkIndex(index);
+    TTFFile font = new TTFFile(options);
+    font.readFont(newReader(), dirOffsets[index]);
+    return font;
+  }
+
+  /**
+   * Reads the member with the given full name with the tables of {@link ParseOptions#DEFAULT}.
+   *
+   * @param name
+   *     the full name
+   * @return the font
+   * @throws IOException
+   *     if no member has the name, or in case of an I/O problem
+   */
+  public TTFFile open(String name) throws IOException {
+    return open(name, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads the member with the given full name.
+   *
+   * @param name
+   *     the full name
+   * @param options
+   *     the tables to decode
+   * @return the font
+   * @throws IOException
+   *     if no member has the name, or in case of an I/O problem
+   */
+  public TTFFile open(String name, ParseOptions options) throws IOException {
+    int index = indexOf(name);
+    if (index < 0) {
+      throw new IOException("Name does not exist in the TrueType collection: " + name);
+    }
+    return open(index, options);
+  }
+
+  private FontFileReader newReader() throws IOException {
+    return data != null ? new FontFileReader(data.slice(0, data.size())) : reader;
+  }
+
+  private void checkIndex(int index) throws IOException {
+    if (index < 0 || index >= dirOffsets.length) {
+      throw new IOException("Font index " + index + " does not exist, the collection has "
+          + dirOffsets.length + " fonts");
+    }
+  }
+
+}
@@ -18,9 +18,9 @@
 package com.jaredrummler.fontreader.truetype;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads a TrueType file or a TrueType Collection.
@@ -29,8 +29,10 @@ import java.io.InputStream;
  */
 public class TTFFile extends OpenFont {
 
+  private long glyfOffset; // offset of the "glyf" table
+
   /**
-   * Reads a TTF file
+   * Reads a TTF file. The file is memory-mapped rather than copied onto the heap.
    *
    * @param file
    *     The font file
@@ -39,7 +41,52 @@ public class TTFFile extends OpenFont {
    *     if an IO error occurs
    */
   public static TTFFile open(File file) throws IOException {
-    return open(new FileInputStream(file));
+    return open(file, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads a TTF file. The file is memory-mapped rather than copied onto the heap.
+   *
+   * @param file
+   *     The font file
+   * @param options
+   *     The tables to decode
+   * @return The TrueType file
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFFile open(File file, ParseOptions options) throws IOException {
+    return open(new MappedFontFileReader(file), options);
+  }
+
+  /**
+   * Reads a TTF file from a FileChannel. The channel is memory-mapped rather than copied onto
+   * the heap and may be closed once this method returns.
+   *
+   * @param channel
+   *     The channel to read from
+   * @return The TrueType file
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFFile open(FileChannel channel) throws IOException {
+    return open(channel, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads a TTF file from a FileChannel. The channel is memory-mapped rather than copied onto
+   * the heap and may be closed once this method returns.
+   *
+   * @param channel
+   *     The channel to read from
+   * @param options
+   *     The tables to decode
+   * @return The TrueType file
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFFile open(FileChannel channel, ParseOptions options) throws IOException {
+    return open(new MappedFontFileReader(channel), options);
   }
 
   /**
@@ -52,11 +99,95 @@ public class TTFFile extends OpenFont {
    *     if an IO error occurs
    */
   public static TTFFile open(InputStream is) throws IOException {
-    TTFFile ttfFile = new TTFFile();
-    ttfFile.readFont(new FontFileReader(is));
+    return open(is, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads a TTF file from an InputStream
+   *
+   * @param is
+   *     InputStream to read from
+   * @param options
+   *     The tables to decode
+   * @return The TrueType file
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFFile open(InputStream is, ParseOptions options) throws IOException {
+    return open(new FontFileReader(is), options);
+  }
+
+  /**
+   * Reads a TTF file from a FontFileReader
+   *
+   * @param reader
+   *     The reader to read from
+   * @return The TrueType file
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFFile open(FontFileReader reader) throws IOException {
+    return open(reader, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads a TTF file from a FontFileReader
+   *
+   * @param reader
+   *     The reader to read from
+   * @param options
+   *     The tables to decode
+   * @return The TrueType file
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFFile open(FontFileReader reader, ParseOptions options) throws IOException {
+    TTFFile ttfFile = new TTFFile(options);
+    ttfFile.readFont(reader);
     return ttfFile;
   }
 
+  /**
+   * Opens a TrueType collection (.ttc file). The file is memory-mapped and shared by all
+   * members. A plain font file is opened as a collection of one font.
+   *
+   * @param file
+   *     The font file
+   * @return The collection
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFCollection openCollection(File file) throws IOException {
+    return openCollection(new MappedFontFileReader(file));
+  }
+
+  /**
+   * Opens a TrueType collection from a FileChannel. The channel is memory-mapped and may be
+   * closed once this method returns.
+   *
+   * @param channel
+   *     The channel to read from
+   * @return The collection
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFCollection openCollection(FileChannel channel) throws IOException {
+    return openCollection(new MappedFontFileReader(channel));
+  }
+
+  /**
+   * Opens a TrueType collection from a FontFileReader.
+   *
+   * @param reader
+   *     The reader to read from
+   * @return The collection
+   * @throws IOException
+   *     if an IO error occurs
+   */
+  public static TTFCollection openCollection(FontFileReader reader) throws IOException {
+    return new TTFCollection(reader);
+  }
+
   public TTFFile() {
     this(true, false);
   }
@@ -73,6 +204,30 @@ public class TTFFile extends OpenFont {
     super(useKerning, useAdvanced);
   }
 
+  /**
+   * Constructor
+   *
+   * @param useKerning
+   *     true if kerning data should be loaded
+   * @param useAdvanced
+   *     true if advanced typographic tables should be loaded
+   * @param lazy
+   *     true to decode tables on first use rather than when the font is read
+   */
+  public TTFFile(boolean useKerning, boolean useAdvanced, boolean lazy) {
+    super(useKerning, useAdvanced, lazy);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param options
+   *     the tables to decode
+   */
+  public TTFFile(ParseOptions options) {
+    super(options);
+  }
+
   /**
    * Read the "name" table.
    *
@@ -139,54 +294,40 @@ public class TTFFile extends OpenFont {
   }
 
   /**
-   * Read the "glyf" table to find the bounding boxes.
+   * Read the bounding box of a glyph from its header in the "glyf" table.
    *
+   * @param i
+   *     the glyph index
    * @throws IOException
    *     In case of a I/O problem
    */
-  private void readGlyf() throws IOException {
-    OFDirTabEntry dirTab = dirTabs.get(OFTableName.GLYF);
-    if (dirTab == null) {
-      throw new IOException("glyf table not found, cannot continue");
-    }
-    for (int i = 0; i < (numberOfGlyphs - 1); i++) {
-      if (mtxTab[i].getOffset() != mtxTab[i + 1].getOffset()) {
-        fontFile.seekSet(dirTab.getOffset() + mtxTab[i].getOffset());
-        fontFile.skip(2);
-        final int[] bbox = {
-            fontFile.readTTFShort(),
-            fontFile.readTTFShort(),
-            fontFile.readTTFShort(),
-            fontFile.readTTFShort()};
-        mtxTab[i].setBoundingBox(bbox);
-      } else {
-        mtxTab[i].setBoundingBox(mtxTab[0].getBoundingBox());
-      }
-    }
-
-    long n = (dirTabs.get(OFTableName.GLYF)).getOffset();
-    for (int i = 0; i < numberOfGlyphs; i++) {
-      if ((i + 1) >= mtxTab.length
-          || mtxTab[i].getOffset() != mtxTab[i + 1].getOffset()) {
-        fontFile.seekSet(n + mtxTab[i].getOffset());
-        fontFile.skip(2);
-        final int[] bbox = {
-            fontFile.readTTFShort(),
-            fontFile.readTTFShort(),
-            fontFile.readTTFShort(),
-            fontFile.readTTFShort()};
-        mtxTab[i].setBoundingBox(bbox);
-      } else {
-        final int bbox0 = mtxTab[0].getBoundingBox()[0];
-        final int[] bbox = {bbox0, bbox0, bbox0, bbox0};
-        mtxTab[i].setBoundingBox(bbox);
+  @Override protected void readGlyphBBox(int i) throws IOException {
+    if ((i + 1) >= mtxTab.getNumGlyphs()
+        || mtxTab.getOffset(i) != mtxTab.getOffset(i + 1)) {
+      fontFile.seekSet(glyfOffset + mtxTab.getOffset(i));
+      fontFile.skip(2);
+      final int xMin = fontFile.readTTFShort();
+      final int yMin = fontFile.readTTFShort();
+      final int xMax = fontFile.readTTFShort();
+      final int yMax = fontFile.readTTFShort();
+      mtxTab.setBBox(i, xMin, yMin, xMax, yMax);
+    } else {
+      // glyphs without outlines take the xMin of the first glyph
+      if (i > 0 && !mtxTab.hasBBox(0)) {
+        readGlyphBBox(0);
       }
+      final int bbox0 = mtxTab.getBBox(0, 0);
+      mtxTab.setBBox(i, bbox0, bbox0, bbox0, bbox0);
     }
   }
 
   @Override protected void updateBBoxAndOffset() throws IOException {
+    OFDirTabEntry dirTab = dirTabs.get(OFTableName.GLYF);
+    if (dirTab == null) {
+      throw new IOException("glyf table not found, cannot continue");
+    }
+    glyfOffset = dirTab.getOffset();
     readIndexToLocation();
-    readGlyf();
   }
 
   /**
@@ -201,12 +342,23 @@ public class TTFFile extends OpenFont {
       throw new IOException("'loca' table not found, happens when the font file doesn't"
           + " contain TrueType outlines (trying to read an OpenType CFF font maybe?)");
     }
-    for (int i = 0; i < numberOfGlyphs; i++) {
-      mtxTab[i].setOffset(locaFormat == 1 ? fontFile.readTTFULong()
-          : (fontFile.readTTFUShort() << 1));
+    // the offsets of the glyphs followed by the end of the last glyph
+    int count = numberOfGlyphs + 1;
+    if (locaFormat == 1) {
+      long[] offsets = new long[count];
+      fontFile.readULongs(offsets, count);
+      for (int i = 0; i < numberOfGlyphs; i++) {
+        mtxTab.setOffset(i, offsets[i]);
+      }
+      lastLoca = offsets[numberOfGlyphs];
+    } else {
+      int[] offsets = new int[count];
+      fontFile.readUShorts(offsets, count);
+      for (int i = 0; i < numberOfGlyphs; i++) {
+        mtxTab.setOffset(i, offsets[i] << 1);
+      }
+      lastLoca = offsets[numberOfGlyphs] << 1;
     }
-    lastLoca = (locaFormat == 1 ? fontFile.readTTFULong()
-        : (fontFile.readTTFUShort() << 1));
   }
 
   /**
@@ -215,6 +367,7 @@ public class TTFFile extends OpenFont {
    * @return The last location as a long
    */
   public long getLastGlyfLocation() {
+    ensureTables(TABLES_GLYPH_BOUNDS);
     return lastLoca;
   }
 
@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.jaredrummler.fontreader.util;
+
+import com.jaredrummler.fontreader.complexscripts.util.CharAssociation;
+
+import java.nio.IntBuffer;
+
+/**
+ * <p>A growable buffer of glyphs and their packed character associations, held in parallel arrays
+ * that are kept when the buffer is cleared. A processing state owns one buffer and refills it for
+ * every lookup, so applying a lookup only allocates when it produces a sequence that differs from
+ * its input.</p>
+ *
+ * <p>As in {@link GlyphSequence}, an association is stored as the start and length of its character
+ * interval and its predication bits; only an association that can not be packed is kept as an
+ * object.</p>
+ */
+public final class GlyphBuffer {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** glyphs, valid up to size */
+  private int[] glyphs;
+  /** start of character interval of each glyph */
+  private int[] clusterStarts;
+  /** length of character interval of each glyph */
+  private int[] clusterLengths;
+  /** predication bits of each glyph */
+  private int[] predicationFlags;
+  /** associations that can not be packed, by glyph index, or null if none was added yet */
+  private CharAssociation[] unpackedAssociations;
+  /** number of glyphs in buffer */
+  private int size;
+  /** true if some glyph in buffer has predication bits */
+  private boolean flagged;
+  /** true if some glyph in buffer has an unpacked association */
+  private boolean unpacked;
+
+  /**
+   * Construct an empty glyph buffer.
+   *
+   * @param capacity
+   *     initial capacity, the buffer grows as needed
+   */
+  public GlyphBuffer(int capacity) {
+    if (capacity <= 0) {
+      capacity = DEFAULT_CAPACITY;
+    }
+    this.glyphs = new int[capacity];
+    this.clusterStarts = new int[capacity];
+    this.clusterLengths = new int[capacity];
+    this.predicationFlags = new int[capacity];
+  }
+
+  /**
+   * Empty this buffer, keeping its arrays.
+   */
+  public void clear() {
+    if (unpacked) {
+      for (int i = 0; i < size; i++) {
+        unpackedAssociations[i] = null;
+      }
+    }
+    size = 0;
+    flagged = false;
+    unpacked = false;
+  }
+
+  /**
+   * Obtain number of glyphs in buffer.
+   *
+   * @return number of glyphs
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Append a glyph and its association, growing the buffer in place if it is full.
+   *
+   * @param glyph
+   *     glyph index
+   * @param association
+   *     character association of glyph
+   */
+  public void add(int glyph, CharAssociation association) {
+    int i = append(glyph);
+    if ((association != null) && association.isPackable()) {
+      clusterStarts[i] = association.getOffset();
+      clusterLengths[i] = association.getCount();
+      predicationFlags[i] = association.getPredicationFlags();
+      flagged |= predicationFlags[i] != 0;
+    } else {
+      clusterStarts[i] = (association != null) ? association.getOffset() : 0;
+      clusterLengths[i] = (association != null) ? association.getCount() : 0;
+      setUnpackedAssociation(i, association);
+    }
+  }
+
+  /**
+   * Append a glyph associated with the characters of a glyph in a glyph sequence, without
+   * creating an association object.
+   *
+   * @param glyph
+   *     glyph index
+   * @param gs
+   *     glyph sequence
+   * @param index
+   *     index of glyph in sequence whose association applies to glyph
+   */
+  public void add(int glyph, GlyphSequence gs, int index) {
+    int i = append(glyph);
+    clusterStarts[i] = gs.getClusterStart(index);
+    clusterLengths[i] = gs.getClusterLength(index);
+    predicationFlags[i] = gs.getPredicationFlags(index);
+    flagged |= predicationFlags[i] != 0;
+    CharAssociation a = gs.getUnpackedAssociation(index);
+    if (a != null) {
+      setUnpackedAssociation(i, a);
+    }
+  }
+
+  /**
+   * Append a glyph associated with the characters of several glyphs in a glyph sequence, as
+   * {@link CharAssociation#join} of their associations would be, without creating association
+   * objects. This is only possible if the joined association can be packed, that is if the
+   * associations of those glyphs are packed and their intervals leave no gap.
+   *
+   * @param glyph
+   *     glyph index
+   * @param gs
+   *     glyph sequence
+   * @param indices
+   *     indices of glyphs in sequence whose associations are joined
+   * @param count
+   *     number of indices to use
+   * @return true if glyph was appended, or false, leaving the buffer unchanged, if the joined
+   * association can not be packed
+   */
+  public boolean addJoined(int glyph, GlyphSequence gs, int[] indices, int count) {
+    int start = Integer.MAX_VALUE;
+    int end = Integer.MIN_VALUE;
+    int flags = 0;
+    boolean packed = count > 0;
+    for (int k = 0; packed && (k < count); k++) {
+      int j = indices[k];
+      int s = gs.getClusterStart(j);
+      int e = s + gs.getClusterLength(j);
+      if (s < start) {
+        start = s;
+      }
+      if (e > end) {
+        end = e;
+      }
+      flags |= gs.getPredicationFlags(j);
+      packed = gs.getUnpackedAssociation(j) == null;
+    }
+    if (packed && (flags != 0)) {
+      packed = !CharAssociation.hasPredicationMergers();
+    }
+    if (packed) {
+      // intervals that touch or overlap merge, so extend from the start while some interval continues
+      int covered = start;
+      boolean extended = true;
+      while ((covered < end) && extended) {
+        extended = false;
+        for (int k = 0; k < count; k++) {
+          int s = gs.getClusterStart(indices[k]);
+          int e = s + gs.getClusterLength(indices[k]);
+          if ((s <= covered) && (e > covered)) {
+            covered = e;
+            extended = true;
+          }
+        }
+      }
+      packed = covered >= end;
+    }
+    if (packed) {
+      int i = append(glyph);
+      clusterStarts[i] = start;
+      clusterLengths[i] = end - start;
+      predicationFlags[i] = flags;
+      flagged |= flags != 0;
+    }
+    return packed;
+  }
+
+  /**
+   * Append the glyphs in [start,end) of a glyph sequence with their associations.
+   *
+   * @param gs
+   *     glyph sequence
+   * @param start
+   *     index of first glyph to append
+   * @param end
+   *     index after last glyph to append
+   */
+  public void add(GlyphSequence gs, int start, int end) {
+    for (int i = start; i < end; i++) {
+      add(gs.getGlyph(i), gs, i);
+    }
+  }
+
+  /**
+   * Set predication <KEY,VALUE> of glyph at specified index.
+   *
+   * @param index
+   *     index of glyph
+   * @param key
+   *     predication key
+   * @param value
+   *     predication value
+   */
+  public void setPredication(int index, String key, Object value) {
+    checkIndex(index);
+    CharAssociation a = (unpackedAssociations != null) ? unpackedAssociations[index] : null;
+    int flag = CharAssociation.getPredicationFlag(key);
+    if (a != null) {
+      a.setPredication(key, value);
+    } else if ((flag != 0) && Boolean.TRUE.equals(value)) {
+      predicationFlags[index] |= flag;
+      flagged = true;
+    } else {
+      a = getAssociation(index);
+      a.setPredication(key, value);
+      setUnpackedAssociation(index, a);
+    }
+  }
+
+  /**
+   * Obtain glyph at specified index.
+   *
+   * @param index
+   *     index of glyph
+   * @return glyph index
+   * @throws IndexOutOfBoundsException
+   *     if index is not less than size
+   */
+  public int getGlyph(int index) throws IndexOutOfBoundsException {
+    checkIndex(index);
+    return glyphs[index];
+  }
+
+  /**
+   * Obtain association at specified index. Unless the association could not be packed,
+   * a new association is created.
+   *
+   * @param index
+   *     index of glyph
+   * @return character association of glyph
+   * @throws IndexOutOfBoundsException
+   *     if index is not less than size
+   */
+  public CharAssociation getAssociation(int index) throws IndexOutOfBoundsException {
+    checkIndex(index);
+    CharAssociation a = (unpackedAssociations != null) ? unpackedAssociations[index] : null;
+    if (a != null) {
+      return a;
+    } else {
+      return CharAssociation.unpack(clusterStarts[index], clusterLengths[index], predicationFlags[index]);
+    }
+  }
+
+  /**
+   * Determine if this buffer holds exactly the glyphs and associations of a glyph sequence.
+   *
+   * @param gs
+   *     glyph sequence to compare with
+   * @return true if buffer content is the same as the sequence
+   */
+  public boolean sameAs(GlyphSequence gs) {
+    if (gs.getGlyphCount() != size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if ((glyphs[i] != gs.getGlyph(i))
+          || (clusterStarts[i] != gs.getClusterStart(i))
+          || (clusterLengths[i] != gs.getClusterLength(i))
+          || (predicationFlags[i] != gs.getPredicationFlags(i))
+          || (getUnpackedAssociation(i) != gs.getUnpackedAssociation(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Obtain a glyph sequence holding a copy of the content of this buffer, which remains usable
+   * after the buffer is cleared.
+   *
+   * @param characters
+   *     characters of the new sequence
+   * @param predications
+   *     true if the new sequence records predications
+   * @return a new glyph sequence
+   */
+  public GlyphSequence toGlyphSequence(IntBuffer characters, boolean predications) {
+    int[] ga = new int[size];
+    System.arraycopy(glyphs, 0, ga, 0, size);
+    int[] csa = new int[size];
+    System.arraycopy(clusterStarts, 0, csa, 0, size);
+    int[] cla = new int[size];
+    System.arraycopy(clusterLengths, 0, cla, 0, size);
+    int[] pfa = null;
+    if (flagged) {
+      pfa = new int[size];
+      System.arraycopy(predicationFlags, 0, pfa, 0, size);
+    }
+    CharAssociation[] uaa = null;
+    if (unpacked) {
+      uaa = new CharAssociation[size];
+      System.arraycopy(unpackedAssociations, 0, uaa, 0, size);
+    }
+    return new GlyphSequence(characters, IntBuffer.wrap(ga), csa, cla, pfa, uaa, predications);
+  }
+
+  private CharAssociation getUnpackedAssociation(int index) {
+    return unpacked ? unpackedAssociations[index] : null;
+  }
+
+  private void setUnpackedAssociation(int index, CharAssociation association) {
+    predicationFlags[index] = 0;
+    if (unpackedAssociations == null) {
+      unpackedAssociations = new CharAssociation[glyphs.length];
+    }
+    unpackedAssociations[index] = association;
+    unpacked = true;
+  }
+
+  private int append(int glyph) {
+    if (size == glyphs.length) {
+      grow(size * 2);
+    }
+    glyphs[size] = glyph;
+    return size++;
+  }
+
+  private void checkIndex(int index) throws IndexOutOfBoundsException {
+    if ((index < 0) || (index >= size)) {
+      throw new IndexOutOfBoundsException("attempting index at " + index);
+    }
+  }
+
+  private void grow(int capacity) {
+    glyphs = grow(glyphs, capacity);
+    clusterStarts = grow(clusterStarts, capacity);
+    clusterLengths = grow(clusterLengths, capacity);
+    predicationFlags = grow(predicationFlags, capacity);
+    if (unpackedAssociations != null) {
+      CharAssociation[] aa = new CharAssociation[capacity];
+      System.arraycopy(unpackedAssociations, 0, aa, 0, size);
+      unpackedAssociations = aa;
+    }
+  }
+
+  private int[] grow(int[] ia, int capacity) {
+    int[] ian = new int[capacity];
+    System.arraycopy(ia, 0, ian, 0, size);
+    return ian;
+  }
+
+}
@@ -32,6 +32,14 @@ import java.util.List;
  * relate the glyph codes in a glyph sequence to the specific characters in an original
  * character code sequence with which the glyph codes are associated.</p>
  *
+ * <p>Associations are stored packed, as the start and length of each glyph's character interval
+ * and a word of predication bits per glyph (see {@link CharAssociation#getPredicationFlag}), so a
+ * sequence does not hold an association object per glyph. Only an association that is disjoint or
+ * carries a predication without a bit is kept as an object. {@link #getAssociation(int)} creates
+ * an association object from the packed form on each call; use {@link #getClusterStart(int)},
+ * {@link #getClusterLength(int)} and {@link #hasPredication(int, String)} to read associations
+ * without allocating.</p>
+ *
  * <p>This work was originally authored by Glenn Adams (gadams@apache.org).</p>
  */
 public class GlyphSequence implements Cloneable {
@@ -43,17 +51,24 @@ public class GlyphSequence implements Cloneable {
   private IntBuffer characters;
   /** glyph buffer */
   private IntBuffer glyphs;
-  /** association list */
-  private List associations;
+  /** start of character interval of each glyph, or null if associations are identity associations */
+  private int[] clusterStarts;
+  /** length of character interval of each glyph, or null if associations are identity associations */
+  private int[] clusterLengths;
+  /** predication bits of each glyph, or null if no bit is set */
+  private int[] predicationFlags;
+  /** associations that can not be packed, by glyph index, or null if every association is packed */
+  private CharAssociation[] unpackedAssociations;
   /** predications flag */
   private boolean predications;
 
   /**
    * Instantiate a glyph sequence, reusing (i.e., not copying) the referenced
-   * character and glyph buffers and associations. If characters is null, then
-   * an empty character buffer is created. If glyphs is null, then a glyph buffer
-   * is created whose capacity is that of the character buffer. If associations is
-   * null, then identity associations are created.
+   * character and glyph buffers. The associations are copied into packed form.
+   * If characters is null, then an empty character buffer is created. If glyphs
+   * is null, then a glyph buffer is created whose capacity is that of the character
+   * buffer. If associations is null, then identity associations are used, which
+   * are not stored at all.
    *
    * @param characters
    *     a (possibly null) buffer of associated (originating) characters
@@ -71,12 +86,30 @@ public class GlyphSequence implements Cloneable {
     if (glyphs == null) {
       glyphs = IntBuffer.allocate(characters.capacity());
     }
-    if (associations == null) {
-      associations = makeIdentityAssociations(characters.limit(), glyphs.limit());
+    this.characters = characters;
+    this.glyphs = glyphs;
+    this.predications = predications;
+    if (associations != null) {
+      int na = associations.size();
+      allocateClusters(Math.max(na, glyphs.limit()));
+      for (int i = 0; i < na; i++) {
+        setAssociation(i, (CharAssociation) associations.get(i));
+      }
     }
+  }
+
+  /**
+   * Instantiate a glyph sequence from packed associations, reusing (i.e., not copying)
+   * all arguments. Used by {@link GlyphBuffer}.
+   */
+  GlyphSequence(IntBuffer characters, IntBuffer glyphs, int[] clusterStarts, int[] clusterLengths,
+                int[] predicationFlags, CharAssociation[] unpackedAssociations, boolean predications) {
     this.characters = characters;
     this.glyphs = glyphs;
-    this.associations = associations;
+    this.clusterStarts = clusterStarts;
+    this.clusterLengths = clusterLengths;
+    this.predicationFlags = predicationFlags;
+    this.unpackedAssociations = unpackedAssociations;
     this.predications = predications;
   }
 
@@ -101,13 +134,14 @@ public class GlyphSequence implements Cloneable {
   /**
    * Instantiate a glyph sequence using an existing glyph sequence, where the new glyph sequence shares
    * the character array of the existing sequence (but not the buffer object), and creates new copies
-   * of glyphs buffer and association list.
+   * of glyphs buffer and associations.
    *
    * @param gs
    *     an existing glyph sequence
    */
   public GlyphSequence(GlyphSequence gs) {
-    this(gs.characters.duplicate(), copyBuffer(gs.glyphs), copyAssociations(gs.associations), gs.predications);
+    this(gs.characters.duplicate(), copyBuffer(gs.glyphs), copyArray(gs.clusterStarts), copyArray(gs.clusterLengths),
+        copyArray(gs.predicationFlags), copyArray(gs.unpackedAssociations), gs.predications);
   }
 
   /**
@@ -279,7 +313,8 @@ public class GlyphSequence implements Cloneable {
   }
 
   /**
-   * Obtain association at specified index.
+   * Obtain association at specified index. Unless the association could not be packed,
+   * a new association is created, so changing it does not change this sequence.
    *
    * @param index
    *     into associations array
@@ -289,16 +324,105 @@ public class GlyphSequence implements Cloneable {
    *     or exceeds last valid position
    */
   public CharAssociation getAssociation(int index) throws IndexOutOfBoundsException {
-    return (CharAssociation) associations.get(index);
+    checkClusterIndex(index);
+    CharAssociation a = getUnpackedAssociation(index);
+    if (a != null) {
+      return a;
+    } else {
+      return CharAssociation.unpack(getClusterStart(index), getClusterLength(index), getPredicationFlags(index));
+    }
   }
 
   /**
-   * Obtain reference to underlying associations list.
+   * Obtain list of associations. The list is created on each call, so changing it
+   * does not change this sequence.
    *
    * @return associations list
    */
   public List getAssociations() {
-    return associations;
+    int na = getClusterCount();
+    List al = new ArrayList(na);
+    for (int i = 0; i < na; i++) {
+      al.add(getAssociation(i));
+    }
+    return al;
+  }
+
+  /**
+   * Obtain start of character interval associated with glyph at specified index.
+   *
+   * @param index
+   *     into associations
+   * @return offset of first character of interval
+   * @throws IndexOutOfBoundsException
+   *     if index is less than zero
+   *     or exceeds last valid position
+   */
+  public int getClusterStart(int index) throws IndexOutOfBoundsException {
+    checkClusterIndex(index);
+    return (clusterStarts != null) ? clusterStarts[index] : index;
+  }
+
+  /**
+   * Obtain length of character interval associated with glyph at specified index. For a
+   * disjoint association, this is the length of the interval that spans all its sub-intervals.
+   *
+   * @param index
+   *     into associations
+   * @return number of characters of interval
+   * @throws IndexOutOfBoundsException
+   *     if index is less than zero
+   *     or exceeds last valid position
+   */
+  public int getClusterLength(int index) throws IndexOutOfBoundsException {
+    checkClusterIndex(index);
+    if (clusterLengths != null) {
+      return clusterLengths[index];
+    } else {
+      return (index < characters.limit()) ? 1 : 0;
+    }
+  }
+
+  /**
+   * Determine if association of glyph at specified index is contained within [offset,offset+count).
+   *
+   * @param index
+   *     into associations
+   * @param offset
+   *     of interval in sequence
+   * @param count
+   *     length of interval
+   * @return true if association is contained within interval
+   * @see CharAssociation#contained(int, int)
+   */
+  public boolean isClusterContained(int index, int offset, int count) {
+    CharAssociation a = getUnpackedAssociation(index);
+    if (a != null) {
+      return a.contained(offset, count);
+    } else {
+      int s = getClusterStart(index);
+      return (s >= offset) && ((s + getClusterLength(index)) <= (offset + count));
+    }
+  }
+
+  /**
+   * Determine if association of glyph at specified index has a true predication KEY. Unlike
+   * {@link #getPredication(int, String)}, this does not depend on whether predications are enabled.
+   *
+   * @param index
+   *     into associations
+   * @param key
+   *     predication key
+   * @return true if predication KEY is <code>Boolean.TRUE</code>
+   */
+  public boolean hasPredication(int index, String key) {
+    CharAssociation a = getUnpackedAssociation(index);
+    if (a != null) {
+      return Boolean.TRUE.equals(a.getPredication(key));
+    } else {
+      int flag = CharAssociation.getPredicationFlag(key);
+      return (flag != 0) && ((getPredicationFlags(index) & flag) != 0);
+    }
   }
 
   /**
@@ -324,7 +448,7 @@ public class GlyphSequence implements Cloneable {
     CharAssociation[] aa = new CharAssociation[count];
     for (int i = offset, n = offset + count, k = 0; i < n; i++) {
       if (k < aa.length) {
-        aa[k++] = (CharAssociation) associations.get(i);
+        aa[k++] = getAssociation(i);
       }
     }
     return aa;
@@ -361,9 +485,26 @@ public class GlyphSequence implements Cloneable {
    */
   public void setPredication(int offset, String key, Object value) {
     if (predications) {
-      CharAssociation[] aa = getAssociations(offset, 1);
-      CharAssociation ca = aa[0];
-      ca.setPredication(key, value);
+      checkClusterIndex(offset);
+      CharAssociation a = getUnpackedAssociation(offset);
+      int flag = CharAssociation.getPredicationFlag(key);
+      if (a != null) {
+        a.setPredication(key, value);
+      } else {
+        if (clusterStarts == null) {
+          allocateClusters(glyphs.limit());
+        }
+        if ((flag != 0) && Boolean.TRUE.equals(value)) {
+          if (predicationFlags == null) {
+            predicationFlags = new int[clusterStarts.length];
+          }
+          predicationFlags[offset] |= flag;
+        } else {
+          a = getAssociation(offset);
+          a.setPredication(key, value);
+          setAssociation(offset, a);
+        }
+      }
     }
   }
 
@@ -378,9 +519,7 @@ public class GlyphSequence implements Cloneable {
    */
   public Object getPredication(int offset, String key) {
     if (predications) {
-      CharAssociation[] aa = getAssociations(offset, 1);
-      CharAssociation ca = aa[0];
-      return ca.getPredication(key);
+      return getAssociation(offset).getPredication(key);
     } else {
       return null;
     }
@@ -418,7 +557,10 @@ public class GlyphSequence implements Cloneable {
       GlyphSequence gs = (GlyphSequence) super.clone();
       gs.characters = copyBuffer(characters);
       gs.glyphs = copyBuffer(glyphs);
-      gs.associations = copyAssociations(associations);
+      gs.clusterStarts = copyArray(clusterStarts);
+      gs.clusterLengths = copyArray(clusterLengths);
+      gs.predicationFlags = copyArray(predicationFlags);
+      gs.unpackedAssociations = copyArray(unpackedAssociations);
       return gs;
     } catch (CloneNotSupportedException e) {
       return null;
@@ -434,7 +576,7 @@ public class GlyphSequence implements Cloneable {
     sb.append("], glyphs = [");
     sb.append(glyphs);
     sb.append("], associations = [");
-    sb.append(associations);
+    sb.append(getAssociations());
     sb.append("]");
     sb.append('}');
     return sb.toString();
@@ -559,27 +701,15 @@ public class GlyphSequence implements Cloneable {
   public static GlyphSequence join(GlyphSequence gs, GlyphSequence[] sa) {
     assert sa != null;
     int tg = 0;
-    int ta = 0;
     for (int i = 0, n = sa.length; i < n; i++) {
-      GlyphSequence s = sa[i];
-      IntBuffer ga = s.getGlyphs();
-      assert ga != null;
-      int ng = ga.limit();
-      List al = s.getAssociations();
-      assert al != null;
-      int na = al.size();
-      assert na == ng;
-      tg += ng;
-      ta += na;
-    }
-    IntBuffer uga = IntBuffer.allocate(tg);
-    ArrayList ual = new ArrayList(ta);
+      tg += sa[i].getGlyphCount();
+    }
+    GlyphBuffer gb = new GlyphBuffer(tg);
     for (int i = 0, n = sa.length; i < n; i++) {
       GlyphSequence s = sa[i];
-      uga.put(s.getGlyphs());
-      ual.addAll(s.getAssociations());
+      gb.add(s, 0, s.getGlyphCount());
     }
-    return new GlyphSequence(gs.getCharacters(), uga, ual, gs.getPredications());
+    return gb.toGlyphSequence(gs.getCharacters(), gs.getPredications());
   }
 
   /**
@@ -598,53 +728,98 @@ public class GlyphSequence implements Cloneable {
   public static GlyphSequence reorder(GlyphSequence gs, int source, int count, int target) {
     if (source != target) {
       int ng = gs.getGlyphCount();
-      int[] ga = gs.getGlyphArray(false);
-      int[] nga = new int[ng];
-      CharAssociation[] aa = gs.getAssociations(0, ng);
-      CharAssociation[] naa = new CharAssociation[ng];
+      GlyphBuffer gb = new GlyphBuffer(ng);
       if (source < target) {
-        int t = 0;
-        for (int s = 0, e = source; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
-        for (int s = source + count, e = target; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
-        for (int s = source, e = source + count; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
-        for (int s = target, e = ng; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
+        gb.add(gs, 0, source);
+        gb.add(gs, source + count, target);
+        gb.add(gs, source, source + count);
+        gb.add(gs, target, ng);
       } else {
-        int t = 0;
-        for (int s = 0, e = target; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
-        for (int s = source, e = source + count; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
-        for (int s = target, e = source; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
-        for (int s = source + count, e = ng; s < e; s++, t++) {
-          nga[t] = ga[s];
-          naa[t] = aa[s];
-        }
+        gb.add(gs, 0, target);
+        gb.add(gs, source, source + count);
+        gb.add(gs, target, source);
+        gb.add(gs, source + count, ng);
       }
-      return new GlyphSequence(gs, null, nga, null, null, naa, null);
+      return gb.toGlyphSequence(gs.characters.duplicate(), gs.predications);
     } else {
       return gs;
     }
   }
 
+  /**
+   * Obtain predication bits of glyph at specified index.
+   */
+  int getPredicationFlags(int index) {
+    return (predicationFlags != null) ? predicationFlags[index] : 0;
+  }
+
+  /**
+   * Obtain association of glyph at specified index if it is not packed.
+   */
+  CharAssociation getUnpackedAssociation(int index) {
+    return (unpackedAssociations != null) ? unpackedAssociations[index] : null;
+  }
+
+  private int getClusterCount() {
+    return (clusterStarts != null) ? clusterStarts.length : glyphs.limit();
+  }
+
+  private void checkClusterIndex(int index) throws IndexOutOfBoundsException {
+    if ((index < 0) || (index >= getClusterCount())) {
+      throw new IndexOutOfBoundsException("attempting index at " + index);
+    }
+  }
+
+  private void allocateClusters(int na) {
+    int[] starts = new int[na];
+    int[] lengths = new int[na];
+    for (int i = 0; i < na; i++) {
+      starts[i] = getClusterStartOrIdentity(i);
+      lengths[i] = getClusterLengthOrIdentity(i);
+    }
+    clusterStarts = starts;
+    clusterLengths = lengths;
+  }
+
+  private int getClusterStartOrIdentity(int index) {
+    return ((clusterStarts != null) && (index < clusterStarts.length)) ? clusterStarts[index] : index;
+  }
+
+  private int getClusterLengthOrIdentity(int index) {
+    if ((clusterLengths != null) && (index < clusterLengths.length)) {
+      return clusterLengths[index];
+    } else {
+      return (index < characters.limit()) ? 1 : 0;
+    }
+  }
+
+  private void setAssociation(int index, CharAssociation a) {
+    if ((a != null) && a.isPackable()) {
+      clusterStarts[index] = a.getOffset();
+      clusterLengths[index] = a.getCount();
+      int flags = a.getPredicationFlags();
+      if ((flags != 0) && (predicationFlags == null)) {
+        predicationFlags = new int[clusterStarts.length];
+      }
+      if (predicationFlags != null) {
+        predicationFlags[index] = flags;
+      }
+      if (unpackedAssociations != null) {
+        unpackedAssociations[index] = null;
+      }
+    } else {
+      clusterStarts[index] = (a != null) ? a.getOffset() : 0;
+      clusterLengths[index] = (a != null) ? a.getCount() : 0;
+      if (predicationFlags != null) {
+        predicationFlags[index] = 0;
+      }
+      if (unpackedAssociations == null) {
+        unpackedAssociations = new CharAssociation[clusterStarts.length];
+      }
+      unpackedAssociations[index] = a;
+    }
+  }
+
   private static int[] toArray(IntBuffer ib) {
     if (ib != null) {
       int n = ib.limit();
@@ -656,17 +831,6 @@ public class GlyphSequence implements Cloneable {
     }
   }
 
-  private static List makeIdentityAssociations(int numChars, int numGlyphs) {
-    int nc = numChars;
-    int ng = numGlyphs;
-    List av = new ArrayList(ng);
-    for (int i = 0, n = ng; i < n; i++) {
-      int k = (i > nc) ? nc : i;
-      av.add(new CharAssociation(i, (k == nc) ? 0 : 1));
-    }
-    return av;
-  }
-
   private static IntBuffer copyBuffer(IntBuffer ib) {
     if (ib != null) {
       int[] ia = new int[ib.capacity()];
@@ -679,12 +843,12 @@ public class GlyphSequence implements Cloneable {
     }
   }
 
-  private static List copyAssociations(List ca) {
-    if (ca != null) {
-      return new ArrayList(ca);
-    } else {
-      return ca;
-    }
+  private static int[] copyArray(int[] ia) {
+    return (ia != null) ? ia.clone() : null;
+  }
+
+  private static CharAssociation[] copyArray(CharAssociation[] aa) {
+    return (aa != null) ? aa.clone() : null;
   }
 
 }